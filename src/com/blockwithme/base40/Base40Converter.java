@@ -15,15 +15,23 @@
  */
 package com.blockwithme.base40;
 
+import com.blockwithme.prim.BulkLongConverter;
 import com.blockwithme.prim.ConfiguredConverter;
 import com.blockwithme.prim.ConverterRegistry;
-import com.blockwithme.prim.LongConverter;
+import com.blockwithme.prim.StringConverter;
+import com.blockwithme.prim.TextLongConverter;
+import com.blockwithme.util.DirectMappedLongCache;
 
 /**
  * <code>Base40Converter</code> converts Base40 to and from Java long.
+ *
+ * It can optionally cache the decoded Base40 instances, in a bounded
+ * DirectMappedLongCache, so that frequently decoded values are not
+ * allocated over and over again. Base40 are immutable, so the cached
+ * instances can be shared freely.
  */
-public class Base40Converter implements LongConverter<Base40>,
-        ConfiguredConverter<Base40> {
+public class Base40Converter implements BulkLongConverter<Base40>,
+        TextLongConverter<Base40>, ConfiguredConverter<Base40> {
 
     /** Marker character for lower-case character set. */
     private static final char LOWER = 'l';
@@ -34,6 +42,33 @@ public class Base40Converter implements LongConverter<Base40>,
     /** The character set. */
     private final CharacterSet characterSet;
 
+    /** The optional cache of decoded instances. Null if disabled. */
+    private final DirectMappedLongCache<Base40> cache;
+
+    /** Converts Base40 to and from their name. */
+    private final StringConverter<Base40> textConverter = new StringConverter<Base40>() {
+        @Override
+        public Class<Base40> type() {
+            return Base40.class;
+        }
+
+        @Override
+        public int bits() {
+            return -1;
+        }
+
+        @Override
+        public String fromObject(final Base40 obj) {
+            return (obj == null) ? null : obj.name();
+        }
+
+        @Override
+        public Base40 toObject(final String value) {
+            return (value == null) ? null : Base40Converter.this
+                    .toObject(characterSet.toLong(value));
+        }
+    };
+
     /** Converts the configuration string to a character set. */
     private static CharacterSet toCharSet(final String theCharacterSet) {
         // (characterSet.lower ? LOWER : UPPER) + characterSet.characters;
@@ -53,7 +88,36 @@ public class Base40Converter implements LongConverter<Base40>,
 
     /** Creates a Base40Converter with the given Base40 CharacterSet. */
     public Base40Converter(final CharacterSet theCharacterSet) {
+        this(theCharacterSet, 0);
+    }
+
+    /**
+     * Creates a Base40Converter with the given Base40 CharacterSet,
+     * and a cache of (at least) the given size. 0 disables the cache.
+     */
+    public Base40Converter(final CharacterSet theCharacterSet,
+            final int theCacheSize) {
+        this(theCharacterSet, theCacheSize, false);
+    }
+
+    /**
+     * Creates a Base40Converter with the given Base40 CharacterSet,
+     * and a cache of (at least) the given size. 0 disables the cache.
+     * If theCacheStatistics is true, the cache keeps statistics.
+     */
+    public Base40Converter(final CharacterSet theCharacterSet,
+            final int theCacheSize, final boolean theCacheStatistics) {
+        if (theCharacterSet == null) {
+            throw new IllegalArgumentException("theCharacterSet is null");
+        }
+        if (theCacheSize < 0) {
+            throw new IllegalArgumentException("theCacheSize must be >= 0: "
+                    + theCacheSize);
+        }
         characterSet = theCharacterSet;
+        cache = (theCacheSize == 0) ? null
+                : new DirectMappedLongCache<Base40>(theCacheSize,
+                        theCacheStatistics);
     }
 
     /**
@@ -62,7 +126,7 @@ public class Base40Converter implements LongConverter<Base40>,
      * as returned by getConfiguration().
      */
     public Base40Converter(final String theCharacterSet) {
-        characterSet = toCharSet(theCharacterSet);
+        this(toCharSet(theCharacterSet), 0);
     }
 
     /** Creates a Base40Converter with the Base40 default CharacterSet. */
@@ -83,7 +147,79 @@ public class Base40Converter implements LongConverter<Base40>,
 
     @Override
     public Base40 toObject(final long value) {
-        return new Base40(characterSet, value);
+        final DirectMappedLongCache<Base40> c = cache;
+        if (c == null) {
+            return new Base40(characterSet, value);
+        }
+        Base40 result = c.get(value);
+        if (result == null) {
+            result = new Base40(characterSet, value);
+            c.put(result);
+        }
+        return result;
+    }
+
+    /* (non-Javadoc)
+     * @see com.blockwithme.prim.BulkLongConverter#fromObjects(java.lang.Object[], int, long[], int, int)
+     */
+    @Override
+    public void fromObjects(final Base40[] src, final int srcPos,
+            final long[] dest, final int destPos, final int length) {
+        for (int i = 0; i < length; i++) {
+            final Base40 obj = src[srcPos + i];
+            dest[destPos + i] = (obj == null) ? 0L : obj.asLong();
+        }
+    }
+
+    /* (non-Javadoc)
+     * @see com.blockwithme.prim.BulkLongConverter#toObjects(long[], int, java.lang.Object[], int, int)
+     */
+    @Override
+    public void toObjects(final long[] src, final int srcPos,
+            final Base40[] dest, final int destPos, final int length) {
+        final DirectMappedLongCache<Base40> c = cache;
+        if (c == null) {
+            final CharacterSet cs = characterSet;
+            for (int i = 0; i < length; i++) {
+                dest[destPos + i] = new Base40(cs, src[srcPos + i]);
+            }
+        } else {
+            for (int i = 0; i < length; i++) {
+                dest[destPos + i] = toObject(src[srcPos + i]);
+            }
+        }
+    }
+
+    /* (non-Javadoc)
+     * @see com.blockwithme.prim.TextLongConverter#textConverter()
+     */
+    @Override
+    public StringConverter<Base40> textConverter() {
+        return textConverter;
+    }
+
+    /* (non-Javadoc)
+     * @see com.blockwithme.prim.TextLongConverter#textToLong(java.lang.String)
+     */
+    @Override
+    public long textToLong(final String text) {
+        return (text == null) ? 0L : characterSet.toLong(text);
+    }
+
+    /* (non-Javadoc)
+     * @see com.blockwithme.prim.TextLongConverter#longToText(long)
+     */
+    @Override
+    public String longToText(final long value) {
+        return characterSet.toString(value, false, false);
+    }
+
+    /**
+     * Returns the cache of decoded instances, for statistics, or null if
+     * caching is disabled. The cache size is not part of the configuration.
+     */
+    public DirectMappedLongCache<Base40> cache() {
+        return cache;
     }
 
     /** {@inheritDoc} */
@@ -105,6 +241,9 @@ public class Base40Converter implements LongConverter<Base40>,
      */
     @Override
     public String getConfiguration() {
-        return (characterSet.lower ? LOWER : UPPER) + characterSet.characters;
+        // Only the last 4 characters can be chosen; see toCharSet()
+        return (characterSet.lower ? LOWER : UPPER)
+                + characterSet.characters.substring(characterSet.characters
+                        .length() - 4);
     }
 }
@@ -21,9 +21,11 @@ import java.lang.reflect.Array;
 import java.lang.reflect.Field;
 import java.lang.reflect.Modifier;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import com.blockwithme.util.Statics;
@@ -141,6 +143,11 @@ import com.blockwithme.util.Statics;
  * as invalid, and has a (potentially) non-unique ordinal (but different from
  * all the valid enums).
  *
+ * By default, the constants are found by scanning the fields of the class
+ * reflectively. To speed up startup, the names of the constants can instead
+ * be listed with the Enum40Names annotation. Registration times can be
+ * monitored with an Enum40RegistrationListener.
+ *
  * TODO: Test
  *
  * @author monster
@@ -172,14 +179,20 @@ public abstract class Enum40<E extends Enum40<E>> extends AbstractBase40<E> {
         private int count;
         /** All the values. */
         private final List<E> values = new ArrayList<>();
-        /** All the fields. */
-        private final List<Field> fields = new ArrayList<>();
+        /** All the fields; null if registered from an Enum40Names index. */
+        private final List<Field> fields;
+        /** The names of all the fields, in declaration order. */
+        private final List<String> names = new ArrayList<>();
+        /** When did the registration start? */
+        private final long startNanos = System.nanoTime();
         /** Maps names to values. */
         private final Map<String, E> nameToValue = new HashMap<>();
         /** Maps base-40 value to values. */
         private final Map<Long, E> base40ToValue = new HashMap<>();
         /** All types extending this type, which also provide Enum40 constants. */
         private final List<Data<E>> children = new ArrayList<>();
+        /** All the values of the hierarchy, indexed by ordinal. Only used in the root. */
+        private E[] byOrdinal;
 
         /** Constructors computes the enum values. */
         public Data(final Class<E> theEnumClass, final Data<?> theParent,
@@ -190,25 +203,61 @@ public abstract class Enum40<E extends Enum40<E>> extends AbstractBase40<E> {
             enumClass = theEnumClass;
             parent = theParent;
             firstID = theFirstID;
-            final Logger log = Logger.getLogger(Enum40.class.getName());
-            log.info("Registering new Enum40 enum: " + enumClass);
-            for (final Field f : enumClass.getFields()) {
-                final int mod = f.getModifiers();
-                if (Modifier.isPublic(mod) && Modifier.isStatic(mod)
-                        && Modifier.isFinal(mod)
-                        && (theEnumClass == f.getType())) {
-                    fields.add(f);
+            final Enum40Names index = enumClass
+                    .getAnnotation(Enum40Names.class);
+            if (index != null) {
+                // Fast path; only the declared fields are scanned, to check
+                // the names, and the constants are never read back.
+                fields = null;
+                names.addAll(Arrays.asList(index.value()));
+                int count = 0;
+                for (final Field f : enumClass.getDeclaredFields()) {
+                    if (isValueField(f, theEnumClass)) {
+                        if ((count >= names.size())
+                                || !f.getName().equals(names.get(count))) {
+                            throw new IllegalStateException(theEnumClass
+                                    + ": Enum40Names " + names
+                                    + " does not match field " + count
+                                    + ": " + f.getName());
+                        }
+                        count++;
+                    }
+                }
+                if (count != names.size()) {
+                    throw new IllegalStateException(theEnumClass
+                            + " has " + count + " values, but Enum40Names "
+                            + "lists " + names.size());
+                }
+            } else {
+                fields = new ArrayList<>();
+                for (final Field f : enumClass.getFields()) {
+                    if (isValueField(f, theEnumClass)) {
+                        fields.add(f);
+                        names.add(f.getName());
+                    }
+                }
+                final Logger log = Logger.getLogger(Enum40.class.getName());
+                if (log.isLoggable(Level.FINE)) {
+                    log.fine("Registering new Enum40 enum: " + enumClass
+                            + " with fields: " + fields);
                 }
             }
-            if (fields.isEmpty()) {
+            if (names.isEmpty()) {
                 throw new IllegalStateException("No values found in "
                         + theEnumClass);
             }
-            if (fields.size() >= MAX_VALUES) {
+            if (names.size() >= MAX_VALUES) {
                 throw new IllegalStateException("Too many values found in "
-                        + theEnumClass + " : " + fields.size());
+                        + theEnumClass + " : " + names.size());
             }
-            log.info("Enum40 fields for " + enumClass + " " + fields);
+        }
+
+        /** Is this field an Enum40 constant of the given type? */
+        private static boolean isValueField(final Field f,
+                final Class<?> enumClass) {
+            final int mod = f.getModifiers();
+            return Modifier.isPublic(mod) && Modifier.isStatic(mod)
+                    && Modifier.isFinal(mod) && (enumClass == f.getType());
         }
 
         public E[] toArray() {
@@ -217,6 +266,37 @@ public abstract class Enum40<E extends Enum40<E>> extends AbstractBase40<E> {
                     .newInstance(enumClass, values.size());
             return values.toArray(result);
         }
+
+        /** Returns the root Data of the hierarchy. */
+        public Data<?> root() {
+            // The parent is always the root, see dataFor()
+            return (parent == null) ? this : parent;
+        }
+
+        /** Returns all the values of the hierarchy, indexed by ordinal. */
+        @SuppressWarnings("unchecked")
+        public E[] byOrdinal() {
+            final Data<E> root = (Data<E>) root();
+            if (root.byOrdinal == null) {
+                final E[] result = (E[]) Array.newInstance(root.enumClass,
+                        (root.children.size() + 1) * (MAX_VALUES + 1));
+                root.fill(result);
+                for (final Data<E> child : root.children) {
+                    child.fill(result);
+                }
+                root.byOrdinal = result;
+            }
+            return root.byOrdinal;
+        }
+
+        /** Puts all valid values in the ordinal-indexed array. */
+        private void fill(final E[] table) {
+            for (final E e : values) {
+                if (e.valid()) {
+                    table[e.ordinal()] = e;
+                }
+            }
+        }
     }
 
     /** Key for already computed Data for classes. */
@@ -231,6 +311,39 @@ public abstract class Enum40<E extends Enum40<E>> extends AbstractBase40<E> {
     /** The object that will be returned in writeReplace(). */
     private transient E writeReplace;
 
+    /** Key for the registration listener. */
+    private static final String LISTENER = Enum40.class.getName()
+            + ".listener";
+
+    /**
+     * Sets the listener informed of completed Enum40 type registrations.
+     * Only one listener can be set; it replaces the previous one. null clears
+     * the listener.
+     */
+    public static void setRegistrationListener(
+            final Enum40RegistrationListener listener) {
+        Object old;
+        if (listener == null) {
+            do {
+                old = Statics.get(LISTENER);
+            } while ((old != null) && !Statics.remove(LISTENER, old));
+            return;
+        }
+        do {
+            old = Statics.get(LISTENER);
+        } while (Statics.replace(LISTENER, old, listener) != listener);
+    }
+
+    /** Informs the listener, if any, that a type is registered. */
+    private static void registered(final Data<?> data) {
+        final Enum40RegistrationListener listener = (Enum40RegistrationListener) Statics
+                .get(LISTENER);
+        if (listener != null) {
+            listener.onRegistered(data.enumClass, data.names.size(),
+                    System.nanoTime() - data.startNanos, data.fields == null);
+        }
+    }
+
     /** Already computed Data for classes. */
     private static final Map<Class<?>, Data<?>> getData() {
         @SuppressWarnings("unchecked")
@@ -245,6 +358,10 @@ public abstract class Enum40<E extends Enum40<E>> extends AbstractBase40<E> {
 
     /** Checks an already returned field. */
     private static void checkField(final Data<?> data, final int fieldNumber) {
+        if (data.fields == null) {
+            // Registered from an Enum40Names index
+            return;
+        }
         final Class<?> enumClass = data.enumClass;
         final Field previous = data.fields.get(fieldNumber);
         try {
@@ -274,12 +391,13 @@ public abstract class Enum40<E extends Enum40<E>> extends AbstractBase40<E> {
         final Map<Class<?>, Data<?>> map = getData();
         final Data<?> toCheck = map.get(Object.class);
         if (toCheck != null) {
+            // Must be removed first, as postInit() can create generic instances
+            map.remove(Object.class);
             checkField(toCheck, toCheck.count - 1);
             final Enum40<?>[] all = toCheck.toArray();
             for (final Enum40 e : all) {
                 e.postInit(all);
             }
-            map.remove(Object.class);
         }
         Data<E> data = (Data<E>) map.get(enumClass);
         if (data == null) {
@@ -309,6 +427,7 @@ public abstract class Enum40<E extends Enum40<E>> extends AbstractBase40<E> {
                             * (MAX_VALUES + 1);
                     data = new Data<E>(enumClass, parentData, firstID);
                     parentData.children.add((Data) data);
+                    parentData.byOrdinal = null;
                 }
             } else {
                 data = new Data<E>(enumClass, parentData, firstID);
@@ -338,25 +457,25 @@ public abstract class Enum40<E extends Enum40<E>> extends AbstractBase40<E> {
             if (base40ForGeneric == 0) {
                 // Normal "singleton" instance
                 final int next = data.count++;
-                if (next >= data.fields.size()) {
+                if (next >= data.names.size()) {
                     throw new IllegalStateException(
                             "Too many values requested for " + enumClass);
                 }
                 if (next > 0) {
                     checkField(data, next - 1);
                 }
-                if (data.count == data.fields.size()) {
+                if (data.count == data.names.size()) {
                     // Last one!
                     map.put(Object.class, data);
                 }
-                final Field field = data.fields.get(next);
-                result.name = field.getName();
+                result.name = data.names.get(next);
                 result.ordinal = next;
             } else {
                 // Generic instance
                 result.name = getDefaultCharacterSet().toString(
                         base40ForGeneric, false, true);
-                result.ordinal = 0;
+                // Generic instances are not registered, and are "invalid"
+                result.ordinal = -1;
             }
             return result;
         }
@@ -369,6 +488,25 @@ public abstract class Enum40<E extends Enum40<E>> extends AbstractBase40<E> {
         }
     }
 
+    /**
+     * Returns all the values of the hierarchy of the given "enumeration"
+     * class, indexed by ordinal. The array is shared, and must not be
+     * modified. It contains null for unused ordinals.
+     */
+    static <E extends Enum40<E>> E[] byOrdinal(final Class<E> enumClass) {
+        synchronized (getData()) {
+            return dataFor(enumClass).byOrdinal();
+        }
+    }
+
+    /** Returns the root class of the hierarchy of the "enumeration" class. */
+    @SuppressWarnings("unchecked")
+    static <E extends Enum40<E>> Class<E> rootClass(final Class<E> enumClass) {
+        synchronized (getData()) {
+            return (Class<E>) dataFor(enumClass).root().enumClass;
+        }
+    }
+
     /** Returns the value for the given name for the "enumeration" class. */
     public static <E extends Enum40<E>> E valueOf(final Class<E> enumClass,
             final String name) {
@@ -446,20 +584,28 @@ public abstract class Enum40<E extends Enum40<E>> extends AbstractBase40<E> {
     private Enum40(final CharacterSet theCharacterSet, final Data<E> data,
             final String name, final int theOrdinal) {
         super(theCharacterSet, name);
-        final int ord = data.firstID + theOrdinal + 1;
+        final int ord = (theOrdinal < 0) ? 0 : data.firstID + theOrdinal + 1;
         if ((ord < 0) || (ord > Character.MAX_VALUE)) {
             throw new IllegalStateException("Bad ordinal: " + ord);
         }
         ordinal = (char) ord;
         declaringClass = data.enumClass;
         writeReplace = (E) this;
+        if (theOrdinal < 0) {
+            // Generic instance
+            return;
+        }
         synchronized (getData()) {
             final E e = (E) this;
             data.base40ToValue.put(asLong(), e);
             data.nameToValue.put(toString(), e);
             // In case there is a "case difference" ...
-            data.nameToValue.put(data.fields.get(theOrdinal).getName(), e);
+            data.nameToValue.put(data.names.get(theOrdinal), e);
             data.values.add(e);
+            data.root().byOrdinal = null;
+        }
+        if (theOrdinal == data.names.size() - 1) {
+            registered(data);
         }
     }
 
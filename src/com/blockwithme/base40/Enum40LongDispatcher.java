@@ -0,0 +1,69 @@
+/*
+ * Copyright (C) 2013 Sebastien Diot.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.blockwithme.base40;
+
+/**
+ * <code>Enum40LongDispatcher</code> dispatches Enum40 values to a switch on
+ * stable case numbers, using an Enum40SwitchMap.
+ *
+ * Contrary to Enum40.handle(), the Enum40 values do not need to override
+ * anything. The values passed to the constructor get the case numbers 1, 2,
+ * and so on; all other values, including values of sub-types loaded later,
+ * get Enum40SwitchMap.UNKNOWN. Mapping a value to it's case number is a
+ * single array load, and the JIT can inline every case of the switch.
+ *
+ * Usage:
+ *
+ * <code>
+ * private static final Enum40LongDispatcher<Op> DISPATCHER =
+ *     new Enum40LongDispatcher<Op>(Op.Inc, Op.Dec) {
+ *         protected long dispatch(int caseNumber, Op value, long input) {
+ *             switch (caseNumber) {
+ *             case 1: return input + 1;
+ *             case 2: return input - 1;
+ *             default: throw new IllegalArgumentException("" + value);
+ *             }
+ *         }
+ *     };
+ * </code>
+ *
+ * @author monster
+ */
+public abstract class Enum40LongDispatcher<E extends Enum40<E>> {
+
+    /** The case numbers, indexed by ordinal. */
+    private final Enum40SwitchMap<E> cases;
+
+    /** Creates a dispatcher for the given values, in case number order. */
+    @SafeVarargs
+    @SuppressWarnings("varargs")
+    protected Enum40LongDispatcher(final E... values) {
+        cases = new Enum40SwitchMap<E>(values);
+    }
+
+    /** Calls dispatch() with the case number of the value. */
+    public final long handle(final E value, final long input) {
+        return dispatch(cases.caseOf(value), value, input);
+    }
+
+    /**
+     * Handles a value. caseNumber is the position of the value in the
+     * constructor parameters, starting at 1, or Enum40SwitchMap.UNKNOWN.
+     */
+    protected abstract long dispatch(final int caseNumber, final E value,
+            final long input);
+}
@@ -0,0 +1,365 @@
+/*
+ * Copyright (C) 2013 Sebastien Diot.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.blockwithme.base40;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * <code>Enum40Map</code> is the Enum40 equivalent of java.util.EnumMap.
+ *
+ * It is backed by arrays, indexed by the Enum40 ordinal. Values of sub-types
+ * can be used as keys in a map of the base type, since every type of the
+ * hierarchy has it's own independent block of ordinals.
+ *
+ * Null values are supported, but null keys and invalid Enum40 (coming from
+ * de-serialization) are not.
+ *
+ * Like java.util.EnumMap, this class is not thread-safe.
+ *
+ * @author monster
+ */
+public class Enum40Map<E extends Enum40<E>, V> extends AbstractMap<E, V>
+        implements Cloneable {
+
+    /** Represents null values internally. */
+    private static final Object NULL = new Object();
+
+    /** Empty array. */
+    private static final Object[] EMPTY = new Object[0];
+
+    /** The Enum40 type. */
+    private final Class<E> type;
+
+    /** The keys, indexed by ordinal. */
+    private Object[] keys;
+
+    /** The values, indexed by ordinal. Null means absent. */
+    private Object[] values;
+
+    /** The number of mappings. */
+    private int size;
+
+    /** Modification count, for the iterators. */
+    private int modCount;
+
+    /** Our Map.Entry, reading and writing through to the map. */
+    private final class Entry implements Map.Entry<E, V> {
+        /** The ordinal of the key. */
+        private final int ordinal;
+
+        /** Constructor */
+        public Entry(final int theOrdinal) {
+            ordinal = theOrdinal;
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        public E getKey() {
+            return (E) keys[ordinal];
+        }
+
+        @Override
+        public V getValue() {
+            return unmask(values[ordinal]);
+        }
+
+        @Override
+        public V setValue(final V value) {
+            final V result = unmask(values[ordinal]);
+            values[ordinal] = mask(value);
+            return result;
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            if (!(obj instanceof Map.Entry<?, ?>)) {
+                return false;
+            }
+            final Map.Entry<?, ?> other = (Map.Entry<?, ?>) obj;
+            return (getKey() == other.getKey())
+                    && Objects.equals(getValue(), other.getValue());
+        }
+
+        @Override
+        public int hashCode() {
+            return getKey().hashCode() ^ Objects.hashCode(getValue());
+        }
+
+        @Override
+        public String toString() {
+            return getKey() + "=" + getValue();
+        }
+    }
+
+    /** Our entry Iterator */
+    private final class Itr implements Iterator<Map.Entry<E, V>> {
+        /** The expected modification count. */
+        private int expectedModCount = modCount;
+        /** Ordinal of the next entry, or -1 if none. */
+        private int next = nextOrdinal(0);
+        /** Ordinal of the last returned entry, or -1 if none. */
+        private int last = -1;
+
+        @Override
+        public boolean hasNext() {
+            return next >= 0;
+        }
+
+        @Override
+        public Map.Entry<E, V> next() {
+            if (next < 0) {
+                throw new NoSuchElementException();
+            }
+            if (expectedModCount != modCount) {
+                throw new ConcurrentModificationException();
+            }
+            last = next;
+            next = nextOrdinal(next + 1);
+            return new Entry(last);
+        }
+
+        @Override
+        public void remove() {
+            if (last < 0) {
+                throw new IllegalStateException();
+            }
+            if (expectedModCount != modCount) {
+                throw new ConcurrentModificationException();
+            }
+            removeOrdinal(last);
+            last = -1;
+            expectedModCount = modCount;
+        }
+    }
+
+    /** Our entry set. */
+    private final class EntrySet extends AbstractSet<Map.Entry<E, V>> {
+        @Override
+        public Iterator<Map.Entry<E, V>> iterator() {
+            return new Itr();
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public void clear() {
+            Enum40Map.this.clear();
+        }
+    }
+
+    /**
+     * Creates an empty map for the given Enum40 type. Any type of the
+     * hierarchy can be given; the map always accepts all of the hierarchy.
+     */
+    public Enum40Map(final Class<E> theType) {
+        if (theType == null) {
+            throw new IllegalArgumentException("theType is null");
+        }
+        type = Enum40.rootClass(theType);
+        keys = EMPTY;
+        values = EMPTY;
+    }
+
+    /** Creates a map containing the same mappings as the other map. */
+    public Enum40Map(final Enum40Map<E, ? extends V> other) {
+        type = other.type;
+        keys = other.keys.clone();
+        values = other.values.clone();
+        size = other.size;
+    }
+
+    /** Masks null values. */
+    private static Object mask(final Object value) {
+        return (value == null) ? NULL : value;
+    }
+
+    /** Unmasks null values. */
+    @SuppressWarnings("unchecked")
+    private static <V> V unmask(final Object value) {
+        return (value == NULL) ? null : (V) value;
+    }
+
+    /** Returns the Enum40 type, which is always the root of the hierarchy. */
+    public final Class<E> type() {
+        return type;
+    }
+
+    /** Returns the ordinal of the key, or -1 if not a valid Enum40 of our type. */
+    private int ordinalOrNeg(final Object key) {
+        if (type.isInstance(key)) {
+            return ((Enum40<?>) key).ordinal();
+        }
+        return -1;
+    }
+
+    /** Returns the ordinal of the next entry, starting at ordinal from, or -1 if none. */
+    private int nextOrdinal(final int from) {
+        for (int i = from; i < values.length; i++) {
+            if (values[i] != null) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /** Removes the entry at the given ordinal, and returns the masked value. */
+    private Object removeOrdinal(final int ordinal) {
+        final Object result = values[ordinal];
+        if (result != null) {
+            values[ordinal] = null;
+            keys[ordinal] = null;
+            size--;
+            modCount++;
+        }
+        return result;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return (size == 0);
+    }
+
+    @Override
+    public boolean containsKey(final Object key) {
+        final int ordinal = ordinalOrNeg(key);
+        return (ordinal > 0) && (ordinal < values.length)
+                && (values[ordinal] != null);
+    }
+
+    @Override
+    public boolean containsValue(final Object value) {
+        final Object masked = mask(value);
+        for (final Object v : values) {
+            if ((v != null) && masked.equals(v)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public V get(final Object key) {
+        final int ordinal = ordinalOrNeg(key);
+        if ((ordinal > 0) && (ordinal < values.length)) {
+            return unmask(values[ordinal]);
+        }
+        return null;
+    }
+
+    @Override
+    public V put(final E key, final V value) {
+        if (!type.isInstance(key)) {
+            throw new ClassCastException(key + " is not a " + type);
+        }
+        if (!key.valid()) {
+            throw new IllegalArgumentException(key + " is not a valid Enum40");
+        }
+        final int ordinal = key.ordinal();
+        if (ordinal >= values.length) {
+            // Grow by whole blocks of 64 ordinals
+            final int newLength = ((ordinal >>> 6) + 1) << 6;
+            keys = Arrays.copyOf(keys, newLength);
+            values = Arrays.copyOf(values, newLength);
+        }
+        final Object old = values[ordinal];
+        values[ordinal] = mask(value);
+        if (old == null) {
+            keys[ordinal] = key;
+            size++;
+            modCount++;
+        }
+        return unmask(old);
+    }
+
+    @Override
+    public V remove(final Object key) {
+        final int ordinal = ordinalOrNeg(key);
+        if ((ordinal > 0) && (ordinal < values.length)) {
+            return unmask(removeOrdinal(ordinal));
+        }
+        return null;
+    }
+
+    @Override
+    public void putAll(final Map<? extends E, ? extends V> m) {
+        if (m instanceof Enum40Map<?, ?>) {
+            final Enum40Map<?, ?> other = (Enum40Map<?, ?>) m;
+            if (other.type == type) {
+                if (other.values.length > values.length) {
+                    keys = Arrays.copyOf(keys, other.keys.length);
+                    values = Arrays.copyOf(values, other.values.length);
+                }
+                for (int i = 0; i < other.values.length; i++) {
+                    final Object value = other.values[i];
+                    if (value != null) {
+                        if (values[i] == null) {
+                            keys[i] = other.keys[i];
+                            size++;
+                        }
+                        values[i] = value;
+                    }
+                }
+                modCount++;
+                return;
+            }
+        }
+        super.putAll(m);
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(keys, null);
+        Arrays.fill(values, null);
+        size = 0;
+        modCount++;
+    }
+
+    @Override
+    public Set<Map.Entry<E, V>> entrySet() {
+        return new EntrySet();
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public Enum40Map<E, V> clone() {
+        try {
+            final Enum40Map<E, V> result = (Enum40Map<E, V>) super.clone();
+            result.keys = keys.clone();
+            result.values = values.clone();
+            result.modCount = 0;
+            return result;
+        } catch (final CloneNotSupportedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,48 @@
+/*
+ * Copyright (C) 2013 Sebastien Diot.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.blockwithme.base40;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * <code>Enum40Names</code> lists the names of the constants of an Enum40 type,
+ * in declaration order.
+ *
+ * When present, the Enum40 type is registered from this list. Only the
+ * declared fields of the class are scanned, instead of all the public fields,
+ * and the constant fields are not read back once initialized. This speeds up
+ * the startup of applications with many Enum40 types. It can be written by
+ * hand, or by a source generator.
+ *
+ * The names must match the field names, and the order must match the order of
+ * initialization of the fields (declaration order). Both are verified against
+ * the declared fields, when the type is registered.
+ *
+ * The annotation is not inherited; every type of an Enum40 hierarchy needs
+ * it's own.
+ *
+ * @author monster
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface Enum40Names {
+    /** The names of the constants, in declaration order. */
+    String[] value();
+}
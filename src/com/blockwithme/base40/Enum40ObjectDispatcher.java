@@ -0,0 +1,50 @@
+/*
+ * Copyright (C) 2013 Sebastien Diot.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.blockwithme.base40;
+
+/**
+ * <code>Enum40ObjectDispatcher</code> dispatches Enum40 values to a switch on
+ * stable case numbers, using an Enum40SwitchMap.
+ *
+ * See Enum40LongDispatcher for the details.
+ *
+ * @author monster
+ */
+public abstract class Enum40ObjectDispatcher<E extends Enum40<E>, INPUT, OUTPUT> {
+
+    /** The case numbers, indexed by ordinal. */
+    private final Enum40SwitchMap<E> cases;
+
+    /** Creates a dispatcher for the given values, in case number order. */
+    @SafeVarargs
+    @SuppressWarnings("varargs")
+    protected Enum40ObjectDispatcher(final E... values) {
+        cases = new Enum40SwitchMap<E>(values);
+    }
+
+    /** Calls dispatch() with the case number of the value. */
+    public final OUTPUT handle(final E value, final INPUT input) {
+        return dispatch(cases.caseOf(value), value, input);
+    }
+
+    /**
+     * Handles a value. caseNumber is the position of the value in the
+     * constructor parameters, starting at 1, or Enum40SwitchMap.UNKNOWN.
+     */
+    protected abstract OUTPUT dispatch(final int caseNumber, final E value,
+            final INPUT input);
+}
@@ -0,0 +1,37 @@
+/*
+ * Copyright (C) 2013 Sebastien Diot.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.blockwithme.base40;
+
+/**
+ * Metrics hook, informed when the registration of an Enum40 type is complete.
+ *
+ * @see Enum40#setRegistrationListener(Enum40RegistrationListener)
+ *
+ * @author monster
+ */
+public interface Enum40RegistrationListener {
+    /**
+     * Called once all the constants of the Enum40 type were created.
+     *
+     * The time is measured from the creation of the first constant, to the
+     * creation of the last one, and so includes the initialization code of
+     * the Enum40 type itself. indexed is true if the type was registered
+     * using an Enum40Names annotation.
+     */
+    void onRegistered(final Class<?> enumClass, final int values,
+            final long nanos, final boolean indexed);
+}
@@ -0,0 +1,418 @@
+/*
+ * Copyright (C) 2013 Sebastien Diot.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.blockwithme.base40;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * <code>Enum40Set</code> is the Enum40 equivalent of java.util.EnumSet.
+ *
+ * It is backed by a bitset, indexed by the Enum40 ordinal. Since every type
+ * in an Enum40 hierarchy gets it's own independent block of 64 ordinals, every
+ * type of the hierarchy maps to exactly one long word. Values of sub-types can
+ * therefore be stored in a set of the base type.
+ *
+ * Invalid Enum40 (coming from de-serialization) cannot be stored in the set.
+ *
+ * Like java.util.EnumSet, this class is not thread-safe.
+ *
+ * @author monster
+ */
+public class Enum40Set<E extends Enum40<E>> extends AbstractSet<E> implements
+        Cloneable {
+
+    /** Empty words. */
+    private static final long[] NO_WORDS = new long[0];
+
+    /** The Enum40 type. */
+    private final Class<E> type;
+
+    /** The bits, indexed by ordinal. */
+    private long[] words;
+
+    /** Modification count, for the iterators. */
+    private int modCount;
+
+    /** Our Iterator */
+    private final class Itr implements Iterator<E> {
+        /** The value table of the hierarchy. */
+        private final E[] table = Enum40.byOrdinal(type);
+        /** The expected modification count. */
+        private int expectedModCount = modCount;
+        /** Ordinal of the next value, or -1 if none. */
+        private int next;
+        /** Ordinal of the last returned value, or -1 if none. */
+        private int last = -1;
+
+        /** Constructor */
+        public Itr() {
+            next = nextOrdinal(0);
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next >= 0;
+        }
+
+        @Override
+        public E next() {
+            if (next < 0) {
+                throw new NoSuchElementException();
+            }
+            if (expectedModCount != modCount) {
+                throw new ConcurrentModificationException();
+            }
+            last = next;
+            next = nextOrdinal(next + 1);
+            return table[last];
+        }
+
+        @Override
+        public void remove() {
+            if (last < 0) {
+                throw new IllegalStateException();
+            }
+            if (expectedModCount != modCount) {
+                throw new ConcurrentModificationException();
+            }
+            words[last >>> 6] &= ~(1L << last);
+            last = -1;
+            expectedModCount = ++modCount;
+        }
+    }
+
+    /**
+     * Creates an empty set for the given Enum40 type. Any type of the
+     * hierarchy can be given; the set always accepts all of the hierarchy.
+     */
+    public Enum40Set(final Class<E> theType) {
+        if (theType == null) {
+            throw new IllegalArgumentException("theType is null");
+        }
+        type = Enum40.rootClass(theType);
+        words = NO_WORDS;
+    }
+
+    /** Creates an empty set for the given Enum40 type. */
+    public static <E extends Enum40<E>> Enum40Set<E> noneOf(
+            final Class<E> type) {
+        return new Enum40Set<E>(type);
+    }
+
+    /** Creates a set containing all the values of the Enum40 hierarchy. */
+    public static <E extends Enum40<E>> Enum40Set<E> allOf(final Class<E> type) {
+        final Enum40Set<E> result = new Enum40Set<E>(type);
+        final E[] table = Enum40.byOrdinal(type);
+        result.words = new long[table.length >>> 6];
+        for (int i = 0; i < table.length; i++) {
+            if (table[i] != null) {
+                result.words[i >>> 6] |= 1L << i;
+            }
+        }
+        return result;
+    }
+
+    /** Creates a set containing the given values. */
+    @SafeVarargs
+    public static <E extends Enum40<E>> Enum40Set<E> of(final E first,
+            final E... rest) {
+        final Enum40Set<E> result = new Enum40Set<E>(
+                first.getDeclaringClass());
+        result.add(first);
+        for (final E e : rest) {
+            result.add(e);
+        }
+        return result;
+    }
+
+    /** Creates a set containing all the values of the other set. */
+    public static <E extends Enum40<E>> Enum40Set<E> copyOf(
+            final Enum40Set<E> other) {
+        return other.clone();
+    }
+
+    /** Creates a set containing all the values not in the other set. */
+    public static <E extends Enum40<E>> Enum40Set<E> complementOf(
+            final Enum40Set<E> other) {
+        final Enum40Set<E> result = allOf(other.type);
+        result.removeAll(other);
+        return result;
+    }
+
+    /** Returns the Enum40 type, which is always the root of the hierarchy. */
+    public final Class<E> type() {
+        return type;
+    }
+
+    /** Returns the ordinal of the value, after validating it. */
+    private int ordinalOf(final E e) {
+        if (!type.isInstance(e)) {
+            throw new ClassCastException(e + " is not a " + type);
+        }
+        if (!e.valid()) {
+            throw new IllegalArgumentException(e + " is not a valid Enum40");
+        }
+        return e.ordinal();
+    }
+
+    /** Returns the ordinal of the value, or -1 if not a valid Enum40 of our type. */
+    private int ordinalOrNeg(final Object obj) {
+        if (type.isInstance(obj)) {
+            return ((Enum40<?>) obj).ordinal();
+        }
+        return -1;
+    }
+
+    /** Returns the ordinal of the next value, starting at ordinal from, or -1 if none. */
+    private int nextOrdinal(final int from) {
+        int index = from >>> 6;
+        if (index >= words.length) {
+            return -1;
+        }
+        long word = words[index] & (-1L << from);
+        while (true) {
+            if (word != 0) {
+                return (index << 6) + Long.numberOfTrailingZeros(word);
+            }
+            if (++index == words.length) {
+                return -1;
+            }
+            word = words[index];
+        }
+    }
+
+    /**
+     * Is the other object an Enum40Set of the same hierarchy? Only then can
+     * the words be combined directly, since every hierarchy uses the same
+     * ordinals.
+     */
+    private boolean sameType(final Object obj) {
+        return (obj instanceof Enum40Set<?>)
+                && (((Enum40Set<?>) obj).type == type);
+    }
+
+    /** Makes sure we have enough words. */
+    private void ensureWords(final int count) {
+        if (words.length < count) {
+            words = Arrays.copyOf(words, count);
+        }
+    }
+
+    @Override
+    public Iterator<E> iterator() {
+        return new Itr();
+    }
+
+    @Override
+    public int size() {
+        int result = 0;
+        for (final long word : words) {
+            result += Long.bitCount(word);
+        }
+        return result;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        for (final long word : words) {
+            if (word != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public boolean contains(final Object obj) {
+        final int ordinal = ordinalOrNeg(obj);
+        if (ordinal <= 0) {
+            return false;
+        }
+        final int index = ordinal >>> 6;
+        return (index < words.length) && ((words[index] & (1L << ordinal)) != 0);
+    }
+
+    @Override
+    public boolean add(final E e) {
+        final int ordinal = ordinalOf(e);
+        final int index = ordinal >>> 6;
+        ensureWords(index + 1);
+        final long before = words[index];
+        final long after = before | (1L << ordinal);
+        if (before != after) {
+            words[index] = after;
+            modCount++;
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public boolean remove(final Object obj) {
+        final int ordinal = ordinalOrNeg(obj);
+        if (ordinal <= 0) {
+            return false;
+        }
+        final int index = ordinal >>> 6;
+        if (index < words.length) {
+            final long before = words[index];
+            final long after = before & ~(1L << ordinal);
+            if (before != after) {
+                words[index] = after;
+                modCount++;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(words, 0L);
+        modCount++;
+    }
+
+    @Override
+    public boolean containsAll(final Collection<?> c) {
+        if (!sameType(c)) {
+            return super.containsAll(c);
+        }
+        final long[] other = ((Enum40Set<?>) c).words;
+        for (int i = 0; i < other.length; i++) {
+            final long word = (i < words.length) ? words[i] : 0L;
+            if ((other[i] & ~word) != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public boolean addAll(final Collection<? extends E> c) {
+        if (!(c instanceof Enum40Set<?>)) {
+            return super.addAll(c);
+        }
+        final Enum40Set<?> set = (Enum40Set<?>) c;
+        if (set.type != type) {
+            // Must validate each element
+            return super.addAll(c);
+        }
+        final long[] other = set.words;
+        ensureWords(other.length);
+        boolean changed = false;
+        for (int i = 0; i < other.length; i++) {
+            final long before = words[i];
+            final long after = before | other[i];
+            if (before != after) {
+                words[i] = after;
+                changed = true;
+            }
+        }
+        if (changed) {
+            modCount++;
+        }
+        return changed;
+    }
+
+    @Override
+    public boolean removeAll(final Collection<?> c) {
+        if (!sameType(c)) {
+            return super.removeAll(c);
+        }
+        final long[] other = ((Enum40Set<?>) c).words;
+        final int len = Math.min(words.length, other.length);
+        boolean changed = false;
+        for (int i = 0; i < len; i++) {
+            final long before = words[i];
+            final long after = before & ~other[i];
+            if (before != after) {
+                words[i] = after;
+                changed = true;
+            }
+        }
+        if (changed) {
+            modCount++;
+        }
+        return changed;
+    }
+
+    @Override
+    public boolean retainAll(final Collection<?> c) {
+        if (!sameType(c)) {
+            return super.retainAll(c);
+        }
+        final long[] other = ((Enum40Set<?>) c).words;
+        boolean changed = false;
+        for (int i = 0; i < words.length; i++) {
+            final long before = words[i];
+            final long after = before & ((i < other.length) ? other[i] : 0L);
+            if (before != after) {
+                words[i] = after;
+                changed = true;
+            }
+        }
+        if (changed) {
+            modCount++;
+        }
+        return changed;
+    }
+
+    @Override
+    public boolean equals(final Object obj) {
+        if (!(obj instanceof Enum40Set<?>)) {
+            return super.equals(obj);
+        }
+        if (!sameType(obj)) {
+            // Different hierarchies share ordinals, but never values
+            return isEmpty() && ((Enum40Set<?>) obj).isEmpty();
+        }
+        final long[] other = ((Enum40Set<?>) obj).words;
+        final int len = Math.max(words.length, other.length);
+        for (int i = 0; i < len; i++) {
+            final long mine = (i < words.length) ? words[i] : 0L;
+            final long theirs = (i < other.length) ? other[i] : 0L;
+            if (mine != theirs) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        // Must be compatible with Set.hashCode()
+        return super.hashCode();
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public Enum40Set<E> clone() {
+        try {
+            final Enum40Set<E> result = (Enum40Set<E>) super.clone();
+            result.words = words.clone();
+            result.modCount = 0;
+            return result;
+        } catch (final CloneNotSupportedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright (C) 2013 Sebastien Diot.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.blockwithme.base40;
+
+/**
+ * <code>Enum40SwitchMap</code> maps Enum40 values to stable case numbers, so
+ * that they can be used in a plain switch/case statement.
+ *
+ * The ordinal of an Enum40 is allocated dynamically, so it is not safe to
+ * switch on it directly. The switch map is a precomputed table indexed by
+ * ordinal, built once, so mapping a value to it's case number is a single
+ * array load. This is the same technique javac uses to switch on Java enums.
+ *
+ * Usage:
+ *
+ * <code>
+ * private static final Enum40SwitchMap<TestEnum40> CASES =
+ *     new Enum40SwitchMap<>(TestEnum40.one, TestEnum40.two);
+ *
+ * switch (CASES.caseOf(value)) {
+ * case 1: // one
+ *     ...
+ * case 2: // two
+ *     ...
+ * default: // unknown, or value of a sub-type
+ *     ...
+ * }
+ * </code>
+ *
+ * @author monster
+ */
+public final class Enum40SwitchMap<E extends Enum40<E>> {
+
+    /** The case number returned for values not in the map. */
+    public static final int UNKNOWN = 0;
+
+    /** The case numbers, indexed by ordinal. */
+    private final int[] cases;
+
+    /**
+     * Creates a switch map. The first value gets case number 1, the second 2,
+     * and so on. All other values get the case number UNKNOWN.
+     */
+    @SafeVarargs
+    public Enum40SwitchMap(final E... values) {
+        int max = 0;
+        for (final E e : values) {
+            if (!e.valid()) {
+                throw new IllegalArgumentException(e
+                        + " is not a valid Enum40");
+            }
+            max = Math.max(max, e.ordinal());
+        }
+        cases = new int[max + 1];
+        for (int i = 0; i < values.length; i++) {
+            final int ordinal = values[i].ordinal();
+            if (cases[ordinal] != UNKNOWN) {
+                throw new IllegalArgumentException("Duplicate value: "
+                        + values[i]);
+            }
+            cases[ordinal] = i + 1;
+        }
+    }
+
+    /** Returns the case number of the value. */
+    public int caseOf(final E value) {
+        final int ordinal = value.ordinal();
+        return (ordinal < cases.length) ? cases[ordinal] : UNKNOWN;
+    }
+}
@@ -16,83 +16,191 @@
 package com.blockwithme.base40;
 
 import java.util.Arrays;
-import java.util.HashMap;
-import java.util.Map;
 
+import com.blockwithme.prim.BulkLongConverter;
 import com.blockwithme.prim.ClassConfiguredConverter;
-import com.blockwithme.prim.LongConverter;
 
 /**
  * <code>EnumLongConverter</code> implements a LongConverter for some enum type.
  * It is assumed that all enum constant names can be converted to unique Base40 long.
  *
+ * The conversions do not allocate: enum to long uses an array indexed by
+ * ordinal, and long to enum an open-addressing hash table. The table size is
+ * chosen, if possible, so that there are no collisions at all.
+ *
  * @author monster
  *
  * @param <E>
  */
 public class EnumLongConverter<E extends Enum<E>> extends
-        ClassConfiguredConverter<E, E> implements LongConverter<E> {
+        ClassConfiguredConverter<E, E> implements BulkLongConverter<E> {
+
+    /** Multiplier used for hashing (golden ratio). */
+    private static final long HASH = 0x9E3779B97F4A7C15L;
+
+    /** Maximum hash table size, relative to the number of constants. */
+    private static final int MAX_TABLE_FACTOR = 64;
+
+    /** The Enum to long map, indexed by ordinal. */
+    private long[] enumToLong;
+
+    /** The long values of the hash table. */
+    private long[] tableLongs;
 
-    /** The Long to Enum map. */
-    private final Map<Long, E> mapLongToEnum = new HashMap<>();
+    /** The constants of the hash table. Null means free. */
+    private E[] tableEnums;
 
-    /** The Enum to Long map. */
-    private final Map<E, Long> mapEnumToLong = new HashMap<>();
+    /** The hash table shift. */
+    private int shift;
 
     /** The character set. */
     private final CharacterSet characterSet = Enum40.getDefaultCharacterSet();
 
-    /** Initialize the maps. */
-    private void init() {
+    /** Returns the hash table index of the value, for the given shift. */
+    private static int index(final long value, final int shift) {
+        return (int) ((value * HASH) >>> shift);
+    }
+
+    /** Returns true, if the values have no collision for the given shift. */
+    private static boolean perfect(final long[] values, final int shift) {
+        final boolean[] used = new boolean[1 << (64 - shift)];
+        for (final long value : values) {
+            final int index = index(value, shift);
+            if (used[index]) {
+                return false;
+            }
+            used[index] = true;
+        }
+        return true;
+    }
+
+    /**
+     * Initialize the maps, using the given long values by ordinal, or the
+     * Base40 names of the constants if null.
+     */
+    private void init(final long[] values) {
         if (!type.isEnum()) {
             throw new IllegalArgumentException(type + " is not an Enum");
         }
         final E[] constants = type.getEnumConstants();
-        final long[] longs = new long[constants.length];
-        for (int i = 0; i < constants.length; i++) {
-            final E e = constants[i];
-            @SuppressWarnings("boxing")
-            final Long l = longs[i] = characterSet.toLong(e.name());
-            mapLongToEnum.put(l, e);
-            mapEnumToLong.put(e, l);
+        if (values == null) {
+            enumToLong = new long[constants.length];
+            for (int i = 0; i < constants.length; i++) {
+                enumToLong[i] = characterSet.toLong(constants[i].name());
+            }
+        } else if (values.length == constants.length) {
+            enumToLong = values.clone();
+        } else {
+            throw new IllegalArgumentException(type + " has "
+                    + constants.length + " constants, but got "
+                    + values.length + " values");
         }
-        Arrays.sort(longs);
-        long last = longs[0];
-        for (int i = 1; i < longs.length; i++) {
-            final long l = longs[i];
-            if (l == last) {
+        final long[] sorted = enumToLong.clone();
+        Arrays.sort(sorted);
+        for (int i = 1; i < sorted.length; i++) {
+            if (sorted[i] == sorted[i - 1]) {
                 throw new IllegalArgumentException(
                         type
                                 + " has multiple constants that map to the same base40 values");
             }
-            last = l;
+        }
+        // Smallest power of two, at least twice the number of constants.
+        int bits = 1;
+        while ((1 << bits) < 2 * constants.length) {
+            bits++;
+        }
+        final int minBits = bits;
+        while (((1 << bits) < MAX_TABLE_FACTOR * constants.length)
+                && !perfect(enumToLong, 64 - bits)) {
+            bits++;
+        }
+        if (!perfect(enumToLong, 64 - bits)) {
+            // No perfect table; fall back to the smallest with probing.
+            bits = minBits;
+        }
+        shift = 64 - bits;
+        tableLongs = new long[1 << bits];
+        tableEnums = Arrays.copyOf(constants, 1 << bits);
+        Arrays.fill(tableEnums, null);
+        final int mask = tableLongs.length - 1;
+        for (final E e : constants) {
+            final long value = enumToLong[e.ordinal()];
+            int index = index(value, shift);
+            while (tableEnums[index] != null) {
+                index = (index + 1) & mask;
+            }
+            tableLongs[index] = value;
+            tableEnums[index] = e;
         }
     }
 
     /** Constructor takes the enum type name. */
     public EnumLongConverter(final String theEnumType) {
         super(theEnumType);
-        init();
+        init(null);
     }
 
     /** Constructor takes the enum type. */
     public EnumLongConverter(final Class<E> theEnumType) {
         super(theEnumType);
-        init();
+        init(null);
+    }
+
+    /**
+     * Constructor takes the enum type, and the long values of the constants,
+     * by ordinal, instead of their Base40 names. Allows testing collisions.
+     */
+    EnumLongConverter(final Class<E> theEnumType, final long[] theValues) {
+        super(theEnumType);
+        init(theValues);
+    }
+
+    /** Returns the size of the hash table. */
+    int tableSize() {
+        return tableLongs.length;
     }
 
     /** {@inheritDoc} */
-    @SuppressWarnings("boxing")
     @Override
     public long fromObject(final E obj) {
-        return mapEnumToLong.get(obj);
+        return enumToLong[obj.ordinal()];
     }
 
     /** {@inheritDoc} */
-    @SuppressWarnings("boxing")
     @Override
     public E toObject(final long value) {
-        return mapLongToEnum.get(value);
+        final int mask = tableLongs.length - 1;
+        int index = index(value, shift);
+        while (true) {
+            final E result = tableEnums[index];
+            if ((result == null) || (tableLongs[index] == value)) {
+                return result;
+            }
+            index = (index + 1) & mask;
+        }
+    }
+
+    /* (non-Javadoc)
+     * @see com.blockwithme.prim.BulkLongConverter#fromObjects(java.lang.Object[], int, long[], int, int)
+     */
+    @Override
+    public void fromObjects(final E[] src, final int srcPos,
+            final long[] dest, final int destPos, final int length) {
+        final long[] e2l = enumToLong;
+        for (int i = 0; i < length; i++) {
+            dest[destPos + i] = e2l[src[srcPos + i].ordinal()];
+        }
+    }
+
+    /* (non-Javadoc)
+     * @see com.blockwithme.prim.BulkLongConverter#toObjects(long[], int, java.lang.Object[], int, int)
+     */
+    @Override
+    public void toObjects(final long[] src, final int srcPos, final E[] dest,
+            final int destPos, final int length) {
+        for (int i = 0; i < length; i++) {
+            dest[destPos + i] = toObject(src[srcPos + i]);
+        }
     }
 
     /* (non-Javadoc)
@@ -0,0 +1,417 @@
+/*
+ * Copyright (C) 2013 Sebastien Diot.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.blockwithme.prim;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * <code>BitPackedColumn</code> stores a column of objects, using any
+ * primitive converter, in exactly converter.bits() bits per value, packed in
+ * a long[]. A column of booleans takes 1 bit per value, and a column of a
+ * small enum, using an EnumByteConverter, takes 8 bits per value.
+ *
+ * The values are stored unsigned, in the low bits() bits of the primitive
+ * value. If bits() is smaller than the size of the primitive type, the
+ * converter must only produce values in [0, 2^bits()), otherwise an
+ * IllegalArgumentException is thrown. Float and double converters must
+ * declare their full size, since floating-point values cannot be truncated.
+ * Optionally, the values can be stored unpacked, using the full size of the
+ * primitive type.
+ *
+ * A column can be written to, and read from, a ByteBuffer.
+ *
+ * This class is not thread-safe.
+ *
+ * @author monster
+ */
+public class BitPackedColumn<E> {
+
+    /** Boolean converter kind. */
+    private static final int BOOLEAN = 0;
+    /** Byte converter kind. */
+    private static final int BYTE = 1;
+    /** Char converter kind. */
+    private static final int CHAR = 2;
+    /** Short converter kind. */
+    private static final int SHORT = 3;
+    /** Int converter kind. */
+    private static final int INT = 4;
+    /** Long converter kind. */
+    private static final int LONG = 5;
+    /** Float converter kind. */
+    private static final int FLOAT = 6;
+    /** Double converter kind. */
+    private static final int DOUBLE = 7;
+
+    /** The size of the primitive type, by kind. */
+    private static final int[] WIDTH = { 1, 8, 16, 16, 32, 64, 32, 64 };
+
+    /** Empty words. */
+    private static final long[] NO_WORDS = new long[0];
+
+    /** The converter. */
+    private final Converter<E> converter;
+
+    /** The kind of converter. */
+    private final int kind;
+
+    /** The number of bits per value. */
+    private final int bits;
+
+    /** The mask of a value. */
+    private final long mask;
+
+    /** The packed values. */
+    private long[] words;
+
+    /** The number of values. */
+    private int size;
+
+    /** Returns the kind of the converter. */
+    private static int kindOf(final Converter<?> theConverter) {
+        if (theConverter instanceof BooleanConverter<?>) {
+            return BOOLEAN;
+        }
+        if (theConverter instanceof ByteConverter<?>) {
+            return BYTE;
+        }
+        if (theConverter instanceof CharConverter<?>) {
+            return CHAR;
+        }
+        if (theConverter instanceof ShortConverter<?>) {
+            return SHORT;
+        }
+        if (theConverter instanceof IntConverter<?>) {
+            return INT;
+        }
+        if (theConverter instanceof LongConverter<?>) {
+            return LONG;
+        }
+        if (theConverter instanceof FloatConverter<?>) {
+            return FLOAT;
+        }
+        if (theConverter instanceof DoubleConverter<?>) {
+            return DOUBLE;
+        }
+        throw new IllegalArgumentException(theConverter
+                + " is not a primitive converter");
+    }
+
+    /**
+     * Returns the number of bits per value of a column using the given
+     * converter. If packed is false, the full size of the primitive type is
+     * used, instead of converter.bits(). Throws an IllegalArgumentException if
+     * the converter cannot be used for a column.
+     */
+    public static int bitsOf(final Converter<?> theConverter,
+            final boolean packed) {
+        if (theConverter == null) {
+            throw new IllegalArgumentException("theConverter is null");
+        }
+        final int kind = kindOf(theConverter);
+        final int width = WIDTH[kind];
+        final int declared = packed ? theConverter.bits() : width;
+        if (declared <= 0) {
+            throw new IllegalArgumentException(theConverter
+                    + " does not declare it's bits: " + declared);
+        }
+        final int result = Math.min(declared, width);
+        if (((kind == FLOAT) || (kind == DOUBLE)) && (result != width)) {
+            throw new IllegalArgumentException(theConverter
+                    + " cannot pack floating-point values in " + result
+                    + " bits");
+        }
+        return result;
+    }
+
+    /**
+     * Returns the number of bytes needed by writeTo(), for a column of size
+     * values, of the given bits per value.
+     */
+    public static int byteSize(final int bits, final int size) {
+        return 8 + 8 * (int) (((long) size * bits + 63) >>> 6);
+    }
+
+    /** Creates an empty column for the given primitive converter. */
+    public BitPackedColumn(final Converter<E> theConverter) {
+        this(theConverter, 0);
+    }
+
+    /**
+     * Creates an empty column for the given primitive converter,
+     * with room for initialCapacity values.
+     */
+    public BitPackedColumn(final Converter<E> theConverter,
+            final int initialCapacity) {
+        this(theConverter, initialCapacity, true);
+    }
+
+    /**
+     * Creates an empty column for the given primitive converter,
+     * with room for initialCapacity values. If packed is false, the full
+     * size of the primitive type is used, instead of converter.bits().
+     */
+    public BitPackedColumn(final Converter<E> theConverter,
+            final int initialCapacity, final boolean packed) {
+        if (initialCapacity < 0) {
+            throw new IllegalArgumentException("initialCapacity must be >= 0: "
+                    + initialCapacity);
+        }
+        bits = bitsOf(theConverter, packed);
+        kind = kindOf(theConverter);
+        mask = (bits == 64) ? -1L : (1L << bits) - 1;
+        converter = theConverter;
+        words = (initialCapacity == 0) ? NO_WORDS
+                : new long[wordsFor(initialCapacity)];
+    }
+
+    /** Returns the number of words needed for count values. */
+    private int wordsFor(final int count) {
+        return (int) (((long) count * bits + 63) >>> 6);
+    }
+
+    /** Checks the index. */
+    private void checkIndex(final int index) {
+        if ((index < 0) || (index >= size)) {
+            throw new IndexOutOfBoundsException("index=" + index + " size="
+                    + size);
+        }
+    }
+
+    /** Converts an object to it's raw (unsigned) bits. */
+    @SuppressWarnings("unchecked")
+    private long encode(final E obj) {
+        final long result;
+        switch (kind) {
+        case BOOLEAN:
+            result = ((BooleanConverter<E>) converter).fromObject(obj) ? 1L
+                    : 0L;
+            break;
+        case BYTE:
+            result = ((ByteConverter<E>) converter).fromObject(obj) & 0xFFL;
+            break;
+        case CHAR:
+            result = ((CharConverter<E>) converter).fromObject(obj);
+            break;
+        case SHORT:
+            result = ((ShortConverter<E>) converter).fromObject(obj) & 0xFFFFL;
+            break;
+        case INT:
+            result = ((IntConverter<E>) converter).fromObject(obj) & 0xFFFFFFFFL;
+            break;
+        case LONG:
+            result = ((LongConverter<E>) converter).fromObject(obj);
+            break;
+        case FLOAT:
+            result = Float.floatToRawIntBits(((FloatConverter<E>) converter)
+                    .fromObject(obj)) & 0xFFFFFFFFL;
+            break;
+        default:
+            result = Double.doubleToRawLongBits(((DoubleConverter<E>) converter)
+                    .fromObject(obj));
+            break;
+        }
+        if ((result & ~mask) != 0) {
+            throw new IllegalArgumentException(obj + " does not fit in "
+                    + bits + " bits");
+        }
+        return result;
+    }
+
+    /** Converts the raw bits to an object. */
+    @SuppressWarnings("unchecked")
+    private E decode(final long raw) {
+        switch (kind) {
+        case BOOLEAN:
+            return ((BooleanConverter<E>) converter).toObject(raw != 0);
+        case BYTE:
+            return ((ByteConverter<E>) converter).toObject((byte) raw);
+        case CHAR:
+            return ((CharConverter<E>) converter).toObject((char) raw);
+        case SHORT:
+            return ((ShortConverter<E>) converter).toObject((short) raw);
+        case INT:
+            return ((IntConverter<E>) converter).toObject((int) raw);
+        case LONG:
+            return ((LongConverter<E>) converter).toObject(raw);
+        case FLOAT:
+            return ((FloatConverter<E>) converter).toObject(Float
+                    .intBitsToFloat((int) raw));
+        default:
+            return ((DoubleConverter<E>) converter).toObject(Double
+                    .longBitsToDouble(raw));
+        }
+    }
+
+    /** Reads the raw bits at the given index, without checking it. */
+    private long read(final int index) {
+        final long bitPos = (long) index * bits;
+        final int word = (int) (bitPos >>> 6);
+        final int offset = (int) bitPos & 63;
+        long result = words[word] >>> offset;
+        if (offset + bits > 64) {
+            result |= words[word + 1] << (64 - offset);
+        }
+        return result & mask;
+    }
+
+    /** Writes the raw bits at the given index, without checking it. */
+    private void write(final int index, final long raw) {
+        final long bitPos = (long) index * bits;
+        final int word = (int) (bitPos >>> 6);
+        final int offset = (int) bitPos & 63;
+        words[word] = (words[word] & ~(mask << offset)) | (raw << offset);
+        if (offset + bits > 64) {
+            final int shift = 64 - offset;
+            words[word + 1] = (words[word + 1] & ~(mask >>> shift))
+                    | (raw >>> shift);
+        }
+    }
+
+    /** Returns the converter. */
+    public final Converter<E> converter() {
+        return converter;
+    }
+
+    /** Returns the number of bits used per value. */
+    public final int bits() {
+        return bits;
+    }
+
+    /** Returns the number of values. */
+    public final int size() {
+        return size;
+    }
+
+    /** Returns the number of bytes used to store the values. */
+    public final long memoryBytes() {
+        return words.length * 8L;
+    }
+
+    /** Returns the value at the given index. */
+    public E get(final int index) {
+        checkIndex(index);
+        return decode(read(index));
+    }
+
+    /** Returns the raw (unsigned) bits of the value at the given index. */
+    public long getRaw(final int index) {
+        checkIndex(index);
+        return read(index);
+    }
+
+    /** Replaces the value at the given index. */
+    public void set(final int index, final E obj) {
+        checkIndex(index);
+        write(index, encode(obj));
+    }
+
+    /** Appends a value at the end of the column. */
+    public void add(final E obj) {
+        final long raw = encode(obj);
+        if (size == Integer.MAX_VALUE) {
+            throw new IllegalStateException("Column is full");
+        }
+        final int required = wordsFor(size + 1);
+        if (required > words.length) {
+            words = Arrays.copyOf(words,
+                    Math.max(required, words.length + (words.length >> 1)));
+        }
+        write(size++, raw);
+    }
+
+    /**
+     * Decodes length values, starting at index, into dest,
+     * starting at destPos.
+     */
+    public void get(final int index, final E[] dest, final int destPos,
+            final int length) {
+        if ((index < 0) || (length < 0) || (index > size - length)) {
+            throw new IndexOutOfBoundsException("index=" + index + " length="
+                    + length + " size=" + size);
+        }
+        if ((destPos < 0) || (destPos > dest.length - length)) {
+            throw new IndexOutOfBoundsException("destPos=" + destPos
+                    + " length=" + length + " dest.length=" + dest.length);
+        }
+        for (int i = 0; i < length; i++) {
+            dest[destPos + i] = decode(read(index + i));
+        }
+    }
+
+    /** Removes all values. */
+    public void clear() {
+        Arrays.fill(words, 0L);
+        size = 0;
+    }
+
+    /** Releases unused memory. */
+    public void trimToSize() {
+        final int required = wordsFor(size);
+        if (required < words.length) {
+            words = (required == 0) ? NO_WORDS : Arrays.copyOf(words, required);
+        }
+    }
+
+    /** Returns the number of bytes needed by writeTo(). */
+    public final int byteSize() {
+        return byteSize(bits, size);
+    }
+
+    /**
+     * Writes the column to the buffer: the bits per value and the size as
+     * int, followed by the packed values as long.
+     */
+    public void writeTo(final ByteBuffer buffer) {
+        buffer.putInt(bits);
+        buffer.putInt(size);
+        final int count = wordsFor(size);
+        for (int i = 0; i < count; i++) {
+            buffer.putLong(words[i]);
+        }
+    }
+
+    /**
+     * Replaces the content of the column with the values read from the
+     * buffer, as written by writeTo(). The bits per value must match.
+     */
+    public void readFrom(final ByteBuffer buffer) {
+        final int readBits = buffer.getInt();
+        if (readBits != bits) {
+            throw new IllegalArgumentException("Expected " + bits
+                    + " bits per value, but got " + readBits);
+        }
+        final int readSize = buffer.getInt();
+        if (readSize < 0) {
+            throw new IllegalArgumentException("Invalid size: " + readSize);
+        }
+        final int count = wordsFor(readSize);
+        words = (count == 0) ? NO_WORDS : new long[count];
+        for (int i = 0; i < count; i++) {
+            words[i] = buffer.getLong();
+        }
+        size = readSize;
+    }
+
+    /** toString */
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "(type=" + converter.type()
+                + ", bits=" + bits + ", size=" + size + ")";
+    }
+}
@@ -0,0 +1,349 @@
+/*
+ * Copyright (C) 2013 Sebastien Diot.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.blockwithme.prim;
+
+/**
+ * <code>BulkConverters</code> converts whole arrays with any primitive
+ * converter. If the converter implements the matching Bulk*Converter
+ * interface, the conversion is delegated to it, otherwise the values are
+ * converted one at a time.
+ *
+ * Like System.arraycopy(), all bounds are checked before anything is
+ * converted, and an IndexOutOfBoundsException is thrown if they are invalid.
+ *
+ * @author monster
+ */
+public final class BulkConverters {
+
+    /** No instances. */
+    private BulkConverters() {
+        // NOP
+    }
+
+    /** Checks the bounds of an array range. */
+    private static void checkRange(final String name, final int arrayLength,
+            final int pos, final int length) {
+        if ((pos < 0) || (length < 0) || (pos > arrayLength - length)) {
+            throw new IndexOutOfBoundsException(name + ": pos=" + pos
+                    + " length=" + length + " arrayLength=" + arrayLength);
+        }
+    }
+
+    /**
+     * Converts length objects from src, starting at srcPos, to dest,
+     * starting at destPos.
+     */
+    public static <E> void fromObjects(final BooleanConverter<E> converter,
+            final E[] src, final int srcPos, final boolean[] dest,
+            final int destPos, final int length) {
+        checkRange("src", src.length, srcPos, length);
+        checkRange("dest", dest.length, destPos, length);
+        if (converter instanceof BulkBooleanConverter<?>) {
+            ((BulkBooleanConverter<E>) converter).fromObjects(src, srcPos, dest,
+                    destPos, length);
+        } else {
+            for (int i = 0; i < length; i++) {
+                dest[destPos + i] = converter.fromObject(src[srcPos + i]);
+            }
+        }
+    }
+
+    /**
+     * Converts length values from src, starting at srcPos, to dest,
+     * starting at destPos.
+     */
+    public static <E> void toObjects(final BooleanConverter<E> converter,
+            final boolean[] src, final int srcPos, final E[] dest,
+            final int destPos, final int length) {
+        checkRange("src", src.length, srcPos, length);
+        checkRange("dest", dest.length, destPos, length);
+        if (converter instanceof BulkBooleanConverter<?>) {
+            ((BulkBooleanConverter<E>) converter).toObjects(src, srcPos, dest,
+                    destPos, length);
+        } else {
+            for (int i = 0; i < length; i++) {
+                dest[destPos + i] = converter.toObject(src[srcPos + i]);
+            }
+        }
+    }
+
+    /**
+     * Converts length objects from src, starting at srcPos, to dest,
+     * starting at destPos.
+     */
+    public static <E> void fromObjects(final ByteConverter<E> converter,
+            final E[] src, final int srcPos, final byte[] dest,
+            final int destPos, final int length) {
+        checkRange("src", src.length, srcPos, length);
+        checkRange("dest", dest.length, destPos, length);
+        if (converter instanceof BulkByteConverter<?>) {
+            ((BulkByteConverter<E>) converter).fromObjects(src, srcPos, dest,
+                    destPos, length);
+        } else {
+            for (int i = 0; i < length; i++) {
+                dest[destPos + i] = converter.fromObject(src[srcPos + i]);
+            }
+        }
+    }
+
+    /**
+     * Converts length values from src, starting at srcPos, to dest,
+     * starting at destPos.
+     */
+    public static <E> void toObjects(final ByteConverter<E> converter,
+            final byte[] src, final int srcPos, final E[] dest,
+            final int destPos, final int length) {
+        checkRange("src", src.length, srcPos, length);
+        checkRange("dest", dest.length, destPos, length);
+        if (converter instanceof BulkByteConverter<?>) {
+            ((BulkByteConverter<E>) converter).toObjects(src, srcPos, dest,
+                    destPos, length);
+        } else {
+            for (int i = 0; i < length; i++) {
+                dest[destPos + i] = converter.toObject(src[srcPos + i]);
+            }
+        }
+    }
+
+    /**
+     * Converts length objects from src, starting at srcPos, to dest,
+     * starting at destPos.
+     */
+    public static <E> void fromObjects(final CharConverter<E> converter,
+            final E[] src, final int srcPos, final char[] dest,
+            final int destPos, final int length) {
+        checkRange("src", src.length, srcPos, length);
+        checkRange("dest", dest.length, destPos, length);
+        if (converter instanceof BulkCharConverter<?>) {
+            ((BulkCharConverter<E>) converter).fromObjects(src, srcPos, dest,
+                    destPos, length);
+        } else {
+            for (int i = 0; i < length; i++) {
+                dest[destPos + i] = converter.fromObject(src[srcPos + i]);
+            }
+        }
+    }
+
+    /**
+     * Converts length values from src, starting at srcPos, to dest,
+     * starting at destPos.
+     */
+    public static <E> void toObjects(final CharConverter<E> converter,
+            final char[] src, final int srcPos, final E[] dest,
+            final int destPos, final int length) {
+        checkRange("src", src.length, srcPos, length);
+        checkRange("dest", dest.length, destPos, length);
+        if (converter instanceof BulkCharConverter<?>) {
+            ((BulkCharConverter<E>) converter).toObjects(src, srcPos, dest,
+                    destPos, length);
+        } else {
+            for (int i = 0; i < length; i++) {
+                dest[destPos + i] = converter.toObject(src[srcPos + i]);
+            }
+        }
+    }
+
+    /**
+     * Converts length objects from src, starting at srcPos, to dest,
+     * starting at destPos.
+     */
+    public static <E> void fromObjects(final ShortConverter<E> converter,
+            final E[] src, final int srcPos, final short[] dest,
+            final int destPos, final int length) {
+        checkRange("src", src.length, srcPos, length);
+        checkRange("dest", dest.length, destPos, length);
+        if (converter instanceof BulkShortConverter<?>) {
+            ((BulkShortConverter<E>) converter).fromObjects(src, srcPos, dest,
+                    destPos, length);
+        } else {
+            for (int i = 0; i < length; i++) {
+                dest[destPos + i] = converter.fromObject(src[srcPos + i]);
+            }
+        }
+    }
+
+    /**
+     * Converts length values from src, starting at srcPos, to dest,
+     * starting at destPos.
+     */
+    public static <E> void toObjects(final ShortConverter<E> converter,
+            final short[] src, final int srcPos, final E[] dest,
+            final int destPos, final int length) {
+        checkRange("src", src.length, srcPos, length);
+        checkRange("dest", dest.length, destPos, length);
+        if (converter instanceof BulkShortConverter<?>) {
+            ((BulkShortConverter<E>) converter).toObjects(src, srcPos, dest,
+                    destPos, length);
+        } else {
+            for (int i = 0; i < length; i++) {
+                dest[destPos + i] = converter.toObject(src[srcPos + i]);
+            }
+        }
+    }
+
+    /**
+     * Converts length objects from src, starting at srcPos, to dest,
+     * starting at destPos.
+     */
+    public static <E> void fromObjects(final IntConverter<E> converter,
+            final E[] src, final int srcPos, final int[] dest,
+            final int destPos, final int length) {
+        checkRange("src", src.length, srcPos, length);
+        checkRange("dest", dest.length, destPos, length);
+        if (converter instanceof BulkIntConverter<?>) {
+            ((BulkIntConverter<E>) converter).fromObjects(src, srcPos, dest,
+                    destPos, length);
+        } else {
+            for (int i = 0; i < length; i++) {
+                dest[destPos + i] = converter.fromObject(src[srcPos + i]);
+            }
+        }
+    }
+
+    /**
+     * Converts length values from src, starting at srcPos, to dest,
+     * starting at destPos.
+     */
+    public static <E> void toObjects(final IntConverter<E> converter,
+            final int[] src, final int srcPos, final E[] dest,
+            final int destPos, final int length) {
+        checkRange("src", src.length, srcPos, length);
+        checkRange("dest", dest.length, destPos, length);
+        if (converter instanceof BulkIntConverter<?>) {
+            ((BulkIntConverter<E>) converter).toObjects(src, srcPos, dest,
+                    destPos, length);
+        } else {
+            for (int i = 0; i < length; i++) {
+                dest[destPos + i] = converter.toObject(src[srcPos + i]);
+            }
+        }
+    }
+
+    /**
+     * Converts length objects from src, starting at srcPos, to dest,
+     * starting at destPos.
+     */
+    public static <E> void fromObjects(final LongConverter<E> converter,
+            final E[] src, final int srcPos, final long[] dest,
+            final int destPos, final int length) {
+        checkRange("src", src.length, srcPos, length);
+        checkRange("dest", dest.length, destPos, length);
+        if (converter instanceof BulkLongConverter<?>) {
+            ((BulkLongConverter<E>) converter).fromObjects(src, srcPos, dest,
+                    destPos, length);
+        } else {
+            for (int i = 0; i < length; i++) {
+                dest[destPos + i] = converter.fromObject(src[srcPos + i]);
+            }
+        }
+    }
+
+    /**
+     * Converts length values from src, starting at srcPos, to dest,
+     * starting at destPos.
+     */
+    public static <E> void toObjects(final LongConverter<E> converter,
+            final long[] src, final int srcPos, final E[] dest,
+            final int destPos, final int length) {
+        checkRange("src", src.length, srcPos, length);
+        checkRange("dest", dest.length, destPos, length);
+        if (converter instanceof BulkLongConverter<?>) {
+            ((BulkLongConverter<E>) converter).toObjects(src, srcPos, dest,
+                    destPos, length);
+        } else {
+            for (int i = 0; i < length; i++) {
+                dest[destPos + i] = converter.toObject(src[srcPos + i]);
+            }
+        }
+    }
+
+    /**
+     * Converts length objects from src, starting at srcPos, to dest,
+     * starting at destPos.
+     */
+    public static <E> void fromObjects(final FloatConverter<E> converter,
+            final E[] src, final int srcPos, final float[] dest,
+            final int destPos, final int length) {
+        checkRange("src", src.length, srcPos, length);
+        checkRange("dest", dest.length, destPos, length);
+        if (converter instanceof BulkFloatConverter<?>) {
+            ((BulkFloatConverter<E>) converter).fromObjects(src, srcPos, dest,
+                    destPos, length);
+        } else {
+            for (int i = 0; i < length; i++) {
+                dest[destPos + i] = converter.fromObject(src[srcPos + i]);
+            }
+        }
+    }
+
+    /**
+     * Converts length values from src, starting at srcPos, to dest,
+     * starting at destPos.
+     */
+    public static <E> void toObjects(final FloatConverter<E> converter,
+            final float[] src, final int srcPos, final E[] dest,
+            final int destPos, final int length) {
+        checkRange("src", src.length, srcPos, length);
+        checkRange("dest", dest.length, destPos, length);
+        if (converter instanceof BulkFloatConverter<?>) {
+            ((BulkFloatConverter<E>) converter).toObjects(src, srcPos, dest,
+                    destPos, length);
+        } else {
+            for (int i = 0; i < length; i++) {
+                dest[destPos + i] = converter.toObject(src[srcPos + i]);
+            }
+        }
+    }
+
+    /**
+     * Converts length objects from src, starting at srcPos, to dest,
+     * starting at destPos.
+     */
+    public static <E> void fromObjects(final DoubleConverter<E> converter,
+            final E[] src, final int srcPos, final double[] dest,
+            final int destPos, final int length) {
+        checkRange("src", src.length, srcPos, length);
+        checkRange("dest", dest.length, destPos, length);
+        if (converter instanceof BulkDoubleConverter<?>) {
+            ((BulkDoubleConverter<E>) converter).fromObjects(src, srcPos, dest,
+                    destPos, length);
+        } else {
+            for (int i = 0; i < length; i++) {
+                dest[destPos + i] = converter.fromObject(src[srcPos + i]);
+            }
+        }
+    }
+
+    /**
+     * Converts length values from src, starting at srcPos, to dest,
+     * starting at destPos.
+     */
+    public static <E> void toObjects(final DoubleConverter<E> converter,
+            final double[] src, final int srcPos, final E[] dest,
+            final int destPos, final int length) {
+        checkRange("src", src.length, srcPos, length);
+        checkRange("dest", dest.length, destPos, length);
+        if (converter instanceof BulkDoubleConverter<?>) {
+            ((BulkDoubleConverter<E>) converter).toObjects(src, srcPos, dest,
+                    destPos, length);
+        } else {
+            for (int i = 0; i < length; i++) {
+                dest[destPos + i] = converter.toObject(src[srcPos + i]);
+            }
+        }
+    }
+}
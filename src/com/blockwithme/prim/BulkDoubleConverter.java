@@ -0,0 +1,41 @@
+/*
+ * Copyright (C) 2013 Sebastien Diot.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.blockwithme.prim;
+
+/**
+ * <code>BulkDoubleConverter</code> is a DoubleConverter that can also convert
+ * whole arrays at once, typically in a tighter loop than calling
+ * fromObject()/toObject() for each value.
+ *
+ * Implementing it is optional; use BulkConverters to convert arrays with any
+ * DoubleConverter. The array bounds are validated by BulkConverters.
+ */
+public interface BulkDoubleConverter<E> extends DoubleConverter<E> {
+    /**
+     * Converts length objects from src, starting at srcPos, to dest,
+     * starting at destPos.
+     */
+    void fromObjects(final E[] src, final int srcPos, final double[] dest,
+            final int destPos, final int length);
+
+    /**
+     * Converts length values from src, starting at srcPos, to dest,
+     * starting at destPos.
+     */
+    void toObjects(final double[] src, final int srcPos, final E[] dest,
+            final int destPos, final int length);
+}
@@ -26,6 +26,12 @@ package com.blockwithme.prim;
 public abstract class ClassConfiguredConverter<E, C> implements
         ConfiguredConverter<E> {
 
+    /**
+     * The ClassLoader used to resolve types by name, while a ConverterFactory
+     * creates a converter. Null otherwise.
+     */
+    static final ThreadLocal<ClassLoader> LOADER = new ThreadLocal<>();
+
     /** The type. */
     protected final Class<C> type;
 
@@ -44,7 +50,9 @@ public abstract class ClassConfiguredConverter<E, C> implements
             throw new IllegalArgumentException(theType + " is null");
         }
         try {
-            type = (Class<C>) Class.forName(theType);
+            final ClassLoader loader = LOADER.get();
+            type = (Class<C>) ((loader == null) ? Class.forName(theType)
+                    : Class.forName(theType, true, loader));
         } catch (final ClassNotFoundException e) {
             throw new RuntimeException(theType, e);
         }
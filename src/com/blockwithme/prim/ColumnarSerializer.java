@@ -0,0 +1,242 @@
+/*
+ * Copyright (C) 2013 Sebastien Diot.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.blockwithme.prim;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <code>ColumnarSerializer</code> writes lists of objects to a ByteBuffer,
+ * one column per field, and reads them back.
+ *
+ * The converter of each field is looked up once, in a ConverterRegistry,
+ * using the field type (boxed, for primitive fields). Primitive fields
+ * without a registered converter use the default converter of their type.
+ * Each column is then stored as a BitPackedColumn, either bit-packed
+ * according to Converter.bits(), or using the full size of the primitive
+ * type.
+ *
+ * The format is: the number of columns and the number of objects as int,
+ * followed by the columns, as written by BitPackedColumn.writeTo().
+ *
+ * Reading requires a no-arg constructor. This class is thread-safe.
+ *
+ * @author monster
+ */
+public class ColumnarSerializer<T> {
+
+    /** The default converters of the primitive types and their wrappers. */
+    private static final Map<Class<?>, Converter<?>> DEFAULT_CONVERTERS;
+
+    static {
+        final Map<Class<?>, Converter<?>> map = new HashMap<>();
+        map.put(boolean.class, BooleanConverter.DEFAULT);
+        map.put(byte.class, ByteConverter.DEFAULT);
+        map.put(char.class, CharConverter.DEFAULT);
+        map.put(short.class, ShortConverter.DEFAULT);
+        map.put(int.class, IntConverter.DEFAULT);
+        map.put(long.class, LongConverter.DEFAULT);
+        map.put(float.class, FloatConverter.DEFAULT);
+        map.put(double.class, DoubleConverter.DEFAULT);
+        for (final Converter<?> c : new ArrayList<>(map.values())) {
+            map.put(c.type(), c);
+        }
+        DEFAULT_CONVERTERS = Collections.unmodifiableMap(map);
+    }
+
+    /** The object type. */
+    private final Class<T> type;
+
+    /** The no-arg constructor. */
+    private final Constructor<T> constructor;
+
+    /** The fields. */
+    private final Field[] fields;
+
+    /** The converter of each field. */
+    private final Converter<?>[] converters;
+
+    /** Are the columns bit-packed? */
+    private final boolean bitPacked;
+
+    /** The bits per value of each column. */
+    private final int[] bits;
+
+    /** Returns the boxed type of a primitive type. */
+    private static Class<?> boxed(final Class<?> fieldType) {
+        if (fieldType.isPrimitive()) {
+            return DEFAULT_CONVERTERS.get(fieldType).type();
+        }
+        return fieldType;
+    }
+
+    /** Finds a field, in the type or it's super-classes. */
+    private static Field findField(final Class<?> type, final String name) {
+        for (Class<?> c = type; c != null; c = c.getSuperclass()) {
+            try {
+                final Field result = c.getDeclaredField(name);
+                if (Modifier.isStatic(result.getModifiers())) {
+                    throw new IllegalArgumentException(result + " is static");
+                }
+                result.setAccessible(true);
+                return result;
+            } catch (final NoSuchFieldException e) {
+                // Try super-class
+            }
+        }
+        throw new IllegalArgumentException("Field " + name + " not found in "
+                + type);
+    }
+
+    /**
+     * Creates a serializer for the given type and fields, using the
+     * converters of the given registry.
+     */
+    public ColumnarSerializer(final Class<T> theType,
+            final ConverterRegistry theRegistry, final boolean theBitPacked,
+            final String... theFieldNames) {
+        if (theType == null) {
+            throw new IllegalArgumentException("theType is null");
+        }
+        if (theRegistry == null) {
+            throw new IllegalArgumentException("theRegistry is null");
+        }
+        if ((theFieldNames == null) || (theFieldNames.length == 0)) {
+            throw new IllegalArgumentException("theFieldNames is empty");
+        }
+        type = theType;
+        bitPacked = theBitPacked;
+        fields = new Field[theFieldNames.length];
+        converters = new Converter<?>[theFieldNames.length];
+        bits = new int[theFieldNames.length];
+        for (int i = 0; i < fields.length; i++) {
+            final Field f = findField(theType, theFieldNames[i]);
+            final Class<?> fieldType = boxed(f.getType());
+            Object converter = theRegistry.lookup(fieldType);
+            if (converter == null) {
+                converter = DEFAULT_CONVERTERS.get(fieldType);
+                if (converter == null) {
+                    throw new IllegalArgumentException("No converter for "
+                            + f);
+                }
+            }
+            if (!(converter instanceof Converter<?>)) {
+                throw new IllegalArgumentException(converter
+                        + " is not a converter, for " + f);
+            }
+            fields[i] = f;
+            converters[i] = (Converter<?>) converter;
+            // Rejects non-primitive converters now, rather than on write
+            bits[i] = BitPackedColumn.bitsOf(converters[i], bitPacked);
+        }
+        Constructor<T> ctor = null;
+        try {
+            ctor = theType.getDeclaredConstructor();
+            ctor.setAccessible(true);
+        } catch (final NoSuchMethodException e) {
+            // Can only write
+        }
+        constructor = ctor;
+    }
+
+    /** Creates a column for the given field. */
+    @SuppressWarnings("unchecked")
+    private BitPackedColumn<Object> column(final int field, final int capacity) {
+        return new BitPackedColumn<Object>(
+                (Converter<Object>) converters[field], capacity, bitPacked);
+    }
+
+    /** Returns the object type. */
+    public final Class<T> type() {
+        return type;
+    }
+
+    /** Returns the number of bytes needed to write the objects. */
+    public int byteSize(final List<? extends T> objects) {
+        int result = 8;
+        final int count = objects.size();
+        for (final int b : bits) {
+            result += BitPackedColumn.byteSize(b, count);
+        }
+        return result;
+    }
+
+    /** Writes the objects to the buffer. */
+    public void write(final List<? extends T> objects, final ByteBuffer buffer) {
+        final int count = objects.size();
+        buffer.putInt(fields.length);
+        buffer.putInt(count);
+        try {
+            for (int f = 0; f < fields.length; f++) {
+                final Field field = fields[f];
+                final BitPackedColumn<Object> col = column(f, count);
+                for (int i = 0; i < count; i++) {
+                    col.add(field.get(objects.get(i)));
+                }
+                col.writeTo(buffer);
+            }
+        } catch (final IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /** Reads objects from the buffer, as written by write(). */
+    public List<T> read(final ByteBuffer buffer) {
+        if (constructor == null) {
+            throw new IllegalStateException(type
+                    + " has no no-arg constructor");
+        }
+        final int columns = buffer.getInt();
+        if (columns != fields.length) {
+            throw new IllegalArgumentException("Expected " + fields.length
+                    + " columns, but got " + columns);
+        }
+        final int count = buffer.getInt();
+        if (count < 0) {
+            throw new IllegalArgumentException("Invalid count: " + count);
+        }
+        final List<T> result = new ArrayList<>(count);
+        try {
+            for (int i = 0; i < count; i++) {
+                result.add(constructor.newInstance());
+            }
+            for (int f = 0; f < fields.length; f++) {
+                final Field field = fields[f];
+                final BitPackedColumn<Object> col = column(f, 0);
+                col.readFrom(buffer);
+                if (col.size() != count) {
+                    throw new IllegalArgumentException("Column " + field
+                            + " has " + col.size() + " values instead of "
+                            + count);
+                }
+                for (int i = 0; i < count; i++) {
+                    field.set(result.get(i), col.get(i));
+                }
+            }
+        } catch (final ReflectiveOperationException e) {
+            throw new IllegalStateException(e);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,202 @@
+/*
+ * Copyright (C) 2013 Sebastien Diot.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.blockwithme.prim;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * <code>ConverterFactory</code> rebuilds converters from their class name and
+ * configuration, as persisted in schemas, and caches them by that pair, so
+ * that equal converters are shared rather than recreated.
+ *
+ * Converters without configuration are created with their no-arg
+ * constructor, or are one of the Converter.DEFAULTS. ConfiguredConverters are
+ * created with their String constructor. Classes are resolved through the
+ * ClassLoader given to the factory, including the types named in the
+ * configuration of ClassConfiguredConverters.
+ *
+ * Converters must be immutable, as they are shared. This class is
+ * thread-safe.
+ *
+ * @author monster
+ */
+public class ConverterFactory {
+
+    /** Cache key. */
+    private static final class Key {
+        /** The converter class name. */
+        final String className;
+        /** The configuration, or null. */
+        final String configuration;
+        /** The hash code. */
+        private final int hashCode;
+
+        /** Constructor */
+        Key(final String theClassName, final String theConfiguration) {
+            className = theClassName;
+            configuration = theConfiguration;
+            hashCode = className.hashCode() * 31
+                    + ((configuration == null) ? 0 : configuration.hashCode());
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            final Key other = (Key) obj;
+            return className.equals(other.className)
+                    && ((configuration == null) ? (other.configuration == null)
+                            : configuration.equals(other.configuration));
+        }
+    }
+
+    /** The ClassLoader. */
+    private final ClassLoader classLoader;
+
+    /** The converters. */
+    private final ConcurrentHashMap<Key, Converter<?>> converters = new ConcurrentHashMap<>();
+
+    /** The converter classes. */
+    private final ConcurrentHashMap<String, Class<?>> classes = new ConcurrentHashMap<>();
+
+    /** Creates a factory, using the given ClassLoader. */
+    public ConverterFactory(final ClassLoader theClassLoader) {
+        if (theClassLoader == null) {
+            throw new IllegalArgumentException("theClassLoader is null");
+        }
+        classLoader = theClassLoader;
+    }
+
+    /** Creates a factory, using the ClassLoader of this class. */
+    public ConverterFactory() {
+        this(ConverterFactory.class.getClassLoader());
+    }
+
+    /**
+     * Returns the configuration of a converter, to be persisted with it's
+     * class name, or null if it has none.
+     */
+    public static String configurationOf(final Converter<?> converter) {
+        return (converter instanceof ConfiguredConverter<?>) ? ((ConfiguredConverter<?>) converter)
+                .getConfiguration() : null;
+    }
+
+    /** Returns the ClassLoader. */
+    public final ClassLoader classLoader() {
+        return classLoader;
+    }
+
+    /** Returns the number of cached converters. */
+    public int size() {
+        return converters.size();
+    }
+
+    /** Removes all cached converters and classes. */
+    public void clear() {
+        converters.clear();
+        classes.clear();
+    }
+
+    /**
+     * Returns the converter with the given class name and configuration
+     * (null if none), creating it if needed.
+     * @throws IllegalArgumentException if the converter cannot be created.
+     */
+    public Converter<?> get(final String className, final String configuration) {
+        if (className == null) {
+            throw new IllegalArgumentException("className is null");
+        }
+        final Key key = new Key(className, configuration);
+        Converter<?> result = converters.get(key);
+        if (result == null) {
+            result = create(className, configuration);
+            final Converter<?> old = converters.putIfAbsent(key, result);
+            if (old != null) {
+                result = old;
+            }
+        }
+        return result;
+    }
+
+    /** Returns the converter of the same class and configuration. */
+    public Converter<?> get(final Converter<?> converter) {
+        return get(converter.getClass().getName(), configurationOf(converter));
+    }
+
+    /** Resolves a converter class. */
+    private Class<?> converterClass(final String className) {
+        Class<?> result = classes.get(className);
+        if (result == null) {
+            try {
+                result = Class.forName(className, true, classLoader);
+            } catch (final ClassNotFoundException e) {
+                throw new IllegalArgumentException("Converter class "
+                        + className + " not found", e);
+            }
+            if (!Converter.class.isAssignableFrom(result)) {
+                throw new IllegalArgumentException(className
+                        + " is not a Converter");
+            }
+            classes.put(className, result);
+        }
+        return result;
+    }
+
+    /** Creates a converter. */
+    private Converter<?> create(final String className,
+            final String configuration) {
+        if (configuration == null) {
+            final Converter<?> result = Converter.DEFAULTS.get(className);
+            if (result != null) {
+                return result;
+            }
+        }
+        final Class<?> type = converterClass(className);
+        final ClassLoader before = ClassConfiguredConverter.LOADER.get();
+        ClassConfiguredConverter.LOADER.set(classLoader);
+        try {
+            if (configuration == null) {
+                return (Converter<?>) type.getConstructor().newInstance();
+            }
+            if (!ConfiguredConverter.class.isAssignableFrom(type)) {
+                throw new IllegalArgumentException(className
+                        + " is not a ConfiguredConverter");
+            }
+            return (Converter<?>) type.getConstructor(String.class)
+                    .newInstance(configuration);
+        } catch (final InvocationTargetException e) {
+            throw new IllegalArgumentException("Cannot create " + className
+                    + " with configuration " + configuration, e.getCause());
+        } catch (final ReflectiveOperationException e) {
+            throw new IllegalArgumentException("Cannot create " + className
+                    + " with configuration " + configuration, e);
+        } finally {
+            if (before == null) {
+                ClassConfiguredConverter.LOADER.remove();
+            } else {
+                ClassConfiguredConverter.LOADER.set(before);
+            }
+        }
+    }
+}
@@ -16,6 +16,13 @@
 
 package com.blockwithme.prim;
 
+import java.util.ArrayDeque;
+import java.util.HashSet;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
 import com.blockwithme.util.ProviderFactory;
 import com.blockwithme.util.RegistryImpl;
 
@@ -23,9 +30,72 @@ import com.blockwithme.util.RegistryImpl;
  * <code>ConverterRegistry</code> is a registry for primitive converters.
  *
  * It is thread-safe, and can delegate/fallback to another registry.
+ *
+ * Lookups are cached, including negative results, so that reads do not lock.
+ * The caches of all registries are invalidated whenever any converter is
+ * registered, since a registry also sees the converters of it's parents.
  */
 public class ConverterRegistry {
 
+    /** Marks a negative result in the caches. */
+    private static final Object NONE = new Object();
+
+    /** Index of the boolean converters in KINDS. */
+    private static final int BOOLEAN = 0;
+
+    /** Index of the byte converters in KINDS. */
+    private static final int BYTE = 1;
+
+    /** Index of the char converters in KINDS. */
+    private static final int CHAR = 2;
+
+    /** Index of the short converters in KINDS. */
+    private static final int SHORT = 3;
+
+    /** Index of the int converters in KINDS. */
+    private static final int INT = 4;
+
+    /** Index of the long converters in KINDS. */
+    private static final int LONG = 5;
+
+    /** Index of the float converters in KINDS. */
+    private static final int FLOAT = 6;
+
+    /** Index of the double converters in KINDS. */
+    private static final int DOUBLE = 7;
+
+    /** The primitive converter interfaces, indexing the typed caches. */
+    private static final Class<?>[] KINDS = { BooleanConverter.class,
+            ByteConverter.class, CharConverter.class, ShortConverter.class,
+            IntConverter.class, LongConverter.class, FloatConverter.class,
+            DoubleConverter.class };
+
+    /** Incremented on every registration, in any registry. */
+    private static final AtomicLong GENERATION = new AtomicLong();
+
+    /** The lookup caches, valid for one generation. */
+    private static final class Cache {
+        /** The generation of the cache. */
+        final long generation;
+
+        /** Results of find(). */
+        final ConcurrentHashMap<Class<?>, Object> exact = new ConcurrentHashMap<>();
+
+        /** Results of lookup(). */
+        final ConcurrentHashMap<Class<?>, Object> hierarchy = new ConcurrentHashMap<>();
+
+        /** Results of the typed find methods, one table per KINDS entry. */
+        final ConcurrentHashMap<?, ?>[] typed = new ConcurrentHashMap<?, ?>[KINDS.length];
+
+        /** Constructor */
+        Cache(final long theGeneration) {
+            generation = theGeneration;
+            for (int i = 0; i < typed.length; i++) {
+                typed[i] = new ConcurrentHashMap<Class<?>, Object>();
+            }
+        }
+    }
+
     /** Returns the global registry. */
     public static final ConverterRegistry instance() {
         return ProviderFactory.providerFor(ConverterRegistry.class,
@@ -35,6 +105,9 @@ public class ConverterRegistry {
     /** Registered converters. */
     private final RegistryImpl<Class<?>, Object> registry;
 
+    /** The current lookup cache. */
+    private volatile Cache cache = new Cache(GENERATION.get());
+
     /** Creates a new ConverterRegistry, without a parent. */
     public ConverterRegistry() {
         registry = new RegistryImpl<>(null);
@@ -47,9 +120,159 @@ public class ConverterRegistry {
         registry = new RegistryImpl<>(parent);
     }
 
+    /** Returns the current cache, replacing it if it is out of date. */
+    private Cache cache() {
+        final long generation = GENERATION.get();
+        Cache result = cache;
+        if (result.generation != generation) {
+            result = new Cache(generation);
+            cache = result;
+        }
+        return result;
+    }
+
+    /** Registers the converter, and invalidates all caches. */
+    private Object doRegister(final Class<?> type, final Object converter) {
+        final Object result = registry.register(type, converter, true);
+        GENERATION.incrementAndGet();
+        return result;
+    }
+
     /** Returns a registered converter, if any. */
     public Object find(final Class<?> type) {
-        return registry.find(type);
+        if (type == null) {
+            return null;
+        }
+        final Cache c = cache();
+        final Object cached = c.exact.get(type);
+        if (cached != null) {
+            return (cached == NONE) ? null : cached;
+        }
+        final Object result = registry.find(type);
+        c.exact.put(type, (result == null) ? NONE : result);
+        return result;
+    }
+
+    /**
+     * Returns the converter registered for the type, if it is of the
+     * converter interface KINDS[kind], otherwise null.
+     */
+    @SuppressWarnings("unchecked")
+    private Object findTyped(final int kind, final Class<?> type) {
+        if (type == null) {
+            return null;
+        }
+        final ConcurrentHashMap<Class<?>, Object> table = (ConcurrentHashMap<Class<?>, Object>) cache().typed[kind];
+        final Object cached = table.get(type);
+        if (cached != null) {
+            return (cached == NONE) ? null : cached;
+        }
+        final Object found = find(type);
+        final Object result = KINDS[kind].isInstance(found) ? found : null;
+        table.put(type, (result == null) ? NONE : result);
+        return result;
+    }
+
+    /** Returns the boolean converter registered for the type, if any. */
+    @SuppressWarnings("unchecked")
+    public <E> BooleanConverter<E> findBoolean(final Class<E> type) {
+        return (BooleanConverter<E>) findTyped(BOOLEAN, type);
+    }
+
+    /** Returns the byte converter registered for the type, if any. */
+    @SuppressWarnings("unchecked")
+    public <E> ByteConverter<E> findByte(final Class<E> type) {
+        return (ByteConverter<E>) findTyped(BYTE, type);
+    }
+
+    /** Returns the char converter registered for the type, if any. */
+    @SuppressWarnings("unchecked")
+    public <E> CharConverter<E> findChar(final Class<E> type) {
+        return (CharConverter<E>) findTyped(CHAR, type);
+    }
+
+    /** Returns the short converter registered for the type, if any. */
+    @SuppressWarnings("unchecked")
+    public <E> ShortConverter<E> findShort(final Class<E> type) {
+        return (ShortConverter<E>) findTyped(SHORT, type);
+    }
+
+    /** Returns the int converter registered for the type, if any. */
+    @SuppressWarnings("unchecked")
+    public <E> IntConverter<E> findInt(final Class<E> type) {
+        return (IntConverter<E>) findTyped(INT, type);
+    }
+
+    /** Returns the long converter registered for the type, if any. */
+    @SuppressWarnings("unchecked")
+    public <E> LongConverter<E> findLong(final Class<E> type) {
+        return (LongConverter<E>) findTyped(LONG, type);
+    }
+
+    /** Returns the float converter registered for the type, if any. */
+    @SuppressWarnings("unchecked")
+    public <E> FloatConverter<E> findFloat(final Class<E> type) {
+        return (FloatConverter<E>) findTyped(FLOAT, type);
+    }
+
+    /** Returns the double converter registered for the type, if any. */
+    @SuppressWarnings("unchecked")
+    public <E> DoubleConverter<E> findDouble(final Class<E> type) {
+        return (DoubleConverter<E>) findTyped(DOUBLE, type);
+    }
+
+    /**
+     * Returns the converter registered for the type or, failing that, for the
+     * nearest super-class, or failing that, for the first interface found in
+     * a breadth-first search of the type hierarchy. Returns null if none.
+     *
+     * Note that the returned converter might produce instances of the
+     * super-type, rather than of the requested type.
+     */
+    public Object lookup(final Class<?> type) {
+        if (type == null) {
+            return null;
+        }
+        final Cache c = cache();
+        final Object cached = c.hierarchy.get(type);
+        if (cached != null) {
+            return (cached == NONE) ? null : cached;
+        }
+        final Object result = resolve(type);
+        c.hierarchy.put(type, (result == null) ? NONE : result);
+        return result;
+    }
+
+    /** Searches the type hierarchy for a converter. */
+    private Object resolve(final Class<?> type) {
+        for (Class<?> c = type; c != null; c = c.getSuperclass()) {
+            final Object result = find(c);
+            if (result != null) {
+                return result;
+            }
+        }
+        final Set<Class<?>> seen = new HashSet<>();
+        final Queue<Class<?>> todo = new ArrayDeque<>();
+        for (Class<?> c = type; c != null; c = c.getSuperclass()) {
+            for (final Class<?> i : c.getInterfaces()) {
+                if (seen.add(i)) {
+                    todo.add(i);
+                }
+            }
+        }
+        while (!todo.isEmpty()) {
+            final Class<?> i = todo.remove();
+            final Object result = find(i);
+            if (result != null) {
+                return result;
+            }
+            for (final Class<?> sup : i.getInterfaces()) {
+                if (seen.add(sup)) {
+                    todo.add(sup);
+                }
+            }
+        }
+        return null;
     }
 
     /**
@@ -58,7 +281,7 @@ public class ConverterRegistry {
      */
     public <E> Object register(final BooleanConverter<E> converter,
             final Class<E> type) {
-        return registry.register(type, converter, true);
+        return doRegister(type, converter);
     }
 
     /**
@@ -67,7 +290,7 @@ public class ConverterRegistry {
      */
     public <E> Object register(final ByteConverter<E> converter,
             final Class<E> type) {
-        return registry.register(type, converter, true);
+        return doRegister(type, converter);
     }
 
     /**
@@ -76,7 +299,7 @@ public class ConverterRegistry {
      */
     public <E> Object register(final CharConverter<E> converter,
             final Class<E> type) {
-        return registry.register(type, converter, true);
+        return doRegister(type, converter);
     }
 
     /**
@@ -85,7 +308,7 @@ public class ConverterRegistry {
      */
     public <E> Object register(final ShortConverter<E> converter,
             final Class<E> type) {
-        return registry.register(type, converter, true);
+        return doRegister(type, converter);
     }
 
     /**
@@ -94,7 +317,7 @@ public class ConverterRegistry {
      */
     public <E> Object register(final IntConverter<E> converter,
             final Class<E> type) {
-        return registry.register(type, converter, true);
+        return doRegister(type, converter);
     }
 
     /**
@@ -103,7 +326,7 @@ public class ConverterRegistry {
      */
     public <E> Object register(final LongConverter<E> converter,
             final Class<E> type) {
-        return registry.register(type, converter, true);
+        return doRegister(type, converter);
     }
 
     /**
@@ -112,7 +335,7 @@ public class ConverterRegistry {
      */
     public <E> Object register(final FloatConverter<E> converter,
             final Class<E> type) {
-        return registry.register(type, converter, true);
+        return doRegister(type, converter);
     }
 
     /**
@@ -121,6 +344,6 @@ public class ConverterRegistry {
      */
     public <E> Object register(final DoubleConverter<E> converter,
             final Class<E> type) {
-        return registry.register(type, converter, true);
+        return doRegister(type, converter);
     }
-}
\ No newline at end of file
+}
\ No newline at end of file
@@ -24,7 +24,7 @@ package com.blockwithme.prim;
  * @param <E>
  */
 public class EnumByteConverter<E extends Enum<E>> extends
-        ClassConfiguredConverter<E, E> implements ByteConverter<E> {
+        ClassConfiguredConverter<E, E> implements BulkByteConverter<E> {
 
     /** The Enum constants. */
     private final E[] constants;
@@ -64,6 +64,29 @@ public class EnumByteConverter<E extends Enum<E>> extends
         return constants[ordinal];
     }
 
+    /* (non-Javadoc)
+     * @see com.blockwithme.prim.BulkByteConverter#fromObjects(java.lang.Object[], int, byte[], int, int)
+     */
+    @Override
+    public void fromObjects(final E[] src, final int srcPos,
+            final byte[] dest, final int destPos, final int length) {
+        for (int i = 0; i < length; i++) {
+            dest[destPos + i] = (byte) src[srcPos + i].ordinal();
+        }
+    }
+
+    /* (non-Javadoc)
+     * @see com.blockwithme.prim.BulkByteConverter#toObjects(byte[], int, java.lang.Object[], int, int)
+     */
+    @Override
+    public void toObjects(final byte[] src, final int srcPos, final E[] dest,
+            final int destPos, final int length) {
+        final E[] values = constants;
+        for (int i = 0; i < length; i++) {
+            dest[destPos + i] = values[src[srcPos + i] & 0xFF];
+        }
+    }
+
     /* (non-Javadoc)
      * @see com.blockwithme.prim.Converter#bits()
      */
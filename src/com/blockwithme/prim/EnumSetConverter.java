@@ -15,12 +15,31 @@
  ******************************************************************************/
 package com.blockwithme.prim;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.UndeclaredThrowableException;
 import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Map;
 
 /**
  * <code>EnumSetConverter</code> implements a LongConverter for some enum type.
  * It is assumed that there are no more then 64 values for this enum.
  *
+ * By default, every enum constant is mapped to the bit of it's ordinal. Since
+ * the ordinal changes when constants are added or reordered, a stable mapping
+ * can be specified instead, as the list of constant names, in bit order. New
+ * constants should then be appended to the list, and the names of removed
+ * constants kept (or replaced by an empty name), so that the other bits do
+ * not move. The list is part of the configuration.
+ *
+ * If the JVM allows it, the bits of the JDK (Regular)EnumSet are read and
+ * written directly, so the ordinal mapping is O(1). Otherwise, and for the
+ * name mapping, only the set bits are visited.
+ *
  * @author monster
  *
  * @param <E>
@@ -29,12 +48,83 @@ public class EnumSetConverter<E extends Enum<E>> extends
         ClassConfiguredConverter<EnumSet<E>, E> implements
         LongConverter<EnumSet<E>> {
 
+    /** Separates the type from the bit names, in the configuration. */
+    private static final char NAMES_SEPARATOR = ':';
+
+    /** Separates the bit names, in the configuration. */
+    private static final char NAME_SEPARATOR = ',';
+
+    /** The JDK EnumSet implementation for up to 64 constants. */
+    private static final Class<?> REGULAR_ENUM_SET;
+
+    /** Reads RegularEnumSet.elements; null if not accessible. */
+    private static final MethodHandle GET_ELEMENTS;
+
+    /** Writes RegularEnumSet.elements; null if not accessible. */
+    private static final MethodHandle SET_ELEMENTS;
+
+    static {
+        Class<?> regular = null;
+        MethodHandle getter = null;
+        MethodHandle setter = null;
+        try {
+            regular = Class.forName("java.util.RegularEnumSet");
+            final Field elements = regular.getDeclaredField("elements");
+            elements.setAccessible(true);
+            final MethodHandles.Lookup lookup = MethodHandles.lookup();
+            getter = lookup.unreflectGetter(elements).asType(
+                    MethodType.methodType(long.class, EnumSet.class));
+            setter = lookup.unreflectSetter(elements).asType(
+                    MethodType.methodType(void.class, EnumSet.class,
+                            long.class));
+        } catch (final Exception e) {
+            // Not available on this JVM; use the slow path.
+            getter = null;
+            setter = null;
+        }
+        REGULAR_ENUM_SET = regular;
+        GET_ELEMENTS = getter;
+        SET_ELEMENTS = setter;
+    }
+
     /** The Enum constants. */
     private E[] constants;
 
     /** Real type. */
     private Class<EnumSet<E>> realType;
 
+    /** The bit names, in bit order, or null for the ordinal mapping. */
+    private final String[] bitNames;
+
+    /** The bit of every constant, by ordinal. 0 if not mapped. */
+    private long[] bitOf;
+
+    /** The constant of every bit. null if not mapped. */
+    private E[] constantOf;
+
+    /** All the bits that map to a constant. */
+    private long validBits;
+
+    /** Returns the type part of the configuration. */
+    private static String typeOf(final String theConfiguration) {
+        if (theConfiguration == null) {
+            return null;
+        }
+        final int sep = theConfiguration.indexOf(NAMES_SEPARATOR);
+        return (sep < 0) ? theConfiguration : theConfiguration.substring(0,
+                sep);
+    }
+
+    /** Returns the bit names part of the configuration, or null. */
+    private static String[] namesOf(final String theConfiguration) {
+        final int sep = theConfiguration.indexOf(NAMES_SEPARATOR);
+        if (sep < 0) {
+            return null;
+        }
+        return theConfiguration.substring(sep + 1).split(
+                String.valueOf(NAME_SEPARATOR), -1);
+    }
+
     /** Initialize */
     @SuppressWarnings("unchecked")
     private void init() {
@@ -46,27 +136,102 @@ public class EnumSetConverter<E extends Enum<E>> extends
             throw new IllegalArgumentException(type + " has too many constants");
         }
         realType = (Class<EnumSet<E>>) EnumSet.noneOf(type).getClass();
+        bitOf = new long[constants.length];
+        if (bitNames == null) {
+            constantOf = constants;
+            for (int i = 0; i < constants.length; i++) {
+                bitOf[i] = 1L << i;
+            }
+        } else {
+            if (bitNames.length > 64) {
+                throw new IllegalArgumentException("Too many bit names: "
+                        + bitNames.length);
+            }
+            final Map<String, E> byName = new HashMap<>();
+            for (final E e : constants) {
+                byName.put(e.name(), e);
+            }
+            constantOf = (E[]) Array.newInstance(type,
+                    bitNames.length);
+            for (int i = 0; i < bitNames.length; i++) {
+                final String name = bitNames[i];
+                if (name.indexOf(NAME_SEPARATOR) >= 0) {
+                    throw new IllegalArgumentException("Invalid bit name: "
+                            + name);
+                }
+                final E e = byName.get(name);
+                if (e != null) {
+                    if (bitOf[e.ordinal()] != 0) {
+                        throw new IllegalArgumentException(
+                                "Duplicate bit name: " + name);
+                    }
+                    bitOf[e.ordinal()] = 1L << i;
+                    constantOf[i] = e;
+                }
+            }
+        }
+        for (final long bit : bitOf) {
+            validBits |= bit;
+        }
     }
 
-    /** Constructor takes the enum type. */
+    /** Constructor takes the enum type, and uses the ordinal mapping. */
     public EnumSetConverter(final Class<E> theEnumType) {
         super(theEnumType);
+        bitNames = null;
         init();
     }
 
-    /** Constructor takes the enum type name. */
-    public EnumSetConverter(final String theEnumType) {
+    /**
+     * Constructor takes the enum type, and the constant names, in bit order,
+     * for a stable mapping. Unknown names are allowed, and reserve their bit.
+     */
+    public EnumSetConverter(final Class<E> theEnumType,
+            final String... theBitNames) {
         super(theEnumType);
+        if (theBitNames == null) {
+            throw new IllegalArgumentException("theBitNames is null");
+        }
+        bitNames = theBitNames.clone();
         init();
     }
 
+    /**
+     * Constructor takes the configuration: the enum type name, optionally
+     * followed by ':' and the comma-separated bit names.
+     */
+    public EnumSetConverter(final String theConfiguration) {
+        super(typeOf(theConfiguration));
+        bitNames = namesOf(theConfiguration);
+        init();
+    }
+
+    /** Returns true if the EnumSet bits can be accessed directly. */
+    private boolean direct(final EnumSet<E> theSet) {
+        return (bitNames == null) && (GET_ELEMENTS != null)
+                && (theSet.getClass() == REGULAR_ENUM_SET);
+    }
+
     @Override
     public long fromObject(final EnumSet<E> theSet) {
         long result = 0;
         if (theSet != null) {
+            if (direct(theSet)) {
+                try {
+                    return (long) GET_ELEMENTS.invokeExact(theSet);
+                } catch (final RuntimeException | Error e) {
+                    throw e;
+                } catch (final Throwable t) {
+                    throw new UndeclaredThrowableException(t);
+                }
+            }
             for (final E e : theSet) {
-                // TODO ordinal() is evil, and should never be used for serialization
-                result |= 1L << e.ordinal();
+                final long bit = bitOf[e.ordinal()];
+                if (bit == 0) {
+                    throw new IllegalArgumentException(e
+                            + " has no bit assigned");
+                }
+                result |= bit;
             }
         }
         return result;
@@ -75,14 +240,47 @@ public class EnumSetConverter<E extends Enum<E>> extends
     @Override
     public final EnumSet<E> toObject(final long theValue) {
         final EnumSet<E> result = EnumSet.noneOf(type);
-        for (int i = 0; i < constants.length; i++) {
-            if ((theValue & 1L << i) != 0) {
-                result.add(constants[i]);
+        long bits = theValue & validBits;
+        if (direct(result)) {
+            try {
+                SET_ELEMENTS.invokeExact(result, bits);
+            } catch (final RuntimeException | Error e) {
+                throw e;
+            } catch (final Throwable t) {
+                throw new UndeclaredThrowableException(t);
             }
+            return result;
+        }
+        while (bits != 0) {
+            result.add(constantOf[Long.numberOfTrailingZeros(bits)]);
+            bits &= bits - 1;
         }
         return result;
     }
 
+    /** Returns the bit names, in bit order, or null for the ordinal mapping. */
+    public String[] bitNames() {
+        return (bitNames == null) ? null : bitNames.clone();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public String getConfiguration() {
+        final String result = super.getConfiguration();
+        if (bitNames == null) {
+            return result;
+        }
+        final StringBuilder buf = new StringBuilder(result);
+        buf.append(NAMES_SEPARATOR);
+        for (int i = 0; i < bitNames.length; i++) {
+            if (i > 0) {
+                buf.append(NAME_SEPARATOR);
+            }
+            buf.append(bitNames[i]);
+        }
+        return buf.toString();
+    }
+
     /** {@inheritDoc} */
     @Override
     public Class<EnumSet<E>> type() {
@@ -0,0 +1,128 @@
+/*
+ * Copyright (C) 2013 Sebastien Diot.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.blockwithme.prim;
+
+import java.nio.ByteBuffer;
+import java.util.NoSuchElementException;
+
+/**
+ * <code>LongColumnDecoder</code> reads a stream of long values, written by a
+ * LongColumnEncoder, from a ByteBuffer. The blocks are decoded one at a time,
+ * as the values are read.
+ *
+ * This class is not thread-safe.
+ *
+ * @author monster
+ */
+public class LongColumnDecoder {
+
+    /** Empty block. */
+    private static final long[] NO_VALUES = new long[0];
+
+    /** The encoding. */
+    private final LongEncoding encoding;
+
+    /** The input. */
+    private final ByteBuffer in;
+
+    /** The values of the current block. */
+    private long[] block = NO_VALUES;
+
+    /** The number of values in the current block. */
+    private int count;
+
+    /** The index of the next value in the current block. */
+    private int next;
+
+    /** Was the end of the stream reached? */
+    private boolean end;
+
+    /** Creates a decoder. */
+    public LongColumnDecoder(final LongEncoding theEncoding,
+            final ByteBuffer theIn) {
+        if (theEncoding == null) {
+            throw new IllegalArgumentException("theEncoding is null");
+        }
+        if (theIn == null) {
+            throw new IllegalArgumentException("theIn is null");
+        }
+        encoding = theEncoding;
+        in = theIn;
+    }
+
+    /** Returns the encoding. */
+    public final LongEncoding encoding() {
+        return encoding;
+    }
+
+    /** Reads the next block, if needed. Returns false at the end. */
+    private boolean fill() {
+        if (next < count) {
+            return true;
+        }
+        if (end) {
+            return false;
+        }
+        final long size = LongEncoding.readVarLong(in);
+        if (size == 0) {
+            end = true;
+            return false;
+        }
+        if ((size < 0) || (size > LongColumnEncoder.MAX_BLOCK_SIZE)) {
+            throw new IllegalArgumentException("Invalid block size: " + size);
+        }
+        if (block.length < size) {
+            block = new long[(int) size];
+        }
+        encoding.decodeBlock(in, block, (int) size);
+        count = (int) size;
+        next = 0;
+        return true;
+    }
+
+    /** Returns true if there are more values. */
+    public boolean hasNext() {
+        return fill();
+    }
+
+    /** Returns the next value. */
+    public long next() {
+        if (!fill()) {
+            throw new NoSuchElementException();
+        }
+        return block[next++];
+    }
+
+    /**
+     * Reads up to length values into dest, starting at offset.
+     * Returns the number of values read; less than length at the end.
+     */
+    public int read(final long[] dest, final int offset, final int length) {
+        if ((offset < 0) || (length < 0) || (offset > dest.length - length)) {
+            throw new IndexOutOfBoundsException("offset=" + offset
+                    + " length=" + length + " dest.length=" + dest.length);
+        }
+        int done = 0;
+        while ((done < length) && fill()) {
+            final int n = Math.min(length - done, count - next);
+            System.arraycopy(block, next, dest, offset + done, n);
+            next += n;
+            done += n;
+        }
+        return done;
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright (C) 2013 Sebastien Diot.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.blockwithme.prim;
+
+import java.nio.ByteBuffer;
+
+/**
+ * <code>LongColumnEncoder</code> writes a stream of long values to a
+ * ByteBuffer, in blocks, using a LongEncoding.
+ *
+ * Every block starts with the number of values as a varint, followed by the
+ * encoded values. The stream ends with an empty block, written by finish().
+ * Use a LongColumnDecoder, with the same encoding, to read it back.
+ *
+ * This class is not thread-safe.
+ *
+ * @author monster
+ */
+public class LongColumnEncoder {
+
+    /** The default number of values per block. */
+    public static final int DEFAULT_BLOCK_SIZE = 1024;
+
+    /** The maximum number of values per block. */
+    public static final int MAX_BLOCK_SIZE = 1 << 16;
+
+    /** The encoding. */
+    private final LongEncoding encoding;
+
+    /** The output. */
+    private final ByteBuffer out;
+
+    /** The values of the current block. */
+    private final long[] block;
+
+    /** The number of values in the current block. */
+    private int count;
+
+    /** Was finish() called? */
+    private boolean finished;
+
+    /** Creates an encoder, with the given block size. */
+    public LongColumnEncoder(final LongEncoding theEncoding,
+            final ByteBuffer theOut, final int theBlockSize) {
+        if (theEncoding == null) {
+            throw new IllegalArgumentException("theEncoding is null");
+        }
+        if (theOut == null) {
+            throw new IllegalArgumentException("theOut is null");
+        }
+        if ((theBlockSize < 1) || (theBlockSize > MAX_BLOCK_SIZE)) {
+            throw new IllegalArgumentException("theBlockSize must be in [1,"
+                    + MAX_BLOCK_SIZE + "]: " + theBlockSize);
+        }
+        encoding = theEncoding;
+        out = theOut;
+        block = new long[theBlockSize];
+    }
+
+    /** Creates an encoder, with the default block size. */
+    public LongColumnEncoder(final LongEncoding theEncoding,
+            final ByteBuffer theOut) {
+        this(theEncoding, theOut, DEFAULT_BLOCK_SIZE);
+    }
+
+    /** Returns the encoding. */
+    public final LongEncoding encoding() {
+        return encoding;
+    }
+
+    /** Writes the current block, if not empty. */
+    private void flushBlock() {
+        if (count > 0) {
+            LongEncoding.writeVarLong(out, count);
+            encoding.encodeBlock(block, count, out);
+            count = 0;
+        }
+    }
+
+    /** Writes one value. */
+    public void write(final long value) {
+        if (finished) {
+            throw new IllegalStateException("finished");
+        }
+        block[count++] = value;
+        if (count == block.length) {
+            flushBlock();
+        }
+    }
+
+    /** Writes length values, starting at offset. */
+    public void write(final long[] values, final int offset, final int length) {
+        if ((offset < 0) || (length < 0) || (offset > values.length - length)) {
+            throw new IndexOutOfBoundsException("offset=" + offset
+                    + " length=" + length + " values.length="
+                    + values.length);
+        }
+        for (int i = 0; i < length; i++) {
+            write(values[offset + i]);
+        }
+    }
+
+    /** Writes the pending values, and the end of the stream. */
+    public void finish() {
+        if (!finished) {
+            flushBlock();
+            LongEncoding.writeVarLong(out, 0);
+            finished = true;
+        }
+    }
+}
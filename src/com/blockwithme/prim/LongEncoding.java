@@ -0,0 +1,266 @@
+/*
+ * Copyright (C) 2013 Sebastien Diot.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.blockwithme.prim;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+/**
+ * <code>LongEncoding</code> lists the encodings of blocks of long values,
+ * used by LongColumnEncoder and LongColumnDecoder.
+ *
+ * DELTA_VARINT suits monotonic columns, like timestamps. FRAME_OF_REFERENCE
+ * suits values within a small range. DICTIONARY suits columns with few
+ * distinct values, like IDs.
+ *
+ * @author monster
+ */
+public enum LongEncoding {
+    /** Each value is stored as the zigzag varint of the delta to the previous value. */
+    DELTA_VARINT {
+        @Override
+        void encodeBlock(final long[] values, final int count,
+                final ByteBuffer out) {
+            long previous = 0;
+            for (int i = 0; i < count; i++) {
+                final long value = values[i];
+                writeVarLong(out, zigzag(value - previous));
+                previous = value;
+            }
+        }
+
+        @Override
+        void decodeBlock(final ByteBuffer in, final long[] dest,
+                final int count) {
+            long previous = 0;
+            for (int i = 0; i < count; i++) {
+                previous += unzigzag(readVarLong(in));
+                dest[i] = previous;
+            }
+        }
+    },
+    /**
+     * The block minimum is stored, and then every value minus the minimum,
+     * bit-packed in as few bits as the largest one requires.
+     */
+    FRAME_OF_REFERENCE {
+        @Override
+        void encodeBlock(final long[] values, final int count,
+                final ByteBuffer out) {
+            long min = values[0];
+            for (int i = 1; i < count; i++) {
+                min = Math.min(min, values[i]);
+            }
+            long or = 0;
+            final long[] offsets = new long[count];
+            for (int i = 0; i < count; i++) {
+                offsets[i] = values[i] - min;
+                or |= offsets[i];
+            }
+            final int bits = 64 - Long.numberOfLeadingZeros(or);
+            writeVarLong(out, zigzag(min));
+            out.put((byte) bits);
+            packBits(offsets, count, bits, out);
+        }
+
+        @Override
+        void decodeBlock(final ByteBuffer in, final long[] dest,
+                final int count) {
+            final long min = unzigzag(readVarLong(in));
+            final int bits = in.get();
+            checkBits(bits);
+            unpackBits(in, dest, count, bits);
+            for (int i = 0; i < count; i++) {
+                dest[i] += min;
+            }
+        }
+    },
+    /**
+     * The sorted distinct values of the block are stored, delta-encoded,
+     * followed by the bit-packed index of every value in that dictionary.
+     */
+    DICTIONARY {
+        @Override
+        void encodeBlock(final long[] values, final int count,
+                final ByteBuffer out) {
+            final long[] sorted = Arrays.copyOf(values, count);
+            Arrays.sort(sorted);
+            int size = 0;
+            for (int i = 0; i < count; i++) {
+                if ((size == 0) || (sorted[size - 1] != sorted[i])) {
+                    sorted[size++] = sorted[i];
+                }
+            }
+            writeVarLong(out, size);
+            long previous = 0;
+            for (int i = 0; i < size; i++) {
+                writeVarLong(out, zigzag(sorted[i] - previous));
+                previous = sorted[i];
+            }
+            final long[] codes = new long[count];
+            for (int i = 0; i < count; i++) {
+                codes[i] = Arrays.binarySearch(sorted, 0, size, values[i]);
+            }
+            packBits(codes, count, bitsFor(size), out);
+        }
+
+        @Override
+        void decodeBlock(final ByteBuffer in, final long[] dest,
+                final int count) {
+            final long size = readVarLong(in);
+            if ((size < 1) || (size > count)) {
+                throw new IllegalArgumentException("Invalid dictionary size: "
+                        + size);
+            }
+            final long[] dictionary = new long[(int) size];
+            long previous = 0;
+            for (int i = 0; i < dictionary.length; i++) {
+                previous += unzigzag(readVarLong(in));
+                dictionary[i] = previous;
+            }
+            unpackBits(in, dest, count, bitsFor(dictionary.length));
+            for (int i = 0; i < count; i++) {
+                final long code = dest[i];
+                if (code >= dictionary.length) {
+                    throw new IllegalArgumentException("Invalid code: "
+                            + code);
+                }
+                dest[i] = dictionary[(int) code];
+            }
+        }
+    };
+
+    /** Encodes count (at least 1) values. */
+    abstract void encodeBlock(final long[] values, final int count,
+            final ByteBuffer out);
+
+    /** Decodes count (at least 1) values. */
+    abstract void decodeBlock(final ByteBuffer in, final long[] dest,
+            final int count);
+
+    /** Returns the bits needed to store indexes of a dictionary of the given size. */
+    static int bitsFor(final int size) {
+        return (size <= 1) ? 0 : 32 - Integer.numberOfLeadingZeros(size - 1);
+    }
+
+    /** Checks the bits read from a buffer. */
+    static void checkBits(final int bits) {
+        if ((bits < 0) || (bits > 64)) {
+            throw new IllegalArgumentException("Invalid bits: " + bits);
+        }
+    }
+
+    /** ZigZag-encodes a value, so that small negative values stay small. */
+    public static long zigzag(final long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    /** Decodes a ZigZag-encoded value. */
+    public static long unzigzag(final long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    /** Writes a value as an unsigned varint (7 bits per byte). */
+    public static void writeVarLong(final ByteBuffer out, final long value) {
+        long v = value;
+        while ((v & ~0x7FL) != 0) {
+            out.put((byte) ((v & 0x7F) | 0x80));
+            v >>>= 7;
+        }
+        out.put((byte) v);
+    }
+
+    /** Reads an unsigned varint. */
+    public static long readVarLong(final ByteBuffer in) {
+        long result = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            final byte b = in.get();
+            result |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return result;
+            }
+        }
+        throw new IllegalArgumentException("Varint too long");
+    }
+
+    /** Converts between a long in the buffer order, and little-endian. */
+    private static long littleEndian(final long value, final ByteBuffer buffer) {
+        return (buffer.order() == ByteOrder.BIG_ENDIAN) ? Long
+                .reverseBytes(value) : value;
+    }
+
+    /** Writes count values, using bits bits each, as little-endian bytes. */
+    static void packBits(final long[] values, final int count,
+            final int bits, final ByteBuffer out) {
+        if (bits == 0) {
+            return;
+        }
+        long acc = 0;
+        int accBits = 0;
+        for (int i = 0; i < count; i++) {
+            final long value = values[i];
+            acc |= value << accBits;
+            final int total = accBits + bits;
+            if (total >= 64) {
+                out.putLong(littleEndian(acc, out));
+                acc = (accBits == 0) ? 0 : value >>> (64 - accBits);
+                accBits = total - 64;
+            } else {
+                accBits = total;
+            }
+        }
+        while (accBits > 0) {
+            out.put((byte) acc);
+            acc >>>= 8;
+            accBits -= 8;
+        }
+    }
+
+    /** Reads count values of bits bits each, as written by packBits(). */
+    static void unpackBits(final ByteBuffer in, final long[] dest,
+            final int count, final int bits) {
+        if (bits == 0) {
+            Arrays.fill(dest, 0, count, 0L);
+            return;
+        }
+        final long mask = (bits == 64) ? -1L : (1L << bits) - 1;
+        final long totalBits = (long) count * bits;
+        final int fullWords = (int) (totalBits >>> 6);
+        final int tailBytes = (int) (((totalBits & 63) + 7) >>> 3);
+        final long[] words = new long[fullWords + 1];
+        for (int i = 0; i < fullWords; i++) {
+            words[i] = littleEndian(in.getLong(), in);
+        }
+        long tail = 0;
+        for (int i = 0; i < tailBytes; i++) {
+            tail |= (in.get() & 0xFFL) << (i * 8);
+        }
+        words[fullWords] = tail;
+        long bitPos = 0;
+        for (int i = 0; i < count; i++) {
+            final int word = (int) (bitPos >>> 6);
+            final int offset = (int) bitPos & 63;
+            long value = words[word] >>> offset;
+            if (offset + bits > 64) {
+                value |= words[word + 1] << (64 - offset);
+            }
+            dest[i] = value & mask;
+            bitPos += bits;
+        }
+    }
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright (C) 2013 Sebastien Diot.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.blockwithme.prim;
+
+/**
+ * <code>LongIntConverter</code> is an IntConverter of Long, that can also
+ * convert between long and int without boxing. Pipelines uses it to fuse
+ * a LongConverter stage with an IntConverter stage.
+ */
+public interface LongIntConverter extends IntConverter<Long> {
+
+    /**
+     * Converts long to int by narrowing. Values outside of the int range
+     * cause an IllegalArgumentException.
+     */
+    LongIntConverter NARROWING = new LongIntConverter() {
+        @Override
+        public Class<Long> type() {
+            return Long.class;
+        }
+
+        @Override
+        public int bits() {
+            return DEFAULT_BITS;
+        }
+
+        @Override
+        public int fromObject(final Long obj) {
+            return (obj == null) ? 0 : longToInt(obj);
+        }
+
+        @Override
+        public Long toObject(final int value) {
+            return (long) value;
+        }
+
+        @Override
+        public int longToInt(final long value) {
+            final int result = (int) value;
+            if (result != value) {
+                throw new IllegalArgumentException(value
+                        + " does not fit in an int");
+            }
+            return result;
+        }
+
+        @Override
+        public long intToLong(final int value) {
+            return value;
+        }
+    };
+
+    /** Converts a long to an int. */
+    int longToInt(final long value);
+
+    /** Converts an int to a long. */
+    long intToLong(final int value);
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright (C) 2013 Sebastien Diot.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.blockwithme.prim;
+
+/**
+ * <code>PackedField</code> describes where a field of a value class is stored,
+ * within a long, by a PackedLongConverter.
+ *
+ * @author monster
+ */
+public final class PackedField {
+
+    /** The field name. */
+    public final String name;
+
+    /** The index of the lowest bit used by the field. */
+    public final int offset;
+
+    /** The number of bits used by the field. */
+    public final int bits;
+
+    /**
+     * Is the field stored as a signed value? Signed values are sign-extended
+     * when decoded, and unsigned values are zero-extended.
+     */
+    public final boolean signed;
+
+    /** Constructor */
+    public PackedField(final String theName, final int theOffset,
+            final int theBits, final boolean theSigned) {
+        if ((theName == null) || theName.isEmpty()) {
+            throw new IllegalArgumentException("theName is empty");
+        }
+        if ((theBits < 1) || (theBits > 64)) {
+            throw new IllegalArgumentException("theBits must be in [1,64]: "
+                    + theBits);
+        }
+        if ((theOffset < 0) || (theOffset + theBits > 64)) {
+            throw new IllegalArgumentException("theOffset " + theOffset
+                    + " with theBits " + theBits + " does not fit in a long");
+        }
+        name = theName;
+        offset = theOffset;
+        bits = theBits;
+        signed = theSigned;
+    }
+
+    /** Creates an unsigned field. */
+    public PackedField(final String theName, final int theOffset,
+            final int theBits) {
+        this(theName, theOffset, theBits, false);
+    }
+
+    /** Returns the mask of the bits of the field, within the long. */
+    public long mask() {
+        final long mask = (bits == 64) ? -1L : (1L << bits) - 1;
+        return mask << offset;
+    }
+
+    /** toString */
+    @Override
+    public String toString() {
+        return name + "[" + offset + "+" + bits + (signed ? ",signed]" : "]");
+    }
+}
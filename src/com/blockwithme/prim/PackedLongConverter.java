@@ -0,0 +1,413 @@
+/*
+ * Copyright (C) 2013 Sebastien Diot.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.blockwithme.prim;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.UndeclaredThrowableException;
+import java.util.Arrays;
+
+/**
+ * <code>PackedLongConverter</code> is a LongConverter for value classes, that
+ * packs some of their primitive fields in a long, according to a layout of
+ * PackedField.
+ *
+ * The conversion code is composed once, as a single tree of method handles,
+ * so no reflection is used after creation. The handles are instance fields,
+ * and so not constants for the JIT: every conversion is an invocation of the
+ * composed handle, which is not inlined into the caller like hand-written
+ * code would be. Objects are created with the constructor whose parameter types
+ * match the field types, in the order of the layout. If there is no such
+ * constructor, the no-arg constructor is used, and the fields are set
+ * directly; they must not be final in that case.
+ *
+ * Unsigned fields store the zero-extended bits of the Java value, so an
+ * unsigned byte field of 8 bits can store any byte. Values that do not fit
+ * in their bits cause an IllegalArgumentException. Float and double fields
+ * must use 32 and 64 bits respectively.
+ *
+ * @author monster
+ */
+public final class PackedLongConverter<E> implements LongConverter<E> {
+
+    /** The lookup used to find our helper methods. */
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+
+    /** Combines two packed values. */
+    private static final MethodHandle OR = helper("or", long.class,
+            long.class, long.class);
+
+    /** Encodes a field value. */
+    private static final MethodHandle ENCODE = helper("encode", long.class,
+            long.class, int.class, int.class, boolean.class, int.class);
+
+    /** Decodes a field value. */
+    private static final MethodHandle DECODE = helper("decode", long.class,
+            long.class, int.class, int.class, boolean.class);
+
+    /** The value type. */
+    private final Class<E> type;
+
+    /** The layout. */
+    private final PackedField[] fields;
+
+    /** The number of bits used. */
+    private final int bits;
+
+    /** Packs an object; type (Object)long. */
+    private final MethodHandle pack;
+
+    /** Unpacks an object; type (long)Object. */
+    private final MethodHandle unpack;
+
+    /** Finds one of our static helper methods. */
+    private static MethodHandle helper(final String name,
+            final Class<?> returnType, final Class<?>... params) {
+        try {
+            return LOOKUP.findStatic(PackedLongConverter.class, name,
+                    MethodType.methodType(returnType, params));
+        } catch (final NoSuchMethodException | IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /** Combines two packed values. */
+    @SuppressWarnings("unused")
+    private static long or(final long a, final long b) {
+        return a | b;
+    }
+
+    /** Encodes a field value, widened to long, in it's position. */
+    @SuppressWarnings("unused")
+    private static long encode(final long value, final int offset,
+            final int bits, final boolean signed, final int width) {
+        long v = value;
+        if (!signed && (width < 64)) {
+            v &= (1L << width) - 1;
+        }
+        if (bits < 64) {
+            if (signed) {
+                final long min = -1L << (bits - 1);
+                if ((v < min) || (v > ~min)) {
+                    throw new IllegalArgumentException(value
+                            + " does not fit in " + bits + " signed bits");
+                }
+                v &= (1L << bits) - 1;
+            } else if ((v >>> bits) != 0) {
+                throw new IllegalArgumentException(value
+                        + " does not fit in " + bits + " unsigned bits");
+            }
+        }
+        return v << offset;
+    }
+
+    /** Decodes a field value from it's position. */
+    @SuppressWarnings("unused")
+    private static long decode(final long packed, final int offset,
+            final int bits, final boolean signed) {
+        if (signed) {
+            return (packed << (64 - offset - bits)) >> (64 - bits);
+        }
+        final long v = packed >>> offset;
+        return (bits == 64) ? v : v & ((1L << bits) - 1);
+    }
+
+    /** Returns the raw bits of a float. */
+    @SuppressWarnings("unused")
+    private static long fromFloat(final float value) {
+        return Float.floatToRawIntBits(value) & 0xFFFFFFFFL;
+    }
+
+    /** Returns the float of the raw bits. */
+    @SuppressWarnings("unused")
+    private static float toFloat(final long bits) {
+        return Float.intBitsToFloat((int) bits);
+    }
+
+    /** Returns the raw bits of a double. */
+    @SuppressWarnings("unused")
+    private static long fromDouble(final double value) {
+        return Double.doubleToRawLongBits(value);
+    }
+
+    /** Returns the double of the raw bits. */
+    @SuppressWarnings("unused")
+    private static double toDouble(final long bits) {
+        return Double.longBitsToDouble(bits);
+    }
+
+    /** Returns the size, in bits, of a primitive type. */
+    private static int width(final Class<?> primitive) {
+        if (primitive == boolean.class) {
+            return 1;
+        }
+        if (primitive == byte.class) {
+            return 8;
+        }
+        if ((primitive == short.class) || (primitive == char.class)) {
+            return 16;
+        }
+        if ((primitive == int.class) || (primitive == float.class)) {
+            return 32;
+        }
+        return 64;
+    }
+
+    /** Returns a handle converting a field value to long; type (T)long. */
+    private static MethodHandle toLong(final Class<?> fieldType) {
+        if (fieldType == float.class) {
+            return helper("fromFloat", long.class, float.class);
+        }
+        if (fieldType == double.class) {
+            return helper("fromDouble", long.class, double.class);
+        }
+        return MethodHandles.explicitCastArguments(
+                MethodHandles.identity(long.class),
+                MethodType.methodType(long.class, fieldType));
+    }
+
+    /** Returns a handle converting a long to a field value; type (long)T. */
+    private static MethodHandle fromLong(final Class<?> fieldType) {
+        if (fieldType == float.class) {
+            return helper("toFloat", float.class, long.class);
+        }
+        if (fieldType == double.class) {
+            return helper("toDouble", double.class, long.class);
+        }
+        return MethodHandles.explicitCastArguments(
+                MethodHandles.identity(long.class),
+                MethodType.methodType(fieldType, long.class));
+    }
+
+    /** Finds and validates the field. */
+    private static Field findField(final Class<?> type, final PackedField pf) {
+        Field result = null;
+        for (Class<?> c = type; (c != null) && (result == null); c = c
+                .getSuperclass()) {
+            try {
+                result = c.getDeclaredField(pf.name);
+            } catch (final NoSuchFieldException e) {
+                // Try super-class
+            }
+        }
+        if (result == null) {
+            throw new IllegalArgumentException("Field " + pf.name
+                    + " not found in " + type);
+        }
+        if (Modifier.isStatic(result.getModifiers())) {
+            throw new IllegalArgumentException(result + " is static");
+        }
+        final Class<?> ft = result.getType();
+        if (!ft.isPrimitive()) {
+            throw new IllegalArgumentException(result + " is not primitive");
+        }
+        final int width = width(ft);
+        if (pf.bits > width) {
+            throw new IllegalArgumentException(pf + " uses more bits than "
+                    + result);
+        }
+        if (((ft == float.class) || (ft == double.class))
+                && (pf.bits != width)) {
+            throw new IllegalArgumentException(pf + " must use " + width
+                    + " bits for " + result);
+        }
+        result.setAccessible(true);
+        return result;
+    }
+
+    /** Returns the handle decoding a field; type (long)T. */
+    private static MethodHandle decoder(final PackedField pf, final Field f) {
+        final MethodHandle decode = MethodHandles.insertArguments(DECODE, 1,
+                pf.offset, pf.bits, pf.signed);
+        return MethodHandles.filterReturnValue(decode, fromLong(f.getType()));
+    }
+
+    /** Builds the pack handle; type (Object)long. */
+    private static MethodHandle buildPack(final PackedField[] fields,
+            final Field[] reflected) throws IllegalAccessException {
+        final MethodType packType = MethodType.methodType(long.class,
+                Object.class);
+        MethodHandle result = null;
+        for (int i = 0; i < fields.length; i++) {
+            final PackedField pf = fields[i];
+            final Field f = reflected[i];
+            final Class<?> ft = f.getType();
+            MethodHandle h = LOOKUP.unreflectGetter(f).asType(
+                    MethodType.methodType(ft, Object.class));
+            h = MethodHandles.filterReturnValue(h, toLong(ft));
+            h = MethodHandles.filterReturnValue(h, MethodHandles
+                    .insertArguments(ENCODE, 1, pf.offset, pf.bits,
+                            pf.signed, width(ft)));
+            if (result == null) {
+                result = h;
+            } else {
+                result = MethodHandles.permuteArguments(
+                        MethodHandles.filterArguments(OR, 0, result, h),
+                        packType, 0, 0);
+            }
+        }
+        return result;
+    }
+
+    /** Builds the unpack handle; type (long)Object. */
+    private static MethodHandle buildUnpack(final Class<?> type,
+            final PackedField[] fields, final Field[] reflected)
+            throws IllegalAccessException {
+        final MethodType unpackType = MethodType.methodType(Object.class,
+                long.class);
+        final Class<?>[] fieldTypes = new Class<?>[fields.length];
+        final MethodHandle[] decoders = new MethodHandle[fields.length];
+        for (int i = 0; i < fields.length; i++) {
+            fieldTypes[i] = reflected[i].getType();
+            decoders[i] = decoder(fields[i], reflected[i]);
+        }
+        for (final Constructor<?> c : type.getDeclaredConstructors()) {
+            if (Arrays.equals(c.getParameterTypes(), fieldTypes)) {
+                c.setAccessible(true);
+                final MethodHandle ctor = LOOKUP.unreflectConstructor(c)
+                        .asType(MethodType.methodType(Object.class,
+                                fieldTypes));
+                return MethodHandles.permuteArguments(
+                        MethodHandles.filterArguments(ctor, 0, decoders),
+                        unpackType, new int[fields.length]);
+            }
+        }
+        final Constructor<?> noArg;
+        try {
+            noArg = type.getDeclaredConstructor();
+        } catch (final NoSuchMethodException e) {
+            throw new IllegalArgumentException(type
+                    + " has neither a constructor taking "
+                    + Arrays.toString(fieldTypes)
+                    + " nor a no-arg constructor", e);
+        }
+        noArg.setAccessible(true);
+        // (Object,long)Object, returning the object
+        MethodHandle result = MethodHandles.dropArguments(
+                MethodHandles.identity(Object.class), 1, long.class);
+        for (int i = fields.length - 1; i >= 0; i--) {
+            final Field f = reflected[i];
+            if (Modifier.isFinal(f.getModifiers())) {
+                throw new IllegalArgumentException(f
+                        + " is final, and no matching constructor found");
+            }
+            final MethodHandle setter = LOOKUP.unreflectSetter(f).asType(
+                    MethodType.methodType(void.class, Object.class,
+                            f.getType()));
+            result = MethodHandles.foldArguments(result,
+                    MethodHandles.filterArguments(setter, 1, decoders[i]));
+        }
+        final MethodHandle create = MethodHandles.dropArguments(
+                LOOKUP.unreflectConstructor(noArg).asType(
+                        MethodType.methodType(Object.class)), 0, long.class);
+        return MethodHandles.foldArguments(result, create);
+    }
+
+    /** Constructor */
+    private PackedLongConverter(final Class<E> theType,
+            final PackedField[] theFields) {
+        if (theType == null) {
+            throw new IllegalArgumentException("theType is null");
+        }
+        if ((theFields == null) || (theFields.length == 0)) {
+            throw new IllegalArgumentException("theFields is empty");
+        }
+        type = theType;
+        fields = theFields.clone();
+        final Field[] reflected = new Field[fields.length];
+        long used = 0;
+        int maxBit = 0;
+        for (int i = 0; i < fields.length; i++) {
+            final PackedField pf = fields[i];
+            if (pf == null) {
+                throw new IllegalArgumentException("theFields[" + i
+                        + "] is null");
+            }
+            if ((used & pf.mask()) != 0) {
+                throw new IllegalArgumentException(pf
+                        + " overlaps another field");
+            }
+            used |= pf.mask();
+            maxBit = Math.max(maxBit, pf.offset + pf.bits);
+            reflected[i] = findField(theType, pf);
+        }
+        bits = maxBit;
+        try {
+            pack = buildPack(fields, reflected);
+            unpack = buildUnpack(theType, fields, reflected);
+        } catch (final IllegalAccessException e) {
+            throw new IllegalArgumentException("Cannot access fields of "
+                    + theType, e);
+        }
+    }
+
+    /**
+     * Creates a PackedLongConverter for the given value type and layout.
+     * @throws IllegalArgumentException if the layout is invalid.
+     */
+    public static <E> PackedLongConverter<E> create(final Class<E> type,
+            final PackedField... fields) {
+        return new PackedLongConverter<E>(type, fields);
+    }
+
+    /** Returns a copy of the layout. */
+    public PackedField[] fields() {
+        return fields.clone();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public Class<E> type() {
+        return type;
+    }
+
+    /* (non-Javadoc)
+     * @see com.blockwithme.prim.Converter#bits()
+     */
+    @Override
+    public int bits() {
+        return bits;
+    }
+
+    @Override
+    public long fromObject(final E obj) {
+        try {
+            return (long) pack.invokeExact((Object) obj);
+        } catch (final RuntimeException | Error e) {
+            throw e;
+        } catch (final Throwable t) {
+            throw new UndeclaredThrowableException(t);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public E toObject(final long value) {
+        try {
+            final Object result = (Object) unpack.invokeExact(value);
+            return (E) result;
+        } catch (final RuntimeException | Error e) {
+            throw e;
+        } catch (final Throwable t) {
+            throw new UndeclaredThrowableException(t);
+        }
+    }
+}
@@ -0,0 +1,213 @@
+/*
+ * Copyright (C) 2013 Sebastien Diot.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.blockwithme.prim;
+
+/**
+ * <code>Pipelines</code> composes converter stages into a single converter.
+ *
+ * For example, String to Base40 to long to int becomes an
+ * IntConverter&lt;String&gt;. Where adjacent stages offer a direct primitive
+ * path, they are fused, so that no intermediate object is created:
+ * a StringConverter followed by a TextLongConverter using that same
+ * StringConverter becomes a direct text to long conversion, and a
+ * LongConverter followed by a LongIntConverter avoids boxing the long.
+ *
+ * @author monster
+ */
+public final class Pipelines {
+
+    /** String to E to long. */
+    private static final class TextLong<E> implements LongConverter<String> {
+        /** The first stage. */
+        private final StringConverter<E> text;
+        /** The second stage. */
+        private final LongConverter<E> value;
+
+        /** Constructor */
+        TextLong(final StringConverter<E> theText,
+                final LongConverter<E> theValue) {
+            text = theText;
+            value = theValue;
+        }
+
+        @Override
+        public Class<String> type() {
+            return String.class;
+        }
+
+        @Override
+        public int bits() {
+            return value.bits();
+        }
+
+        @Override
+        public long fromObject(final String obj) {
+            return value.fromObject(text.toObject(obj));
+        }
+
+        @Override
+        public String toObject(final long v) {
+            return text.fromObject(value.toObject(v));
+        }
+    }
+
+    /** String to long, fused. */
+    private static final class FusedTextLong<E> implements
+            LongConverter<String> {
+        /** The fused stages. */
+        private final TextLongConverter<E> value;
+
+        /** Constructor */
+        FusedTextLong(final TextLongConverter<E> theValue) {
+            value = theValue;
+        }
+
+        @Override
+        public Class<String> type() {
+            return String.class;
+        }
+
+        @Override
+        public int bits() {
+            return value.bits();
+        }
+
+        @Override
+        public long fromObject(final String obj) {
+            return value.textToLong(obj);
+        }
+
+        @Override
+        public String toObject(final long v) {
+            return value.longToText(v);
+        }
+    }
+
+    /** E to long to int. */
+    private static final class LongInt<E> implements IntConverter<E> {
+        /** The first stage. */
+        private final LongConverter<E> first;
+        /** The second stage. */
+        private final IntConverter<Long> second;
+
+        /** Constructor */
+        LongInt(final LongConverter<E> theFirst,
+                final IntConverter<Long> theSecond) {
+            first = theFirst;
+            second = theSecond;
+        }
+
+        @Override
+        public Class<E> type() {
+            return first.type();
+        }
+
+        @Override
+        public int bits() {
+            return second.bits();
+        }
+
+        @Override
+        public int fromObject(final E obj) {
+            return second.fromObject(first.fromObject(obj));
+        }
+
+        @Override
+        public E toObject(final int value) {
+            return first.toObject(second.toObject(value));
+        }
+    }
+
+    /** E to int, fused. */
+    private static final class FusedLongInt<E> implements IntConverter<E> {
+        /** The first stage. */
+        private final LongConverter<E> first;
+        /** The second stage. */
+        private final LongIntConverter second;
+
+        /** Constructor */
+        FusedLongInt(final LongConverter<E> theFirst,
+                final LongIntConverter theSecond) {
+            first = theFirst;
+            second = theSecond;
+        }
+
+        @Override
+        public Class<E> type() {
+            return first.type();
+        }
+
+        @Override
+        public int bits() {
+            return second.bits();
+        }
+
+        @Override
+        public int fromObject(final E obj) {
+            return second.longToInt(first.fromObject(obj));
+        }
+
+        @Override
+        public E toObject(final int value) {
+            return first.toObject(second.intToLong(value));
+        }
+    }
+
+    /** No instances. */
+    private Pipelines() {
+        // NOP
+    }
+
+    /** Checks that a stage is not null. */
+    private static void check(final String name, final Converter<?> stage) {
+        if (stage == null) {
+            throw new IllegalArgumentException(name + " is null");
+        }
+    }
+
+    /** Composes String to E, and E to long, into String to long. */
+    public static <E> LongConverter<String> compose(
+            final StringConverter<E> text, final LongConverter<E> value) {
+        check("text", text);
+        check("value", value);
+        if ((value instanceof TextLongConverter<?>)
+                && (((TextLongConverter<E>) value).textConverter() == text)) {
+            return new FusedTextLong<E>((TextLongConverter<E>) value);
+        }
+        return new TextLong<E>(text, value);
+    }
+
+    /** Composes E to long, and long to int, into E to int. */
+    public static <E> IntConverter<E> compose(final LongConverter<E> first,
+            final IntConverter<Long> second) {
+        check("first", first);
+        check("second", second);
+        if (second instanceof LongIntConverter) {
+            return new FusedLongInt<E>(first, (LongIntConverter) second);
+        }
+        return new LongInt<E>(first, second);
+    }
+
+    /**
+     * Composes String to E, E to long, and long to int, into String to int.
+     */
+    public static <E> IntConverter<String> compose(
+            final StringConverter<E> text, final LongConverter<E> value,
+            final IntConverter<Long> narrow) {
+        return compose(compose(text, value), narrow);
+    }
+}
@@ -0,0 +1,43 @@
+/*
+ * Copyright (C) 2013 Sebastien Diot.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.blockwithme.prim;
+
+/**
+ * <code>TextLongConverter</code> is a LongConverter of objects that also have
+ * a text form, and that can convert directly between the text form and the
+ * long, without creating the object. Pipelines uses it to fuse a
+ * StringConverter stage with a LongConverter stage.
+ */
+public interface TextLongConverter<E> extends LongConverter<E> {
+    /**
+     * Returns the StringConverter defining the text form. The same instance
+     * must be returned on every call.
+     */
+    StringConverter<E> textConverter();
+
+    /**
+     * Converts from the text form. Must be equivalent to
+     * fromObject(textConverter().toObject(text)).
+     */
+    long textToLong(final String text);
+
+    /**
+     * Converts to the text form. Must be equivalent to
+     * textConverter().fromObject(toObject(value)).
+     */
+    String longToText(final long value);
+}
@@ -165,6 +165,30 @@ public interface Properties<TIME extends Comparable<TIME>> extends
     void set(final Properties<TIME> setter, final String path,
             final Object value, final TIME when, final boolean forceWrite);
 
+    /** Same as findRaw(String, boolean), but with a pre-parsed path. */
+    <E> E findRaw(final PropertyPath path, final boolean executeGenerators);
+
+    /** Same as find(String, Class, E), but with a pre-parsed path. */
+    <E> E find(final PropertyPath path, final Class<E> type,
+            final E defaultValue);
+
+    /** Same as find(String, Class), but with a pre-parsed path. */
+    <E> E find(final PropertyPath path, final Class<E> type);
+
+    /** Same as get(String, Class), but with a pre-parsed path. */
+    <E> E get(final PropertyPath path, final Class<E> type);
+
+    /** Same as set(Properties, String, Object), but with a pre-parsed path. */
+    void set(final Properties<TIME> setter, final PropertyPath path,
+            final Object value);
+
+    /**
+     * Same as set(Properties, String, Object, TIME, boolean), but with a
+     * pre-parsed path.
+     */
+    void set(final Properties<TIME> setter, final PropertyPath path,
+            final Object value, final TIME when, final boolean forceWrite);
+
     /** Clears the list back to empty, with optional filter. */
     void clear(final Properties<TIME> setter, final Filter query);
 
@@ -0,0 +1,174 @@
+/*
+ * Copyright (C) 2013 Sebastien Diot.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.blockwithme.properties;
+
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A pre-parsed Properties path.
+ *
+ * The path is parsed, and every local key validated, once, when the
+ * PropertyPath is created. The local keys are interned. Looking up a
+ * PropertyPath then does no parsing, and creates no garbage, so paths that
+ * are used repeatedly should be compiled once, and kept in a constant.
+ *
+ * The root path (/) is an absolute path without local keys.
+ *
+ * @author monster
+ */
+public final class PropertyPath {
+
+    /** The root path. */
+    public static final PropertyPath ROOT = new PropertyPath(
+            String.valueOf(Properties.SEPATATOR), true, new String[0]);
+
+    /** Static cache. */
+    private static final ConcurrentHashMap<String, PropertyPath> CACHE = new ConcurrentHashMap<>();
+
+    /** The original path. */
+    private final String path;
+
+    /** Is this an absolute path? */
+    private final boolean absolute;
+
+    /** The interned local keys. */
+    private final String[] localKeys;
+
+    /** Validates a local key. */
+    public static void checkLocalKey(final String localKey,
+            final String designation, final String fullPath) {
+        if (localKey == null) {
+            throw new IllegalArgumentException(designation + " is null");
+        }
+        if (localKey.isEmpty()) {
+            throw new IllegalArgumentException(designation + " is empty");
+        }
+        final int length = localKey.length();
+        for (int i = 0; i < length; i++) {
+            final char c = localKey.charAt(i);
+            final boolean lower = (c >= 'a') && (c <= 'z');
+            final boolean upper = (c >= 'A') && (c <= 'Z');
+            final boolean digit = (c >= '0') && (c <= '9');
+            final boolean other = ((c == '_') || (c == '$'));
+            if (!(lower || upper || digit) || other) {
+                throw new IllegalArgumentException(designation + "(" + fullPath
+                        + ") contains illegal character: '" + c + "'");
+            }
+        }
+    }
+
+    /** Creates a PropertyPath. */
+    private PropertyPath(final String thePath, final boolean theAbsolute,
+            final String[] theLocalKeys) {
+        path = thePath;
+        absolute = theAbsolute;
+        localKeys = theLocalKeys;
+    }
+
+    /** Parses, and validates, a path. */
+    public static PropertyPath of(final String path) {
+        Objects.requireNonNull(path, "path");
+        if (ROOT.path.equals(path)) {
+            return ROOT;
+        }
+        final boolean absolute = (!path.isEmpty() && (path.charAt(0) == Properties.SEPATATOR));
+        int start = absolute ? 1 : 0;
+        int count = 1;
+        for (int i = start; i < path.length(); i++) {
+            if (path.charAt(i) == Properties.SEPATATOR) {
+                count++;
+            }
+        }
+        final String[] localKeys = new String[count];
+        for (int i = 0; i < count; i++) {
+            int end = path.indexOf(Properties.SEPATATOR, start);
+            if (end < 0) {
+                end = path.length();
+            }
+            final String localKey = path.substring(start, end);
+            if (localKey.isEmpty()) {
+                if (i == count - 1) {
+                    throw new IllegalArgumentException("path cannot end with "
+                            + Properties.SEPATATOR);
+                }
+                throw new IllegalArgumentException("component of path "
+                        + path + " is empty");
+            }
+            checkLocalKey(localKey, "path component", path);
+            localKeys[i] = localKey.intern();
+            start = end + 1;
+        }
+        return new PropertyPath(path, absolute, localKeys);
+    }
+
+    /** Returns a statically cached PropertyPath. */
+    public static PropertyPath cache(final String path) {
+        PropertyPath result = CACHE.get(path);
+        if (result == null) {
+            final PropertyPath newPath = of(path);
+            result = CACHE.putIfAbsent(path, newPath);
+            if (result == null) {
+                result = newPath;
+            }
+        }
+        return result;
+    }
+
+    /** Is this an absolute path? */
+    public boolean absolute() {
+        return absolute;
+    }
+
+    /** Returns the number of local keys. */
+    public int size() {
+        return localKeys.length;
+    }
+
+    /** Returns the (interned) local key at the given index. */
+    public String localKey(final int index) {
+        return localKeys[index];
+    }
+
+    /** Returns the last local key, or "" for the root path. */
+    public String localKey() {
+        return (localKeys.length == 0) ? "" : localKeys[localKeys.length - 1];
+    }
+
+    /** toString */
+    @Override
+    public String toString() {
+        return path;
+    }
+
+    /* (non-Javadoc)
+     * @see java.lang.Object#hashCode()
+     */
+    @Override
+    public int hashCode() {
+        return path.hashCode();
+    }
+
+    /* (non-Javadoc)
+     * @see java.lang.Object#equals(java.lang.Object)
+     */
+    @Override
+    public boolean equals(final Object obj) {
+        return (obj instanceof PropertyPath)
+                && path.equals(((PropertyPath) obj).path);
+    }
+}
@@ -0,0 +1,268 @@
+/*
+ * Copyright (C) 2013 Sebastien Diot.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.blockwithme.properties.impl;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import com.blockwithme.properties.Properties;
+
+/**
+ * Collects the property changes of a graph into batches, and delivers them
+ * to the matching subscriptions.
+ *
+ * Changes are coalesced per path until flush() is called: only the first old
+ * value and the last new value are kept, and properties that changed back to
+ * their old value are dropped. Changes are delivered in the order their
+ * path was first recorded.
+ *
+ * Recording is thread-safe, and does not lock: the changes go into a
+ * ConcurrentHashMap, and the path is only concatenated by flush(). flush()
+ * swaps in a new map, and waits for the writers still using the old one.
+ *
+ * @author monster
+ */
+final class ChangeNotifier {
+
+    /** The subscriptions. */
+    private final CopyOnWriteArrayList<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+
+    /** Orders the recorded changes. */
+    private static final Comparator<Recorded> ORDER = new Comparator<Recorded>() {
+        @Override
+        public int compare(final Recorded r1, final Recorded r2) {
+            return Long.compare(r1.order, r2.order);
+        }
+    };
+
+    /** The path of a change: the path of the Properties, and the local key. */
+    private static final class Path {
+        /** The path of the Properties. */
+        final String parent;
+        /** The local key. */
+        final String localKey;
+
+        /** Constructor */
+        Path(final String theParent, final String theLocalKey) {
+            parent = theParent;
+            localKey = theLocalKey;
+        }
+
+        /* (non-Javadoc)
+         * @see java.lang.Object#hashCode()
+         */
+        @Override
+        public int hashCode() {
+            return parent.hashCode() * 31 + localKey.hashCode();
+        }
+
+        /* (non-Javadoc)
+         * @see java.lang.Object#equals(java.lang.Object)
+         */
+        @Override
+        public boolean equals(final Object obj) {
+            if (!(obj instanceof Path)) {
+                return false;
+            }
+            final Path other = (Path) obj;
+            return parent.equals(other.parent)
+                    && localKey.equals(other.localKey);
+        }
+
+        /** toString */
+        @Override
+        public String toString() {
+            return PropertiesImpl.ROOT_PATH.equals(parent) ? parent + localKey
+                    : parent + Properties.SEPATATOR + localKey;
+        }
+    }
+
+    /** A coalesced change, not yet delivered. */
+    private static final class Recorded {
+        /** When the path was first recorded. */
+        final long order;
+        /** The path. */
+        final Path path;
+        /** The first old value. */
+        final Object oldValue;
+        /** The last new value. */
+        final Object newValue;
+
+        /** Constructor */
+        Recorded(final long theOrder, final Path thePath,
+                final Object theOldValue, final Object theNewValue) {
+            order = theOrder;
+            path = thePath;
+            oldValue = theOldValue;
+            newValue = theNewValue;
+        }
+    }
+
+    /** The changes recorded between two flushes. */
+    private static final class Batch {
+        /** The changes, by path. */
+        final ConcurrentHashMap<Path, Recorded> changes = new ConcurrentHashMap<>();
+        /** The number of writers currently recording into this batch. */
+        final AtomicInteger writers = new AtomicInteger();
+    }
+
+    /** The changes since the last flush. */
+    private final AtomicReference<Batch> pending = new AtomicReference<>(
+            new Batch());
+
+    /** Gives the order of the recorded paths. */
+    private final AtomicLong sequence = new AtomicLong();
+
+    /** Merges changes into a coalesced batch. */
+    static void merge(final Map<String, PropertyChange> batch,
+            final List<PropertyChange> changes) {
+        for (final PropertyChange change : changes) {
+            final PropertyChange first = batch.get(change.path());
+            if (first == null) {
+                batch.put(change.path(), change);
+            } else {
+                batch.put(change.path(), new PropertyChange(change.path(),
+                        first.oldValue(), change.newValue()));
+            }
+        }
+    }
+
+    /** Returns the changes of the batch that actually change the value. */
+    static List<PropertyChange> effective(
+            final Map<String, PropertyChange> batch) {
+        final List<PropertyChange> result = new ArrayList<>(batch.size());
+        for (final PropertyChange change : batch.values()) {
+            if (!Objects.equals(change.oldValue(), change.newValue())) {
+                result.add(change);
+            }
+        }
+        return result;
+    }
+
+    /** Returns true if there are subscriptions. */
+    boolean active() {
+        return !subscriptions.isEmpty();
+    }
+
+    /** Adds a subscription. */
+    Subscription subscribe(final String pathPrefix,
+            final ChangeListener listener, final Executor executor) {
+        final Subscription result = new Subscription(pathPrefix, listener,
+                executor, this);
+        subscriptions.add(result);
+        return result;
+    }
+
+    /** Removes a subscription. */
+    void remove(final Subscription subscription) {
+        subscriptions.remove(subscription);
+    }
+
+    /**
+     * Records a change of the local key, in the Properties with the given
+     * absolute path.
+     */
+    void record(final String parentPath, final String localKey,
+            final Object oldValue, final Object newValue) {
+        final Path path = new Path(parentPath, localKey);
+        while (true) {
+            final Batch batch = pending.get();
+            batch.writers.incrementAndGet();
+            try {
+                // If flush() swapped the batch in the meantime, it might
+                // already have read it, so we must use the new one.
+                if (pending.get() == batch) {
+                    record(batch.changes, path, oldValue, newValue);
+                    return;
+                }
+            } finally {
+                batch.writers.decrementAndGet();
+            }
+        }
+    }
+
+    /** Coalesces a change into the changes of a batch. */
+    private void record(final ConcurrentHashMap<Path, Recorded> changes,
+            final Path path, final Object oldValue, final Object newValue) {
+        Recorded first = changes.get(path);
+        while (true) {
+            if (first == null) {
+                first = changes.putIfAbsent(path, new Recorded(sequence
+                        .getAndIncrement(), path, oldValue, newValue));
+                if (first == null) {
+                    return;
+                }
+            } else if (changes.replace(path, first, new Recorded(first.order,
+                    path, first.oldValue, newValue))) {
+                return;
+            } else {
+                first = changes.get(path);
+            }
+        }
+    }
+
+    /** Delivers the batched changes to the matching subscriptions. */
+    void flush() {
+        final Batch batch = pending.get();
+        if (batch.changes.isEmpty()
+                || !pending.compareAndSet(batch, new Batch())) {
+            // Nothing to do, or flushed concurrently
+            return;
+        }
+        while (batch.writers.get() != 0) {
+            // Writers never block, so they are done soon
+            Thread.yield();
+        }
+        final Recorded[] recorded = batch.changes.values().toArray(
+                new Recorded[batch.changes.size()]);
+        Arrays.sort(recorded, ORDER);
+        final List<PropertyChange> changes = new ArrayList<>(recorded.length);
+        for (final Recorded r : recorded) {
+            if (!Objects.equals(r.oldValue, r.newValue)) {
+                changes.add(new PropertyChange(r.path.toString(),
+                        r.oldValue, r.newValue));
+            }
+        }
+        if (changes.isEmpty()) {
+            return;
+        }
+        for (final Subscription subscription : subscriptions) {
+            List<PropertyChange> matching = null;
+            for (final PropertyChange change : changes) {
+                if (subscription.matches(change.path())) {
+                    if (matching == null) {
+                        matching = new ArrayList<>();
+                    }
+                    matching.add(change);
+                }
+            }
+            if (matching != null) {
+                subscription.enqueue(matching);
+            }
+        }
+    }
+}
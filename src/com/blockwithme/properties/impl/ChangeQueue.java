@@ -0,0 +1,135 @@
+/*
+ * Copyright (C) 2013 Sebastien Diot.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.blockwithme.properties.impl;
+
+import java.util.Arrays;
+
+/**
+ * Array-backed binary min-heap of future changes, ordered by time.
+ *
+ * Changes with the same time are returned in the order they were added.
+ * Adding and removing a change is O(log n), and no object is allocated per
+ * change, except when the arrays grow.
+ *
+ * @author monster
+ */
+final class ChangeQueue<TIME extends Comparable<TIME>> {
+
+    /** The initial capacity. */
+    private static final int INITIAL_CAPACITY = 16;
+
+    /** The changes, in heap order. */
+    private Change<TIME>[] changes;
+
+    /** The sequence numbers of the changes, to keep same-time order. */
+    private long[] sequences;
+
+    /** The number of changes. */
+    private int size;
+
+    /** The next sequence number. */
+    private long nextSequence;
+
+    /** Creates an empty queue. */
+    @SuppressWarnings("unchecked")
+    ChangeQueue() {
+        changes = (Change<TIME>[]) new Change<?>[INITIAL_CAPACITY];
+        sequences = new long[INITIAL_CAPACITY];
+    }
+
+    /** Returns true if the change at i comes before the change at j. */
+    private boolean before(final int i, final int j) {
+        final int cmp = changes[i].when.compareTo(changes[j].when);
+        return (cmp < 0) || ((cmp == 0) && (sequences[i] < sequences[j]));
+    }
+
+    /** Swaps the changes at i and j. */
+    private void swap(final int i, final int j) {
+        final Change<TIME> change = changes[i];
+        changes[i] = changes[j];
+        changes[j] = change;
+        final long sequence = sequences[i];
+        sequences[i] = sequences[j];
+        sequences[j] = sequence;
+    }
+
+    /** Returns the number of changes. */
+    int size() {
+        return size;
+    }
+
+    /** Adds a change. */
+    void add(final Change<TIME> change) {
+        if (size == changes.length) {
+            changes = Arrays.copyOf(changes, size * 2);
+            sequences = Arrays.copyOf(sequences, size * 2);
+        }
+        int i = size++;
+        changes[i] = change;
+        sequences[i] = nextSequence++;
+        while (i > 0) {
+            final int parent = (i - 1) >>> 1;
+            if (!before(i, parent)) {
+                break;
+            }
+            swap(i, parent);
+            i = parent;
+        }
+    }
+
+    /**
+     * Removes and returns the first change, if it's time is not after the
+     * given time. Otherwise returns null.
+     */
+    Change<TIME> poll(final TIME until) {
+        if ((size == 0) || (changes[0].when.compareTo(until) > 0)) {
+            return null;
+        }
+        final Change<TIME> result = changes[0];
+        final int last = --size;
+        changes[0] = changes[last];
+        sequences[0] = sequences[last];
+        changes[last] = null;
+        int i = 0;
+        while (true) {
+            final int left = 2 * i + 1;
+            if (left >= size) {
+                break;
+            }
+            final int right = left + 1;
+            final int child = ((right < size) && before(right, left)) ? right
+                    : left;
+            if (!before(child, i)) {
+                break;
+            }
+            swap(i, child);
+            i = child;
+        }
+        if ((size == 0) && (changes.length > INITIAL_CAPACITY)) {
+            // Release the memory, after a burst of changes
+            trim();
+        }
+        return result;
+    }
+
+    /** Shrinks the arrays back to the initial capacity. */
+    @SuppressWarnings("unchecked")
+    private void trim() {
+        changes = (Change<TIME>[]) new Change<?>[INITIAL_CAPACITY];
+        sequences = new long[INITIAL_CAPACITY];
+    }
+}
@@ -15,10 +15,10 @@
  */
 package com.blockwithme.properties.impl;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.IdentityHashMap;
 import java.util.Objects;
-import java.util.TreeMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
 
 import com.blockwithme.meta.meta.Concept;
 import com.blockwithme.properties.Graph;
@@ -29,25 +29,55 @@ import com.blockwithme.properties.Properties;
  *
  * It must manage the time, and the postponed updates.
  *
+ * The time and the postponed updates are thread-safe. For the whole graph to
+ * be thread-safe, it must use Storage.CONCURRENT. Note that readers can then
+ * see the buffered updates of a time change being applied one at a time.
+ *
  * @author monster
  */
 public class GraphImpl<TIME extends Comparable<TIME>> implements Graph<TIME>,
         ImplGraph<TIME> {
 
     /** Buffered future changes. */
-    private final TreeMap<TIME, List<Change<TIME>>> changes = new TreeMap<>();
+    private final ChangeQueue<TIME> changes = new ChangeQueue<>();
 
     /** The graph root. */
-    private Properties<TIME> root;
+    private volatile Properties<TIME> root;
+
+    /** The current time. Only changed while holding the changes lock. */
+    private volatile TIME now;
+
+    /** The storage used by the Properties of this graph. */
+    private final Storage storage;
+
+    /** The change listeners. */
+    private final ChangeNotifier notifier = new ChangeNotifier();
 
-    /** The current time. */
-    private TIME now;
+    /** Incremented whenever cached paths become invalid. */
+    private final AtomicLong pathsVersion = new AtomicLong();
 
     /**
      * @param now
      */
     public GraphImpl(final TIME now) {
+        this(now, Storage.SORTED);
+    }
+
+    /**
+     * @param now
+     * @param storage the storage used by the Properties of this graph
+     */
+    public GraphImpl(final TIME now, final Storage storage) {
         this.now = Objects.requireNonNull(now, "now");
+        this.storage = Objects.requireNonNull(storage, "storage");
+    }
+
+    /* (non-Javadoc)
+     * @see com.blockwithme.properties.impl.ImplGraph#storage()
+     */
+    @Override
+    public final Storage storage() {
+        return storage;
     }
 
     /* (non-Javadoc)
@@ -70,32 +100,74 @@ public class GraphImpl<TIME extends Comparable<TIME>> implements Graph<TIME>,
     @Override
     public final void setTime(final TIME newTime) {
         Objects.requireNonNull(newTime, "newTime");
-        final int cmp = now.compareTo(newTime);
-        if (cmp > 0) {
-            throw new IllegalArgumentException("Time cannot go backward: now="
-                    + now + " newTime=" + newTime);
-        }
-        if (cmp < 0) {
-            // Perform buffered updates
-            for (final TIME when : new ArrayList<>(changes.keySet())) {
-                if (newTime.compareTo(when) >= 0) {
-                    for (final Change<TIME> change : changes.remove(when)) {
-                        change.perform();
-                    }
+        synchronized (changes) {
+            final int cmp = now.compareTo(newTime);
+            if (cmp > 0) {
+                throw new IllegalArgumentException(
+                        "Time cannot go backward: now=" + now + " newTime="
+                                + newTime);
+            }
+            if (cmp < 0) {
+                // Perform buffered updates, in time order. Only the due
+                // changes are visited.
+                Change<TIME> change = changes.poll(newTime);
+                while (change != null) {
+                    change.perform();
+                    change = changes.poll(newTime);
                 }
+                now = newTime;
+            }
+        }
+        // One batch per time change
+        flushChanges();
+    }
+
+    /**
+     * Records a future change. Returns false if the time of the change was
+     * reached in the meantime, in which case it must be performed now.
+     */
+    private boolean recordChange(final Change<TIME> change) {
+        synchronized (changes) {
+            if (now.compareTo(change.when) >= 0) {
+                return false;
+            }
+            changes.add(change);
+            return true;
+        }
+    }
+
+    /**
+     * Takes an immutable snapshot of the graph. The root must be a
+     * PropertiesImpl.
+     *
+     * Only buffered (timed) changes are atomic with respect to snapshots:
+     * they are not applied while the snapshot is taken. Direct set() calls
+     * are not excluded, so with concurrent writers the snapshot can contain
+     * some of their changes and not others; every single Properties is still
+     * consistent in itself.
+     *
+     * The cost is O(graph): every reachable Properties is visited, to check
+     * if it changed. Unchanged Properties reuse their last snapshot, so only
+     * changed ones are copied.
+     */
+    @SuppressWarnings("unchecked")
+    public final GraphSnapshot<TIME> snapshot() {
+        synchronized (changes) {
+            final Properties<TIME> r = root;
+            if (!(r instanceof PropertiesImpl)) {
+                throw new IllegalStateException(
+                        "root is not a PropertiesImpl: " + r);
             }
-            now = newTime;
+            return new GraphSnapshot<>(now, ((PropertiesImpl<TIME>) r)
+                    .snapshot(new IdentityHashMap<PropertiesImpl<?>, PropertiesSnapshot>()));
         }
     }
 
-    /** Records a future change. */
-    private void recordChange(final Change<TIME> change) {
-        List<Change<TIME>> changeList = changes.get(change.when);
-        if (changeList == null) {
-            changeList = new ArrayList<>();
-            changes.put(change.when, changeList);
+    /** Returns the number of buffered future changes. */
+    public final int pendingChanges() {
+        synchronized (changes) {
+            return changes.size();
         }
-        changeList.add(change);
     }
 
     /* (non-Javadoc)
@@ -117,7 +189,9 @@ public class GraphImpl<TIME extends Comparable<TIME>> implements Graph<TIME>,
             change.setter = setter;
             change.forceWrite = forceWrite;
             change.when = when;
-            recordChange(change);
+            if (!recordChange(change)) {
+                change.perform();
+            }
         }
     }
 
@@ -126,23 +200,45 @@ public class GraphImpl<TIME extends Comparable<TIME>> implements Graph<TIME>,
      */
     @Override
     public final void onFutureChange(final Change<TIME> change) {
-        if (now.compareTo(change.when) >= 0) {
-            // OK time was past/present, so perform now
+        // Save for later, unless time was past/present
+        if (!recordChange(change)) {
             change.perform();
-        } else {
-            // Save for later
-            recordChange(change);
         }
     }
 
-    /* (non-Javadoc)
-     * @see com.blockwithme.properties.impl.Graph#onChange(com.blockwithme.properties.Properties, com.blockwithme.properties.Properties, java.lang.String, java.lang.Object, java.lang.Object)
+    /**
+     * Records the change for the listeners, if any. Sub-classes overriding
+     * this method must call it, if they want the listeners to work.
+     * Changes of Properties that are not (yet) attached to the root are not
+     * recorded.
      */
     @Override
     public void onChange(final Properties<TIME> setter,
             final Properties<TIME> properties, final String localKey,
             final Object oldValue, final Object newValue) {
-        // NOP
+        if (notifier.active() && (properties instanceof PropertiesImpl)) {
+            final String path = ((PropertiesImpl<TIME>) properties).path();
+            if (path != null) {
+                notifier.record(path, localKey, oldValue, newValue);
+            }
+        }
+    }
+
+    /* (non-Javadoc)
+     * @see com.blockwithme.properties.impl.ImplGraph#subscribe(java.lang.String, com.blockwithme.properties.impl.ChangeListener, java.util.concurrent.Executor)
+     */
+    @Override
+    public final Subscription subscribe(final String pathPrefix,
+            final ChangeListener listener, final Executor executor) {
+        return notifier.subscribe(pathPrefix, listener, executor);
+    }
+
+    /* (non-Javadoc)
+     * @see com.blockwithme.properties.impl.ImplGraph#flushChanges()
+     */
+    @Override
+    public final void flushChanges() {
+        notifier.flush();
     }
 
     /* (non-Javadoc)
@@ -168,9 +264,26 @@ public class GraphImpl<TIME extends Comparable<TIME>> implements Graph<TIME>,
     @Override
     public ImplGraph<TIME> root(final Properties<TIME> theRoot) {
         root = theRoot;
+        invalidatePaths();
         return this;
     }
 
+    /* (non-Javadoc)
+     * @see com.blockwithme.properties.impl.ImplGraph#pathsVersion()
+     */
+    @Override
+    public final long pathsVersion() {
+        return pathsVersion.get();
+    }
+
+    /* (non-Javadoc)
+     * @see com.blockwithme.properties.impl.ImplGraph#invalidatePaths()
+     */
+    @Override
+    public final void invalidatePaths() {
+        pathsVersion.incrementAndGet();
+    }
+
     /* (non-Javadoc)
      * @see com.blockwithme.properties.Graph#concepts()
      */
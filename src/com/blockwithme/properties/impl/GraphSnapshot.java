@@ -0,0 +1,96 @@
+/*
+ * Copyright (C) 2013 Sebastien Diot.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.blockwithme.properties.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+import com.blockwithme.properties.Properties;
+import com.blockwithme.properties.PropertyPath;
+
+/**
+ * Immutable snapshot of a Properties graph, at some time.
+ *
+ * See GraphImpl.snapshot() for which changes the snapshot is atomic with.
+ *
+ * @author monster
+ */
+public final class GraphSnapshot<TIME extends Comparable<TIME>> {
+
+    /** The time of the graph, when the snapshot was taken. */
+    private final TIME time;
+
+    /** The snapshot of the root. */
+    private final PropertiesSnapshot root;
+
+    /** Creates a graph snapshot. */
+    GraphSnapshot(final TIME time, final PropertiesSnapshot root) {
+        this.time = time;
+        this.root = root;
+    }
+
+    /** Returns the time of the graph, when the snapshot was taken. */
+    public TIME time() {
+        return time;
+    }
+
+    /** Returns the snapshot of the root. */
+    public PropertiesSnapshot root() {
+        return root;
+    }
+
+    /**
+     * Returns the raw value of the path, from the root, or null. Child
+     * Properties are returned as PropertiesSnapshot, and other Properties as
+     * PropertiesReference. References within the path are followed.
+     */
+    public Object findRaw(final PropertyPath path) {
+        Object result = root;
+        for (int i = 0; i < path.size(); i++) {
+            if (result instanceof PropertiesReference) {
+                final String target = ((PropertiesReference) result).path();
+                result = (target == null) ? null : root.findRaw(PropertyPath
+                        .of(target));
+            }
+            if (!(result instanceof PropertiesSnapshot)) {
+                return null;
+            }
+            result = ((PropertiesSnapshot) result).findRaw(path.localKey(i));
+        }
+        return result;
+    }
+
+    /**
+     * Returns the absolute paths of the properties that were added, removed
+     * or changed, between this snapshot and the other (later) snapshot.
+     * Unchanged, shared, sub-trees are skipped.
+     */
+    public List<String> diff(final GraphSnapshot<TIME> later) {
+        Objects.requireNonNull(later, "later");
+        final List<String> result = new ArrayList<>();
+        PropertiesSnapshot.diff(String.valueOf(Properties.SEPATATOR), root,
+                later.root, result);
+        return result;
+    }
+
+    /** toString */
+    @Override
+    public String toString() {
+        return "GraphSnapshot(" + time + ", " + root + ")";
+    }
+}
@@ -0,0 +1,178 @@
+/*
+ * Copyright (C) 2013 Sebastien Diot.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.blockwithme.properties.impl;
+
+import java.util.Arrays;
+import java.util.Iterator;
+
+/**
+ * LocalStorage based on an open-addressing (linear probing) hash table.
+ *
+ * The keys are interned, so that lookups with interned keys (for example,
+ * from a PropertyPath) usually match on identity. Since properties are never
+ * removed, no tombstones are needed. The sorted key order is only computed
+ * when iterating, and kept until a new key is added.
+ *
+ * @author monster
+ */
+final class HashedStorage<V> extends LocalStorage<V> {
+
+    /** The initial capacity. Must be a power of two. */
+    private static final int INITIAL_CAPACITY = 8;
+
+    /** The keys. Null means free slot. */
+    private String[] keys = new String[INITIAL_CAPACITY];
+
+    /** The values, in the same slot as their key. */
+    private Object[] values = new Object[INITIAL_CAPACITY];
+
+    /** The number of keys. */
+    private int size;
+
+    /** The sorted keys, or null if not computed yet. */
+    private String[] sorted;
+
+    /** Spreads the String hash, since we use the low bits. */
+    private static int hash(final String localKey) {
+        final int h = localKey.hashCode();
+        return h ^ (h >>> 16);
+    }
+
+    /** Returns the slot of the key, or -(free slot + 1) if absent. */
+    private int slotOf(final String localKey) {
+        final int mask = keys.length - 1;
+        int slot = hash(localKey) & mask;
+        while (true) {
+            final String key = keys[slot];
+            if (key == null) {
+                return -(slot + 1);
+            }
+            if ((key == localKey) || key.equals(localKey)) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    /** Doubles the capacity. */
+    private void grow() {
+        final String[] oldKeys = keys;
+        final Object[] oldValues = values;
+        keys = new String[oldKeys.length * 2];
+        values = new Object[oldKeys.length * 2];
+        for (int i = 0; i < oldKeys.length; i++) {
+            final String key = oldKeys[i];
+            if (key != null) {
+                final int slot = -(slotOf(key) + 1);
+                keys[slot] = key;
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    /* (non-Javadoc)
+     * @see com.blockwithme.properties.impl.LocalStorage#get(java.lang.String)
+     */
+    @SuppressWarnings("unchecked")
+    @Override
+    V get(final String localKey) {
+        final int slot = slotOf(localKey);
+        return (slot < 0) ? null : (V) values[slot];
+    }
+
+    /* (non-Javadoc)
+     * @see com.blockwithme.properties.impl.LocalStorage#put(java.lang.String, java.lang.Object)
+     */
+    @Override
+    void put(final String localKey, final V value) {
+        int slot = slotOf(localKey);
+        if (slot >= 0) {
+            values[slot] = value;
+            return;
+        }
+        // Keep the load factor at most 3/4
+        if (4 * (size + 1) > 3 * keys.length) {
+            grow();
+            slot = slotOf(localKey);
+        }
+        slot = -(slot + 1);
+        keys[slot] = localKey.intern();
+        values[slot] = value;
+        size++;
+        sorted = null;
+    }
+
+    /* (non-Javadoc)
+     * @see com.blockwithme.properties.impl.LocalStorage#size()
+     */
+    @Override
+    int size() {
+        return size;
+    }
+
+    /* (non-Javadoc)
+     * @see com.blockwithme.properties.impl.LocalStorage#keys()
+     */
+    @Override
+    Iterator<String> keys() {
+        // Arrays.asList() iterators do not support remove()
+        return Arrays.asList(sorted()).iterator();
+    }
+
+    /* (non-Javadoc)
+     * @see com.blockwithme.properties.impl.LocalStorage#keys(java.lang.String, java.lang.String)
+     */
+    @Override
+    Iterator<String> keys(final String from, final String to) {
+        final String[] array = sorted();
+        int start = 0;
+        int end = array.length;
+        if (from != null) {
+            start = Arrays.binarySearch(array, from,
+                    NumbersLastStringComparator.CMP);
+            if (start < 0) {
+                start = -(start + 1);
+            }
+        }
+        if (to != null) {
+            end = Arrays.binarySearch(array, to,
+                    NumbersLastStringComparator.CMP);
+            if (end < 0) {
+                end = -(end + 1);
+            }
+        }
+        return Arrays.asList(array).subList(start, Math.max(start, end))
+                .iterator();
+    }
+
+    /** Returns the sorted keys. Must not be modified. */
+    private String[] sorted() {
+        String[] result = sorted;
+        if (result == null) {
+            result = new String[size];
+            int next = 0;
+            for (final String key : keys) {
+                if (key != null) {
+                    result[next++] = key;
+                }
+            }
+            Arrays.sort(result, NumbersLastStringComparator.CMP);
+            sorted = result;
+        }
+        return result;
+    }
+}
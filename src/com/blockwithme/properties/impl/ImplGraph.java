@@ -15,6 +15,8 @@
  */
 package com.blockwithme.properties.impl;
 
+import java.util.concurrent.Executor;
+
 import com.blockwithme.properties.Graph;
 import com.blockwithme.properties.Properties;
 
@@ -25,9 +27,22 @@ import com.blockwithme.properties.Properties;
  */
 public interface ImplGraph<TIME extends Comparable<TIME>> extends Graph<TIME> {
 
+    /** Returns the storage used by the Properties of this graph. */
+    Storage storage();
+
     /** Sets the root. */
     ImplGraph<TIME> root(final Properties<TIME> theRoot);
 
+    /**
+     * Returns a counter, incremented whenever a Properties of this graph is
+     * detached from it's parent, or the root is set. Cached paths are only
+     * valid while it does not change.
+     */
+    long pathsVersion();
+
+    /** Invalidates the cached paths of all the Properties of this graph. */
+    void invalidatePaths();
+
     /** Receives changes that will only be applied in the future. */
     void onFutureChange(final Properties<TIME> setter,
             final Properties<TIME> properties, final String localKey,
@@ -36,7 +51,10 @@ public interface ImplGraph<TIME extends Comparable<TIME>> extends Graph<TIME> {
     /** Receives changes that will only be applied in the future. */
     void onFutureChange(final Change<TIME> change);
 
-    /** Informs the root of changes. */
+    /**
+     * Informs the root of changes. Called while holding the lock of the
+     * changed Properties, so it must not block, nor lock other Properties.
+     */
     void onChange(final Properties<TIME> setter,
             final Properties<TIME> properties, final String localKey,
             final Object oldValue, final Object newValue);
@@ -49,4 +67,19 @@ public interface ImplGraph<TIME extends Comparable<TIME>> extends Graph<TIME> {
     boolean lowerPriority(final Properties<TIME> setter1,
             final Properties<TIME> setter2);
 
+    /**
+     * Subscribes a listener to the changes of all the properties under the
+     * given absolute path prefix. Changes are batched, and delivered on the
+     * executor when flushChanges() is called. Any Executor can be used,
+     * including one running every task in a new (possibly virtual) thread.
+     */
+    Subscription subscribe(final String pathPrefix,
+            final ChangeListener listener, final Executor executor);
+
+    /**
+     * Delivers the changes batched since the last call to the listeners.
+     * Called automatically when the time changes.
+     */
+    void flushChanges();
+
 }
\ No newline at end of file
@@ -19,6 +19,7 @@ import java.util.concurrent.ConcurrentHashMap;
 
 import com.blockwithme.properties.Generator;
 import com.blockwithme.properties.Properties;
+import com.blockwithme.properties.PropertyPath;
 
 /**
  * A link, used as a Property value in a Properties object, simply returns some
@@ -36,10 +37,14 @@ public final class Link implements Generator {
     /** The link path. */
     private final String path;
 
+    /** The pre-parsed link path. */
+    private final PropertyPath compiled;
+
     /** Creates a link with the given path */
     public Link(final String path) {
         PropertiesImpl.checkPath(path, "path");
         this.path = path;
+        this.compiled = PropertyPath.of(path);
     }
 
     /** toString */
@@ -85,7 +90,11 @@ public final class Link implements Generator {
     @Override
     public <E> E generate(final Properties<?> prop, final String name,
             final Class<E> expectedType) {
-        return prop.find(path, expectedType);
+        if (expectedType == null) {
+            // Untyped lookup, for example from Properties.query()
+            return prop.findRaw(compiled, true);
+        }
+        return prop.find(compiled, expectedType);
     }
 
     /** Returned a statically cached Link. */
@@ -0,0 +1,142 @@
+/*
+ * Copyright (C) 2013 Sebastien Diot.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.blockwithme.properties.impl;
+
+import java.lang.reflect.Array;
+import java.util.ArrayList;
+
+import com.blockwithme.properties.Properties;
+
+/**
+ * A Properties used as a list.
+ *
+ * The indexed properties are kept in a dense array (with a sparse map for
+ * indexes far beyond the others), so that append(), nextIndex(),
+ * isEmptyList() and listValues() do not have to parse all the keys. Indexes are keys in canonical decimal form (no sign, no leading zero),
+ * below one billion; other keys are stored like in PropertiesImpl.
+ *
+ * Unlike in PropertiesImpl, an index is considered used if it's value is not
+ * null, even if that value is a Generator that would return null.
+ *
+ * Not supported in graphs using Storage.CONCURRENT.
+ *
+ * @author monster
+ */
+public class ListPropertiesImpl<TIME extends Comparable<TIME>> extends
+        PropertiesImpl<TIME> {
+
+    /** The storage, also available as "properties" in PropertiesImpl. */
+    private final ListStorage<SetterValue<TIME>> list;
+
+    /** Constructs a ListPropertiesImpl. */
+    public ListPropertiesImpl(final ImplGraph<TIME> graph,
+            final String localKey) {
+        this(graph, localKey, null);
+    }
+
+    /** Constructs a ListPropertiesImpl. */
+    public ListPropertiesImpl(final ImplGraph<TIME> graph,
+            final String localKey, final TIME when) {
+        this(graph, localKey, when, new ListStorage<>(graph.storage()
+                .<SetterValue<TIME>> create()));
+    }
+
+    /** Constructs a ListPropertiesImpl, with the given storage. */
+    private ListPropertiesImpl(final ImplGraph<TIME> graph,
+            final String localKey, final TIME when,
+            final ListStorage<SetterValue<TIME>> list) {
+        super(graph, localKey, when, list);
+        if (graph.storage() == Storage.CONCURRENT) {
+            throw new IllegalArgumentException(
+                    "ListPropertiesImpl not supported with Storage.CONCURRENT");
+        }
+        this.list = list;
+    }
+
+    /** Returns the list size: the highest used index, plus one. */
+    public final int size() {
+        MemoGenerator.read(this);
+        return list.listSize();
+    }
+
+    /** Appends a value at the end of the list, and returns it's key. */
+    public final String append(final Properties<TIME> setter,
+            final Object value) {
+        final String result = nextIndex();
+        set(setter, result, value);
+        return result;
+    }
+
+    /* (non-Javadoc)
+     * @see com.blockwithme.properties.impl.PropertiesImpl#localValueSet(java.lang.String, java.lang.Object)
+     */
+    @Override
+    final void localValueSet(final String localKey, final Object value) {
+        list.setNull(localKey, value == null);
+    }
+
+    /* (non-Javadoc)
+     * @see com.blockwithme.properties.impl.PropertiesImpl#nextIndex()
+     */
+    @Override
+    public final String nextIndex() {
+        return String.valueOf(size());
+    }
+
+    /* (non-Javadoc)
+     * @see com.blockwithme.properties.impl.PropertiesImpl#isEmptyList()
+     */
+    @Override
+    public final boolean isEmptyList() {
+        return (size() == 0);
+    }
+
+    /* (non-Javadoc)
+     * @see com.blockwithme.properties.impl.PropertiesImpl#listValues(java.lang.Class, boolean)
+     */
+    @SuppressWarnings("unchecked")
+    @Override
+    public final <E> E[] listValues(final Class<E> expectedType,
+            final boolean onlyIndexed) {
+        if (!onlyIndexed) {
+            return super.listValues(expectedType, onlyIndexed);
+        }
+        MemoGenerator.read(this);
+        final int length = list.listSize();
+        final ArrayList<E> result = new ArrayList<>(Math.min(length,
+                list.size()));
+        for (int i = list.next(0); (i >= 0) && (i < length); i = list
+                .next(i + 1)) {
+            final SetterValue<TIME> sv = list.get(i);
+            if ((sv != null) && (sv.value != null)) {
+                final String key = list.key(i);
+                final Object obj = resolve(sv.value, this, key, expectedType,
+                        true);
+                if (obj != null) {
+                    if (!expectedType.isInstance(obj)) {
+                        throw new IllegalStateException("Property '" + key
+                                + "' type is: " + obj.getClass().getName()
+                                + " but expected type is: " + expectedType);
+                    }
+                    result.add((E) obj);
+                }
+            }
+        }
+        return result.toArray((E[]) Array.newInstance(expectedType,
+                result.size()));
+    }
+}
@@ -0,0 +1,307 @@
+/*
+ * Copyright (C) 2013 Sebastien Diot.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.blockwithme.properties.impl;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * LocalStorage for lists. Indexes are kept in dense arrays, and all other
+ * keys in a delegate LocalStorage.
+ *
+ * An index is a key in canonical decimal form (no sign, no leading zero),
+ * below one billion. Indexes far beyond the highest dense index are kept
+ * in a sparse map instead, so that a single large index does not allocate
+ * huge arrays. They move to the dense arrays once the arrays grow over
+ * them. Iteration merges the other keys and the indexes, in
+ * NumbersLastStringComparator order.
+ *
+ * Present indexes can still hold a null property value. The owner reports
+ * those with setNull(), so that the list size is always known.
+ *
+ * @author monster
+ */
+final class ListStorage<V> extends LocalStorage<V> {
+
+    /** Max number of digits of an index. */
+    private static final int MAX_DIGITS = 9;
+
+    /** Empty values. */
+    private static final Object[] NO_VALUES = new Object[0];
+
+    /** Empty keys. */
+    private static final String[] NO_KEYS = new String[0];
+
+    /** Empty flags. */
+    private static final boolean[] NO_FLAGS = new boolean[0];
+
+    /** Indexes below 2 * length + SLACK are stored in the dense arrays. */
+    private static final int SLACK = 16;
+
+    /** The non-index keys. */
+    private final LocalStorage<V> named;
+
+    /** The values, by index. Null means absent. */
+    private Object[] values = NO_VALUES;
+
+    /** The keys, by index. */
+    private String[] keys = NO_KEYS;
+
+    /** Does the index hold a non-null property value? */
+    private boolean[] nonNull = NO_FLAGS;
+
+    /** The highest present index, plus one. */
+    private int length;
+
+    /** The number of present indexes. */
+    private int count;
+
+    /** The highest index holding a non-null property value, plus one. */
+    private int listSize;
+
+    /** The sparse indexes, all >= values.length. Null until needed. */
+    private TreeMap<Integer, V> sparse;
+
+    /** The sparse indexes holding a non-null property value. */
+    private TreeSet<Integer> sparseNonNull;
+
+    /** Merges the named keys and the indexes. */
+    private final class Itr implements Iterator<String> {
+        /** The named keys. */
+        private final Iterator<String> namedKeys = named.keys();
+        /** The next named key, or null. */
+        private String nextNamed = namedKeys.hasNext() ? namedKeys.next()
+                : null;
+        /** The next index, or -1. */
+        private int next = ListStorage.this.next(0);
+
+        @Override
+        public boolean hasNext() {
+            return (nextNamed != null) || (next >= 0);
+        }
+
+        @Override
+        public String next() {
+            if (next >= 0) {
+                final String result = key(next);
+                if ((nextNamed == null) || (NumbersLastStringComparator.CMP
+                        .compare(result, nextNamed) < 0)) {
+                    next = ListStorage.this.next(next + 1);
+                    return result;
+                }
+            }
+            if (nextNamed == null) {
+                throw new NoSuchElementException();
+            }
+            final String result = nextNamed;
+            nextNamed = namedKeys.hasNext() ? namedKeys.next() : null;
+            return result;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    /** Creates a ListStorage, using named for the non-index keys. */
+    ListStorage(final LocalStorage<V> named) {
+        this.named = named;
+    }
+
+    /** Returns the index of the key, or -1 if not an index. */
+    static int indexOf(final String localKey) {
+        final int len = localKey.length();
+        if ((len == 0) || (len > MAX_DIGITS)
+                || ((len > 1) && (localKey.charAt(0) == '0'))) {
+            return -1;
+        }
+        int result = 0;
+        for (int i = 0; i < len; i++) {
+            final char c = localKey.charAt(i);
+            if ((c < '0') || (c > '9')) {
+                return -1;
+            }
+            result = result * 10 + (c - '0');
+        }
+        return result;
+    }
+
+    /** Returns the first present index, starting at from, or -1. */
+    int next(final int from) {
+        int result = from;
+        while ((result < length) && (values[result] == null)) {
+            result++;
+        }
+        if (result < length) {
+            return result;
+        }
+        if (sparse != null) {
+            final Integer key = sparse.ceilingKey(result);
+            if (key != null) {
+                return key;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the list size: the highest index holding a non-null property
+     * value, plus one.
+     */
+    int listSize() {
+        return listSize;
+    }
+
+    /**
+     * Records if the property value of the key is null. Non-index keys are
+     * ignored. Only shrinking the list, by clearing it's last index, has to
+     * look back for the new last non-null index.
+     */
+    void setNull(final String localKey, final boolean isNull) {
+        final int index = indexOf(localKey);
+        if (index < 0) {
+            return;
+        }
+        if (index < length) {
+            nonNull[index] = !isNull;
+        } else if ((sparse != null) && sparse.containsKey(index)) {
+            if (isNull) {
+                sparseNonNull.remove(index);
+            } else {
+                sparseNonNull.add(index);
+            }
+        } else {
+            return;
+        }
+        if (!isNull) {
+            if (index >= listSize) {
+                listSize = index + 1;
+            }
+        } else if (index == listSize - 1) {
+            if ((sparseNonNull != null) && !sparseNonNull.isEmpty()) {
+                listSize = sparseNonNull.last() + 1;
+            } else {
+                int result = Math.min(index, length);
+                while ((result > 0) && !nonNull[result - 1]) {
+                    result--;
+                }
+                listSize = result;
+            }
+        }
+    }
+
+    /** Returns the value at the given index, or null if absent. */
+    @SuppressWarnings("unchecked")
+    V get(final int index) {
+        if (index < values.length) {
+            return (V) values[index];
+        }
+        return (sparse == null) ? null : sparse.get(index);
+    }
+
+    /** Returns the key of the given index, or null if absent. */
+    String key(final int index) {
+        if (index < values.length) {
+            return keys[index];
+        }
+        return ((sparse == null) || !sparse.containsKey(index)) ? null
+                : String.valueOf(index);
+    }
+
+    /* (non-Javadoc)
+     * @see com.blockwithme.properties.impl.LocalStorage#get(java.lang.String)
+     */
+    @Override
+    V get(final String localKey) {
+        final int index = indexOf(localKey);
+        return (index < 0) ? named.get(localKey) : get(index);
+    }
+
+    /* (non-Javadoc)
+     * @see com.blockwithme.properties.impl.LocalStorage#put(java.lang.String, java.lang.Object)
+     */
+    @Override
+    void put(final String localKey, final V value) {
+        final int index = indexOf(localKey);
+        if (index < 0) {
+            named.put(localKey, value);
+            return;
+        }
+        if (index >= values.length) {
+            if ((index >= 2 * length + SLACK)
+                    || ((sparse != null) && sparse.containsKey(index))) {
+                if (sparse == null) {
+                    sparse = new TreeMap<>();
+                    sparseNonNull = new TreeSet<>();
+                }
+                sparse.put(index, value);
+                return;
+            }
+            grow(Math.max(index + 1, 2 * values.length));
+        }
+        if (values[index] == null) {
+            keys[index] = localKey;
+            count++;
+            if (index >= length) {
+                length = index + 1;
+            }
+        }
+        values[index] = value;
+    }
+
+    /** Grows the dense arrays, moving the sparse indexes they now cover. */
+    private void grow(final int newLength) {
+        values = Arrays.copyOf(values, newLength);
+        keys = Arrays.copyOf(keys, newLength);
+        nonNull = Arrays.copyOf(nonNull, newLength);
+        if (sparse != null) {
+            final Map<Integer, V> covered = sparse.headMap(newLength);
+            for (final Map.Entry<Integer, V> e : covered.entrySet()) {
+                final int index = e.getKey();
+                values[index] = e.getValue();
+                keys[index] = String.valueOf(index);
+                nonNull[index] = sparseNonNull.remove(index);
+                count++;
+                if (index >= length) {
+                    length = index + 1;
+                }
+            }
+            covered.clear();
+        }
+    }
+
+    /* (non-Javadoc)
+     * @see com.blockwithme.properties.impl.LocalStorage#size()
+     */
+    @Override
+    int size() {
+        return named.size() + count + ((sparse == null) ? 0 : sparse.size());
+    }
+
+    /* (non-Javadoc)
+     * @see com.blockwithme.properties.impl.LocalStorage#keys()
+     */
+    @Override
+    Iterator<String> keys() {
+        return new Itr();
+    }
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright (C) 2013 Sebastien Diot.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.blockwithme.properties.impl;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+
+/**
+ * Stores the own properties of a PropertiesImpl.
+ *
+ * Properties are never removed, so there is no remove operation.
+ *
+ * @author monster
+ */
+abstract class LocalStorage<V> {
+
+    /** Returns the value of the local key, or null if absent. */
+    abstract V get(final String localKey);
+
+    /** Sets the value of the local key. */
+    abstract void put(final String localKey, final V value);
+
+    /** Returns the number of local keys. */
+    abstract int size();
+
+    /** Returns the local keys, in NumbersLastStringComparator order. */
+    abstract Iterator<String> keys();
+
+    /**
+     * Returns the local keys >= from and < to, in NumbersLastStringComparator
+     * order. Either bound can be null. The default implementation scans all
+     * keys.
+     */
+    Iterator<String> keys(final String from, final String to) {
+        if ((from == null) && (to == null)) {
+            return keys();
+        }
+        final ArrayList<String> result = new ArrayList<>();
+        final Iterator<String> iter = keys();
+        while (iter.hasNext()) {
+            final String key = iter.next();
+            if (((from == null) || (NumbersLastStringComparator.CMP.compare(
+                    key, from) >= 0))
+                    && ((to == null) || (NumbersLastStringComparator.CMP
+                            .compare(key, to) < 0))) {
+                result.add(key);
+            }
+        }
+        return result.iterator();
+    }
+}
@@ -0,0 +1,326 @@
+/*
+ * Copyright (C) 2013 Sebastien Diot.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.blockwithme.properties.impl;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.blockwithme.properties.Generator;
+import com.blockwithme.properties.Graph;
+import com.blockwithme.properties.Properties;
+
+/**
+ * A Generator that memoizes the values of another Generator.
+ *
+ * Values are cached per (Properties, key, expected type). While the wrapped
+ * Generator runs, every PropertiesImpl it reads from is recorded, with it's
+ * version. Reading a value, iterating or querying the keys, and reading the
+ * list size all count as reads. Resolving an absolute path also reads the
+ * root of the graph. A cached value is used as long as none of those
+ * PropertiesImpl changed, and no graph that was read got another root. Dependencies are tracked per Properties, not
+ * per key, so any change to a Properties that was read invalidates the value.
+ * Reads done by nested MemoGenerator, even when served from their cache, are
+ * dependencies of the outer MemoGenerator too.
+ *
+ * The values are stored in the PropertiesImpl they were generated for, so
+ * they are collected with it's graph. Values generated for other Properties
+ * implementations are not cached.
+ *
+ * @author monster
+ */
+public final class MemoGenerator implements Generator {
+
+    /** Static cache. Only references Generators, never Properties. */
+    private static final ConcurrentHashMap<Generator, MemoGenerator> CACHE = new ConcurrentHashMap<>();
+
+    /** The recording of the current thread, if any. */
+    private static final ThreadLocal<Recording> CURRENT = new ThreadLocal<>();
+
+    /** The Properties read while generating a value, with their version. */
+    private static final class Recording {
+        /** The enclosing recording, or null. */
+        final Recording parent;
+        /** The read Properties, and their version when first read. */
+        final IdentityHashMap<PropertiesImpl<?>, Long> reads = new IdentityHashMap<>();
+        /** The graphs whose root was read, and that root. */
+        final IdentityHashMap<Graph<?>, Properties<?>> roots = new IdentityHashMap<>();
+
+        /** Creates a Recording. */
+        Recording(final Recording parent) {
+            this.parent = parent;
+        }
+
+        /** Records a read, keeping the first version seen. */
+        void read(final PropertiesImpl<?> prop, final long version) {
+            if (!reads.containsKey(prop)) {
+                reads.put(prop, version);
+            }
+        }
+
+        /** Records a read of the root of a graph, keeping the first seen. */
+        void readRoot(final Graph<?> graph, final Properties<?> root) {
+            if (!roots.containsKey(graph)) {
+                roots.put(graph, root);
+            }
+        }
+    }
+
+    /** A cached value, and the versions it depends on. */
+    static final class Entry {
+        /** The value. */
+        final Object value;
+        /** The generation of the MemoGenerator, when the value was cached. */
+        final int generation;
+        /** The Properties read to generate the value. */
+        final PropertiesImpl<?>[] reads;
+        /** The versions of the read Properties. */
+        final long[] versions;
+        /** The graphs whose root was read. */
+        final Graph<?>[] graphs;
+        /** The roots of the read graphs. */
+        final Properties<?>[] roots;
+
+        /** Creates an Entry. */
+        Entry(final Object value, final int generation,
+                final Recording recording) {
+            this.value = value;
+            this.generation = generation;
+            final int size = recording.reads.size();
+            reads = new PropertiesImpl<?>[size];
+            versions = new long[size];
+            int i = 0;
+            for (final Map.Entry<PropertiesImpl<?>, Long> e : recording.reads
+                    .entrySet()) {
+                reads[i] = e.getKey();
+                versions[i] = e.getValue();
+                i++;
+            }
+            final int graphCount = recording.roots.size();
+            graphs = new Graph<?>[graphCount];
+            roots = new Properties<?>[graphCount];
+            i = 0;
+            for (final Map.Entry<Graph<?>, Properties<?>> e : recording.roots
+                    .entrySet()) {
+                graphs[i] = e.getKey();
+                roots[i] = e.getValue();
+                i++;
+            }
+        }
+
+        /**
+         * Returns true, if none of the read Properties changed, and the read
+         * graphs still have the same root.
+         */
+        boolean valid() {
+            for (int i = 0; i < reads.length; i++) {
+                if (reads[i].version() != versions[i]) {
+                    return false;
+                }
+            }
+            for (int i = 0; i < graphs.length; i++) {
+                if (graphs[i].root() != roots[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /** Adds the dependencies to a recording. */
+        void addTo(final Recording recording) {
+            for (int i = 0; i < reads.length; i++) {
+                recording.read(reads[i], versions[i]);
+            }
+            for (int i = 0; i < graphs.length; i++) {
+                recording.readRoot(graphs[i], roots[i]);
+            }
+        }
+    }
+
+    /**
+     * Cache key, within a PropertiesImpl: the MemoGenerator (by identity),
+     * the key and the type.
+     */
+    static final class Key {
+        /** The MemoGenerator. */
+        final MemoGenerator memo;
+        /** The key. */
+        final String name;
+        /** The expected type. */
+        final Class<?> type;
+
+        /** Creates a Key. */
+        Key(final MemoGenerator memo, final String name, final Class<?> type) {
+            this.memo = memo;
+            this.name = name;
+            this.type = type;
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(memo) * 31 + name.hashCode()
+                    + System.identityHashCode(type);
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            final Key other = (Key) obj;
+            return (memo == other.memo) && (type == other.type)
+                    && name.equals(other.name);
+        }
+    }
+
+    /** The memoized Generator. */
+    private final Generator generator;
+
+    /** Incremented by clear(), to invalidate all cached values. */
+    private final AtomicInteger generation = new AtomicInteger();
+
+    /** Creates a MemoGenerator, for the given Generator. */
+    public MemoGenerator(final Generator generator) {
+        this.generator = Objects.requireNonNull(generator, "generator");
+        if (generator instanceof MemoGenerator) {
+            throw new IllegalArgumentException(
+                    "generator is already a MemoGenerator");
+        }
+    }
+
+    /**
+     * Returns a statically cached MemoGenerator, for the given Generator.
+     * Since the values are stored in the Properties, the cache does not keep
+     * any graph reachable.
+     */
+    public static MemoGenerator cache(final Generator generator) {
+        MemoGenerator result = CACHE.get(generator);
+        if (result == null) {
+            final MemoGenerator newMemo = new MemoGenerator(generator);
+            result = CACHE.putIfAbsent(generator, newMemo);
+            if (result == null) {
+                result = newMemo;
+            }
+        }
+        return result;
+    }
+
+    /** Returns a statically cached memoized Link. */
+    public static MemoGenerator link(final String path) {
+        return cache(Link.cache(path));
+    }
+
+    /**
+     * Called by PropertiesImpl on every local read, so that the reads done
+     * while generating values are recorded.
+     */
+    static void read(final PropertiesImpl<?> prop) {
+        final Recording recording = CURRENT.get();
+        if (recording != null) {
+            recording.read(prop, prop.version());
+        }
+    }
+
+    /**
+     * Called by PropertiesImpl when resolving an absolute path, so that
+     * replacing the root of the graph invalidates the generated values.
+     */
+    static void readRoot(final Graph<?> graph, final Properties<?> root) {
+        final Recording recording = CURRENT.get();
+        if (recording != null) {
+            recording.readRoot(graph, root);
+        }
+    }
+
+    /** Returns the memoized Generator. */
+    public Generator generator() {
+        return generator;
+    }
+
+    /** Clears the cached values, in all Properties. */
+    public void clear() {
+        generation.incrementAndGet();
+    }
+
+    /* (non-Javadoc)
+     * @see com.blockwithme.properties.Generator#generate(com.blockwithme.properties.Properties, java.lang.String, java.lang.Class)
+     */
+    @SuppressWarnings("unchecked")
+    @Override
+    public <E> E generate(final Properties<?> prop, final String name,
+            final Class<E> expectedType) {
+        if (!(prop instanceof PropertiesImpl)) {
+            // Nowhere to cache; reads still go to the enclosing recording
+            return generator.generate(prop, name, expectedType);
+        }
+        final ConcurrentHashMap<Key, Entry> values = ((PropertiesImpl<?>) prop)
+                .memo();
+        final int gen = generation.get();
+        final Recording parent = CURRENT.get();
+        final Key key = new Key(this, name, expectedType);
+        final Entry cached = values.get(key);
+        if ((cached != null) && (cached.generation == gen) && cached.valid()) {
+            if (parent != null) {
+                cached.addTo(parent);
+            }
+            return (E) cached.value;
+        }
+        final Recording recording = new Recording(parent);
+        CURRENT.set(recording);
+        final E result;
+        try {
+            result = generator.generate(prop, name, expectedType);
+        } finally {
+            if (parent == null) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(parent);
+            }
+        }
+        final Entry entry = new Entry(result, gen, recording);
+        values.put(key, entry);
+        if (parent != null) {
+            entry.addTo(parent);
+        }
+        return result;
+    }
+
+    /** toString */
+    @Override
+    public String toString() {
+        return "MemoGenerator(" + generator + ")";
+    }
+
+    /* (non-Javadoc)
+     * @see java.lang.Object#hashCode()
+     */
+    @Override
+    public int hashCode() {
+        return generator.hashCode() * 31 + 7;
+    }
+
+    /* (non-Javadoc)
+     * @see java.lang.Object#equals(java.lang.Object)
+     */
+    @Override
+    public boolean equals(final Object obj) {
+        return (obj instanceof MemoGenerator)
+                && generator.equals(((MemoGenerator) obj).generator);
+    }
+}
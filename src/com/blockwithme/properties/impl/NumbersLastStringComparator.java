@@ -22,6 +22,9 @@ import java.util.Objects;
 /**
  * Comparator that compare integers as numbers, and all non-integers as smaller then integers.
  *
+ * It is consistent with equals: different strings representing the same
+ * number, like "01" and "1", are ordered as strings.
+ *
  * @author monster
  */
 public class NumbersLastStringComparator implements Comparator<String> {
@@ -65,18 +68,23 @@ public class NumbersLastStringComparator implements Comparator<String> {
             return -1;
         }
         if (n2 != null) {
-            final int result = n1.compareTo(n2);
+            int result = n1.compareTo(n2);
             if (result == 0) {
                 // OK, we have two *different* strings that compare equals?
                 // It's probably a rounding issue...
                 final BigDecimal bd1 = toBigDecimal(o1);
                 final BigDecimal bd2 = toBigDecimal(o2);
                 if ((bd1 != null) && (bd2 != null)) {
-                    return bd1.compareTo(bd2);
+                    result = bd1.compareTo(bd2);
+                }
+                if (result == 0) {
+                    // Same number, like "01" and "1"; they are still
+                    // different keys, so stay consistent with equals.
+                    result = o1.compareTo(o2);
                 }
             }
             return result;
         }
-        return -1;
+        return 1;
     }
 }
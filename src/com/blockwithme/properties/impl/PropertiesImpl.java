@@ -18,16 +18,19 @@ package com.blockwithme.properties.impl;
 import java.lang.reflect.Array;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
-import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
 
 import com.blockwithme.properties.Filter;
 import com.blockwithme.properties.Generator;
 import com.blockwithme.properties.Graph;
 import com.blockwithme.properties.Properties;
+import com.blockwithme.properties.PropertyPath;
 
 /**
  * Base class for Properties.
@@ -37,10 +40,27 @@ import com.blockwithme.properties.Properties;
 public class PropertiesImpl<TIME extends Comparable<TIME>> implements
         Properties<TIME> {
 
-    /** Keeps a record of the setter with the value, so the strongest setter wins. */
-    private static final class SetterValue<TIME extends Comparable<TIME>> {
-        public Properties<TIME> setter;
-        public Object value;
+    /**
+     * Keeps a record of the setter with the value, so the strongest setter wins.
+     * Volatile, so that Storage.CONCURRENT readers do not need to lock.
+     */
+    static final class SetterValue<TIME extends Comparable<TIME>> {
+        public volatile Properties<TIME> setter;
+        public volatile Object value;
+    }
+
+    /** An absolute path, valid as long as no Properties was detached. */
+    private static final class CachedPath {
+        /** The path. */
+        final String path;
+        /** The graph pathsVersion(), when the path was computed. */
+        final long detached;
+
+        /** Constructor */
+        CachedPath(final String thePath, final long theDetached) {
+            path = thePath;
+            detached = theDetached;
+        }
     }
 
     /** The root path. */
@@ -53,28 +73,30 @@ public class PropertiesImpl<TIME extends Comparable<TIME>> implements
     private final ImplGraph<TIME> graph;
 
     /** All the own properties. */
-    private final TreeMap<String, SetterValue<TIME>> properties = new TreeMap<>(
-            NumbersLastStringComparator.CMP);
+    private final LocalStorage<SetterValue<TIME>> properties;
+
+    /** The reverse value index, or null if the values are not indexed. */
+    private ValueIndex valueIndex;
+
+    /** Incremented on every local change. */
+    private volatile long version;
+
+    /** The last snapshot, or null. */
+    private volatile PropertiesSnapshot snapshot;
+
+    /** The values cached by MemoGenerators, or null. */
+    private volatile ConcurrentHashMap<MemoGenerator.Key, MemoGenerator.Entry> memo;
+
+    /** The parent, once this was set as a direct child. */
+    private volatile PropertiesImpl<TIME> parent;
+
+    /** The cached absolute path, or null. */
+    private volatile CachedPath cachedPath;
 
     /** Validates a local key. */
     public static void checkLocalKey(final String localKey,
             final String designation, final String fullPath) {
-        if (localKey == null) {
-            throw new IllegalArgumentException(designation + " is null");
-        }
-        if (localKey.isEmpty()) {
-            throw new IllegalArgumentException(designation + " is empty");
-        }
-        for (final char c : localKey.toCharArray()) {
-            final boolean lower = (c >= 'a') && (c <= 'z');
-            final boolean upper = (c >= 'A') && (c <= 'Z');
-            final boolean digit = (c >= '0') && (c <= '9');
-            final boolean other = ((c == '_') || (c == '$'));
-            if (!(lower || upper || digit) || other) {
-                throw new IllegalArgumentException(designation + "(" + fullPath
-                        + ") contains illegal character: '" + c + "'");
-            }
-        }
+        PropertyPath.checkLocalKey(localKey, designation, fullPath);
     }
 
     /** Validates path. */
@@ -185,9 +207,17 @@ public class PropertiesImpl<TIME extends Comparable<TIME>> implements
     /** Constructs a PropertiesImpl. */
     public PropertiesImpl(final ImplGraph<TIME> graph, final String localKey,
             final TIME when) {
+        this(graph, localKey, when, Objects.requireNonNull(graph).storage()
+                .<SetterValue<TIME>> create());
+    }
+
+    /** Constructs a PropertiesImpl, with the given storage. */
+    PropertiesImpl(final ImplGraph<TIME> graph, final String localKey,
+            final TIME when, final LocalStorage<SetterValue<TIME>> properties) {
         this.graph = Objects.requireNonNull(graph);
         checkLocalKey(localKey, "localKey", localKey);
         this.localKey = localKey;
+        this.properties = properties;
     }
 
     /** toString */
@@ -216,6 +246,33 @@ public class PropertiesImpl<TIME extends Comparable<TIME>> implements
         return localKey;
     }
 
+    /**
+     * Returns the absolute path of this Properties, or null if it is not
+     * (yet) attached to the root. A Properties is attached, when it is set
+     * with it's own local key, in an attached Properties.
+     */
+    public final String path() {
+        final long detached = graph.pathsVersion();
+        final CachedPath cached = cachedPath;
+        if ((cached != null) && (cached.detached == detached)) {
+            return cached.path;
+        }
+        final String result;
+        if (graph.root() == this) {
+            result = ROOT_PATH;
+        } else {
+            final PropertiesImpl<TIME> p = parent;
+            final String parentPath = (p == null) ? null : p.path();
+            if (parentPath == null) {
+                return null;
+            }
+            result = ROOT_PATH.equals(parentPath) ? parentPath + localKey
+                    : parentPath + SEPATATOR + localKey;
+        }
+        cachedPath = new CachedPath(result, detached);
+        return result;
+    }
+
     /* (non-Javadoc)
      * @see com.blockwithme.properties.Properties#root()
      */
@@ -269,7 +326,7 @@ public class PropertiesImpl<TIME extends Comparable<TIME>> implements
      * If value is not a generator, it does not check the type, and just returns it.
      * If it is a generator, then the generator is called.
      */
-    private static Object resolve(final Object value,
+    static Object resolve(final Object value,
             final PropertiesImpl<?> owner, final String localKey,
             final Class<?> type, final boolean executeGenerators) {
         if (executeGenerators && (value instanceof Generator)) {
@@ -300,7 +357,7 @@ public class PropertiesImpl<TIME extends Comparable<TIME>> implements
         String relPath = path;
         if (path.charAt(0) == SEPATATOR) {
             // Absolute path ...
-            prop = (PropertiesImpl<TIME>) graph();
+            prop = rootImpl();
             relPath = path.substring(1);
             if (relPath.isEmpty()) {
                 return prop;
@@ -342,6 +399,116 @@ public class PropertiesImpl<TIME extends Comparable<TIME>> implements
         return (E) findRaw(path, null, executeGenerators);
     }
 
+    /**
+     * Returns the root of the graph, as a PropertiesImpl. Recorded as a read
+     * by MemoGenerator, since the root can be replaced.
+     */
+    @SuppressWarnings("unchecked")
+    private PropertiesImpl<TIME> rootImpl() {
+        final Graph<TIME> g = graph();
+        // The graph can also be it's own root
+        if (g instanceof PropertiesImpl) {
+            return (PropertiesImpl<TIME>) g;
+        }
+        final Properties<TIME> result = g.root();
+        MemoGenerator.readRoot(g, result);
+        return (PropertiesImpl<TIME>) result;
+    }
+
+    /**
+     * Walks down the path, except the last local key, and returns the
+     * Properties containing the last local key, or null if missing.
+     */
+    @SuppressWarnings("unchecked")
+    private PropertiesImpl<TIME> parentOf(final PropertyPath path,
+            final boolean executeGenerators) {
+        PropertiesImpl<TIME> prop = path.absolute() ? rootImpl() : this;
+        final int last = path.size() - 1;
+        for (int i = 0; i < last; i++) {
+            final String head = path.localKey(i);
+            // We cannot use the type here, because we are not at the end of the path.
+            final Object value = resolve(prop.findLocalRaw(head), prop, head,
+                    null, executeGenerators);
+            if (value == null) {
+                return null;
+            }
+            if (value instanceof PropertiesImpl) {
+                prop = (PropertiesImpl<TIME>) value;
+            } else {
+                throw new IllegalArgumentException("Encontered "
+                        + value.getClass().getName()
+                        + " while expecting a Properties");
+            }
+        }
+        return prop;
+    }
+
+    /** Same as findRaw(String, Class, boolean), but with a pre-parsed path. */
+    private final Object findRaw(final PropertyPath path, final Class<?> type,
+            final boolean executeGenerators) {
+        if (path.size() == 0) {
+            return rootImpl();
+        }
+        final PropertiesImpl<TIME> prop = parentOf(path, executeGenerators);
+        if (prop == null) {
+            return null;
+        }
+        final String localKey = path.localKey();
+        return resolve(prop.findLocalRaw(localKey), prop, localKey, type,
+                executeGenerators);
+    }
+
+    /* (non-Javadoc)
+     * @see com.blockwithme.properties.Properties#findRaw(com.blockwithme.properties.PropertyPath, boolean)
+     */
+    @SuppressWarnings("unchecked")
+    @Override
+    public final <E> E findRaw(final PropertyPath path,
+            final boolean executeGenerators) {
+        return (E) findRaw(path, null, executeGenerators);
+    }
+
+    /* (non-Javadoc)
+     * @see com.blockwithme.properties.Properties#find(com.blockwithme.properties.PropertyPath, java.lang.Class, java.lang.Object)
+     */
+    @SuppressWarnings("unchecked")
+    @Override
+    public final <E> E find(final PropertyPath path, final Class<E> type,
+            final E defaultValue) {
+        Objects.requireNonNull(type, "type");
+        final Object obj = findRaw(path, type, true);
+        if (obj == null) {
+            return defaultValue;
+        }
+        if (!type.isInstance(obj)) {
+            throw new IllegalStateException("Property '" + path + "' type is: "
+                    + obj.getClass().getName() + " but expected type is: "
+                    + type);
+        }
+        return (E) obj;
+    }
+
+    /* (non-Javadoc)
+     * @see com.blockwithme.properties.Properties#find(com.blockwithme.properties.PropertyPath, java.lang.Class)
+     */
+    @Override
+    public final <E> E find(final PropertyPath path, final Class<E> type) {
+        return find(path, type, null);
+    }
+
+    /* (non-Javadoc)
+     * @see com.blockwithme.properties.Properties#get(com.blockwithme.properties.PropertyPath, java.lang.Class)
+     */
+    @Override
+    public final <E> E get(final PropertyPath path, final Class<E> type) {
+        final E result = find(path, type, null);
+        if (result == null) {
+            throw new IllegalStateException("Property '" + path
+                    + "' not found!");
+        }
+        return result;
+    }
+
     /**
      * Only the parent of Properties can directly reference it, so we have to
      * convert reference to Properties into links (or generated Properties).
@@ -424,11 +591,43 @@ public class PropertiesImpl<TIME extends Comparable<TIME>> implements
         set(setter, path, value, null, false);
     }
 
+    /* (non-Javadoc)
+     * @see com.blockwithme.properties.Properties#set(com.blockwithme.properties.Properties, com.blockwithme.properties.PropertyPath, java.lang.Object, java.lang.Comparable, boolean)
+     */
+    @Override
+    public final void set(final Properties<TIME> setter,
+            final PropertyPath path, final Object value, final TIME when,
+            final boolean forceWrite) {
+        Objects.requireNonNull(setter, "setter");
+        if (path.size() == 0) {
+            throw new IllegalArgumentException("path cannot only be "
+                    + ROOT_PATH);
+        }
+        final PropertiesImpl<TIME> ancestor = parentOf(path, true);
+        if (ancestor == null) {
+            throw new IllegalStateException("Parent of property '" + path
+                    + "' not found!");
+        }
+        final String localKey = path.localKey();
+        ancestor.setLocalProperty(setter, localKey,
+                unresolve(setter, value, ancestor, localKey, when), when,
+                forceWrite);
+    }
+
+    /* (non-Javadoc)
+     * @see com.blockwithme.properties.Properties#set(com.blockwithme.properties.Properties, com.blockwithme.properties.PropertyPath, java.lang.Object)
+     */
+    @Override
+    public final void set(final Properties<TIME> setter,
+            final PropertyPath path, final Object value) {
+        set(setter, path, value, null, false);
+    }
+
     /* (non-Javadoc)
      * @see com.blockwithme.properties.Properties#isEmptyList()
      */
     @Override
-    public final boolean isEmptyList() {
+    public boolean isEmptyList() {
         return "0".equals(nextIndex());
     }
 
@@ -437,6 +636,20 @@ public class PropertiesImpl<TIME extends Comparable<TIME>> implements
      */
     @Override
     public final boolean contains(final Object value) {
+        MemoGenerator.read(this);
+        final ValueIndex index = valueIndex;
+        if (index != null) {
+            if (index.contains(value)) {
+                return true;
+            }
+            for (final String key : index.generated()) {
+                if (Objects.equals(value, resolve(findLocalRaw(key), this, key,
+                        null, true))) {
+                    return true;
+                }
+            }
+            return false;
+        }
         return !keysOf(value).isEmpty();
     }
 
@@ -445,19 +658,14 @@ public class PropertiesImpl<TIME extends Comparable<TIME>> implements
      */
     @Override
     public final List<String> keysOf(final Object value) {
-        return query(new Filter() {
-            @Override
-            public boolean accept(final String key, final Object obj) {
-                return Objects.equals(value, obj);
-            }
-        });
+        return query(Query.ALL.valueEquals(value));
     }
 
     /* (non-Javadoc)
      * @see com.blockwithme.properties.Properties#nextIndex()
      */
     @Override
-    public final String nextIndex() {
+    public String nextIndex() {
         int last = -1;
         for (final String key : this) {
             try {
@@ -480,6 +688,9 @@ public class PropertiesImpl<TIME extends Comparable<TIME>> implements
      */
     @Override
     public final List<String> query(final Filter query) {
+        if (query instanceof Query) {
+            return query((Query) query);
+        }
         List<String> result = null;
         for (final String key : this) {
             if (query.accept(key, findRaw(key, true))) {
@@ -495,6 +706,61 @@ public class PropertiesImpl<TIME extends Comparable<TIME>> implements
         return result;
     }
 
+    /**
+     * Runs a Query, using the value index for value queries, if available,
+     * and otherwise the key ordering to only visit the keys in range.
+     * Values are only computed for the keys accepted by the Query.
+     */
+    private List<String> query(final Query query) {
+        MemoGenerator.read(this);
+        List<String> result = null;
+        final ValueIndex index = valueIndex;
+        if ((index != null) && query.hasValue()) {
+            final List<String> candidates = new ArrayList<>();
+            index.keysOf(query.value(), candidates);
+            for (final String key : candidates) {
+                if (query.accept(key, query.value())) {
+                    if (result == null) {
+                        result = new ArrayList<>();
+                    }
+                    result.add(key);
+                }
+            }
+            for (final String key : index.generated()) {
+                if (query.acceptKey(key)
+                        && query.acceptValue(resolve(findLocalRaw(key), this,
+                                key, null, true))) {
+                    if (result == null) {
+                        result = new ArrayList<>();
+                    }
+                    result.add(key);
+                }
+            }
+            if ((result != null) && (result.size() > 1)) {
+                Collections.sort(result, NumbersLastStringComparator.CMP);
+            }
+        } else {
+            final Iterator<String> keys = properties.keys(query.lowestKey(),
+                    query.highestKey());
+            final boolean keysOnly = query.keysOnly();
+            while (keys.hasNext()) {
+                final String key = keys.next();
+                if (query.acceptKey(key)
+                        && (keysOnly || query.acceptValue(resolve(
+                                findLocalRaw(key), this, key, null, true)))) {
+                    if (result == null) {
+                        result = new ArrayList<>();
+                    }
+                    result.add(key);
+                }
+            }
+        }
+        if (result == null) {
+            result = Collections.emptyList();
+        }
+        return result;
+    }
+
     /* (non-Javadoc)
      * @see com.blockwithme.properties.Properties#clear(com.blockwithme.properties.Properties, com.blockwithme.properties.Filter)
      */
@@ -516,7 +782,7 @@ public class PropertiesImpl<TIME extends Comparable<TIME>> implements
      */
     @SuppressWarnings("unchecked")
     @Override
-    public final <E> E[] listValues(final Class<E> expectedType,
+    public <E> E[] listValues(final Class<E> expectedType,
             final boolean onlyIndexed) {
         final ArrayList<E> result = new ArrayList<>();
         if (onlyIndexed) {
@@ -571,6 +837,8 @@ public class PropertiesImpl<TIME extends Comparable<TIME>> implements
      * Returns the property value, if any. Null if absent.
      */
     protected Object findLocalRaw(final String localKey) {
+        // Records the dependencies of memoized generators
+        MemoGenerator.read(this);
         final SetterValue<TIME> sv = properties.get(localKey);
         return (sv == null) ? null : sv.value;
     }
@@ -580,7 +848,153 @@ public class PropertiesImpl<TIME extends Comparable<TIME>> implements
      */
     @Override
     public Iterator<String> iterator() {
-        return properties.keySet().iterator();
+        MemoGenerator.read(this);
+        return properties.keys();
+    }
+
+    /**
+     * Indexes the local values, so that keysOf() and contains() become hash
+     * lookups, instead of a full scan. The index is then maintained on every
+     * change. Generators are not indexed, and are still executed on lookup.
+     * When indexed, keysOf() returns the keys in NumbersLastStringComparator
+     * order.
+     */
+    public final void indexValues() {
+        if (graph.storage() == Storage.CONCURRENT) {
+            throw new IllegalStateException(
+                    "Value index not supported with Storage.CONCURRENT");
+        }
+        if (valueIndex == null) {
+            final ValueIndex index = new ValueIndex();
+            final Iterator<String> keys = properties.keys();
+            while (keys.hasNext()) {
+                final String key = keys.next();
+                index.add(key, properties.get(key).value);
+            }
+            valueIndex = index;
+        }
+    }
+
+    /** Returns true, if the local values are indexed. */
+    public final boolean valuesIndexed() {
+        return (valueIndex != null);
+    }
+
+    /**
+     * Returns an immutable snapshot of this Properties, and of it's children.
+     * Only direct children (whose parent is this) are included; other
+     * Properties values, like back references, are replaced by a
+     * PropertiesReference. The last snapshot is reused, if neither this
+     * Properties nor it's children changed since. done contains the
+     * snapshots already taken during this graph snapshot, and null for those
+     * in progress.
+     */
+    final PropertiesSnapshot snapshot(
+            final IdentityHashMap<PropertiesImpl<?>, PropertiesSnapshot> done) {
+        if (done.containsKey(this)) {
+            final PropertiesSnapshot result = done.get(this);
+            if (result == null) {
+                throw new IllegalStateException("Cycle in graph at: "
+                        + localKey);
+            }
+            return result;
+        }
+        done.put(this, null);
+        final long current = version;
+        final PropertiesSnapshot last = snapshot;
+        PropertiesSnapshot result = null;
+        if ((last != null) && (last.version == current)) {
+            // Only the children could have changed
+            result = last;
+            for (final String key : last.keys()) {
+                final Object value = last.findRaw(key);
+                if (((value instanceof PropertiesSnapshot)
+                        || (value instanceof PropertiesReference))
+                        && !Objects.equals(childSnapshot(key, done), value)) {
+                    result = null;
+                    break;
+                }
+            }
+        }
+        if (result == null) {
+            final ArrayList<String> keys = new ArrayList<>();
+            final HashMap<String, Object> values = new HashMap<>();
+            final long copied;
+            // The local values are copied under the writers lock, so that
+            // they are consistent, but the children are taken outside of it.
+            synchronized (properties) {
+                copied = version;
+                final Iterator<String> iter = properties.keys();
+                while (iter.hasNext()) {
+                    final String key = iter.next();
+                    final SetterValue<TIME> sv = properties.get(key);
+                    keys.add(key);
+                    values.put(key, (sv == null) ? null : sv.value);
+                }
+            }
+            for (final Map.Entry<String, Object> e : values.entrySet()) {
+                if (e.getValue() instanceof PropertiesImpl) {
+                    e.setValue(snapshotValue(
+                            (PropertiesImpl<?>) e.getValue(), done));
+                }
+            }
+            result = new PropertiesSnapshot(localKey, copied,
+                    keys.toArray(new String[keys.size()]), values);
+            snapshot = result;
+        }
+        done.put(this, result);
+        return result;
+    }
+
+    /** Returns the raw value of a key, replacing Properties with snapshots. */
+    private Object childSnapshot(final String key,
+            final IdentityHashMap<PropertiesImpl<?>, PropertiesSnapshot> done) {
+        final SetterValue<TIME> sv = properties.get(key);
+        final Object value = (sv == null) ? null : sv.value;
+        if (value instanceof PropertiesImpl) {
+            return snapshotValue((PropertiesImpl<?>) value, done);
+        }
+        return value;
+    }
+
+    /**
+     * Returns the snapshot of a direct child, or a reference to any other
+     * Properties.
+     */
+    private Object snapshotValue(final PropertiesImpl<?> value,
+            final IdentityHashMap<PropertiesImpl<?>, PropertiesSnapshot> done) {
+        if (value.parent == this) {
+            return value.snapshot(done);
+        }
+        return new PropertiesReference(value.path());
+    }
+
+    /** Returns the values cached by MemoGenerators for this Properties. */
+    final ConcurrentHashMap<MemoGenerator.Key, MemoGenerator.Entry> memo() {
+        ConcurrentHashMap<MemoGenerator.Key, MemoGenerator.Entry> result = memo;
+        if (result == null) {
+            synchronized (properties) {
+                result = memo;
+                if (result == null) {
+                    result = new ConcurrentHashMap<>();
+                    memo = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    /** Returns the version, incremented on every local change. */
+    final long version() {
+        return version;
+    }
+
+    /**
+     * Called with the lock held, after a local property was set, even if the
+     * value did not change. NOP by default.
+     */
+    void localValueSet(final String localKey, final Object value) {
+        // NOP
     }
 
     /** Returns true, if this is a built-in property. */
@@ -591,6 +1005,7 @@ public class PropertiesImpl<TIME extends Comparable<TIME>> implements
     /* (non-Javadoc)
      * @see com.blockwithme.properties.impl.PropertiesImpl#setLocalProperty(java.lang.String, java.lang.Object)
      */
+    @SuppressWarnings("unchecked")
     protected void setLocalProperty(final Properties<TIME> setter,
             final String localKey, final Object value, final TIME when,
             final boolean forceWrite) {
@@ -604,24 +1019,58 @@ public class PropertiesImpl<TIME extends Comparable<TIME>> implements
             // Future property (when past/preset, then Root will re-set using null)
             root.onFutureChange(setter, this, localKey, value, forceWrite, when);
         } else {
-            // We never remove values, because we need to keep track of the
-            // setter priority, even if the value is null.
-            SetterValue<TIME> sv = properties.get(localKey);
-            if (sv == null) {
-                // First set
-                final Object oldValue = null;
-                sv = new SetterValue<>();
-                sv.setter = setter;
-                sv.value = value;
-                properties.put(localKey, sv);
-                if (!Objects.equals(oldValue, value)) {
-                    root.onChange(setter, this, localKey, oldValue, value);
+            // Writes to the same Properties are serialized, so that the
+            // priority check, the update, and the change notification are
+            // atomic. Readers never lock.
+            synchronized (properties) {
+                final Object oldValue;
+                // We never remove values, because we need to keep track of the
+                // setter priority, even if the value is null.
+                SetterValue<TIME> sv = properties.get(localKey);
+                if (sv == null) {
+                    // First set
+                    oldValue = null;
+                    sv = new SetterValue<>();
+                    sv.setter = setter;
+                    sv.value = value;
+                    properties.put(localKey, sv);
+                    localValueSet(localKey, value);
+                    version++;
+                    if (valueIndex != null) {
+                        valueIndex.add(localKey, value);
+                    }
+                    // Else check if set required
+                } else if (forceWrite
+                        || !root.lowerPriority(setter, sv.setter)) {
+                    oldValue = sv.value;
+                    sv.setter = setter;
+                    sv.value = value;
+                    localValueSet(localKey, value);
+                    version++;
+                    if (valueIndex != null) {
+                        valueIndex.update(localKey, oldValue, value);
+                    }
+                } else {
+                    return;
+                }
+                if ((oldValue instanceof PropertiesImpl)
+                        && (oldValue != value)) {
+                    final PropertiesImpl<TIME> old = (PropertiesImpl<TIME>) oldValue;
+                    if (old.parent == this) {
+                        // Detached; it and it's children have no path anymore
+                        old.parent = null;
+                        graph.invalidatePaths();
+                    }
+                }
+                if ((value instanceof PropertiesImpl) && (value != this)) {
+                    final PropertiesImpl<TIME> child = (PropertiesImpl<TIME>) value;
+                    if ((child.parent == null)
+                            && localKey.equals(child.localKey)) {
+                        child.parent = this;
+                    }
                 }
-                // Else check if set required
-            } else if (forceWrite || !root.lowerPriority(setter, sv.setter)) {
-                final Object oldValue = sv.value;
-                sv.setter = setter;
-                sv.value = value;
+                // Recorded under the lock, so concurrent writes of the same
+                // property are recorded in the order they were applied.
                 if (!Objects.equals(oldValue, value)) {
                     root.onChange(setter, this, localKey, oldValue, value);
                 }
@@ -0,0 +1,69 @@
+/*
+ * Copyright (C) 2013 Sebastien Diot.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.blockwithme.properties.impl;
+
+import java.util.Objects;
+
+/**
+ * Immutable marker, used in a PropertiesSnapshot in place of a Properties
+ * that is referenced, but is not a direct child. It records the path of the
+ * referenced Properties, when the snapshot was taken, so that back
+ * references do not make the snapshot recursive.
+ *
+ * @author monster
+ */
+public final class PropertiesReference {
+
+    /** The absolute path of the referenced Properties, or null. */
+    private final String path;
+
+    /** Creates a reference. */
+    PropertiesReference(final String thePath) {
+        path = thePath;
+    }
+
+    /**
+     * Returns the absolute path of the referenced Properties, or null if it
+     * was not attached to the root.
+     */
+    public String path() {
+        return path;
+    }
+
+    /* (non-Javadoc)
+     * @see java.lang.Object#hashCode()
+     */
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(path);
+    }
+
+    /* (non-Javadoc)
+     * @see java.lang.Object#equals(java.lang.Object)
+     */
+    @Override
+    public boolean equals(final Object obj) {
+        return (obj instanceof PropertiesReference)
+                && Objects.equals(path, ((PropertiesReference) obj).path);
+    }
+
+    /** toString */
+    @Override
+    public String toString() {
+        return "PropertiesReference(" + path + ")";
+    }
+}
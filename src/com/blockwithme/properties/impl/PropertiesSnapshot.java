@@ -0,0 +1,148 @@
+/*
+ * Copyright (C) 2013 Sebastien Diot.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.blockwithme.properties.impl;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Objects;
+
+import com.blockwithme.properties.Properties;
+import com.blockwithme.properties.PropertyPath;
+
+/**
+ * Immutable snapshot of the own properties of a PropertiesImpl.
+ *
+ * Child Properties are replaced by their own snapshot, and other referenced
+ * Properties (like back references) by a PropertiesReference. Snapshots of
+ * Properties that did not change are shared between graph snapshots, so that
+ * taking a snapshot allocates little, and so that diffs can skip unchanged
+ * sub-trees. Generators are kept as raw values, and not executed.
+ *
+ * Snapshots can be read by any number of threads, without locking.
+ *
+ * @author monster
+ */
+public final class PropertiesSnapshot {
+
+    /** The local key. */
+    private final String localKey;
+
+    /** The version of the Properties, when the snapshot was taken. */
+    final long version;
+
+    /** The keys, in iteration order. */
+    private final String[] keys;
+
+    /** The raw values, by key. */
+    private final HashMap<String, Object> values;
+
+    /** Creates a snapshot. */
+    PropertiesSnapshot(final String localKey, final long version,
+            final String[] keys, final HashMap<String, Object> values) {
+        this.localKey = localKey;
+        this.version = version;
+        this.keys = keys;
+        this.values = values;
+    }
+
+    /** Returns the local key of the Properties. */
+    public String localKey() {
+        return localKey;
+    }
+
+    /** Returns the keys, in iteration order. */
+    public List<String> keys() {
+        return Collections.unmodifiableList(Arrays.asList(keys));
+    }
+
+    /** Returns the number of keys. */
+    public int size() {
+        return keys.length;
+    }
+
+    /** Returns true if the key is present, even with a null value. */
+    public boolean containsKey(final String key) {
+        return values.containsKey(key);
+    }
+
+    /**
+     * Returns the raw value of a local key, or null. Child Properties are
+     * returned as PropertiesSnapshot, and other Properties as
+     * PropertiesReference.
+     */
+    public Object findRaw(final String key) {
+        return values.get(key);
+    }
+
+    /**
+     * Returns the raw value of a relative path, or null. Absolute paths are
+     * resolved from this snapshot too, so use GraphSnapshot for those.
+     * PropertiesReferences are not followed.
+     */
+    public Object findRaw(final PropertyPath path) {
+        PropertiesSnapshot node = this;
+        final int last = path.size() - 1;
+        for (int i = 0; i < last; i++) {
+            final Object value = node.values.get(path.localKey(i));
+            if (!(value instanceof PropertiesSnapshot)) {
+                return null;
+            }
+            node = (PropertiesSnapshot) value;
+        }
+        return (last < 0) ? this : node.values.get(path.localKey());
+    }
+
+    /** Adds the paths changed between the two snapshots to result. */
+    static void diff(final String prefix, final PropertiesSnapshot before,
+            final PropertiesSnapshot after, final List<String> result) {
+        if (before == after) {
+            // Shared, therefore unchanged
+            return;
+        }
+        for (final String key : before.keys) {
+            final String path = prefix + key;
+            if (!after.values.containsKey(key)) {
+                result.add(path);
+            } else {
+                final Object b = before.values.get(key);
+                final Object a = after.values.get(key);
+                if ((b instanceof PropertiesSnapshot)
+                        && (a instanceof PropertiesSnapshot)) {
+                    diff(path + Properties.SEPATATOR, (PropertiesSnapshot) b,
+                            (PropertiesSnapshot) a, result);
+                } else if ((b instanceof PropertiesSnapshot)
+                        || (a instanceof PropertiesSnapshot)
+                        || !Objects.equals(b, a)) {
+                    result.add(path);
+                }
+            }
+        }
+        for (final String key : after.keys) {
+            if (!before.values.containsKey(key)) {
+                result.add(prefix + key);
+            }
+        }
+    }
+
+    /** toString */
+    @Override
+    public String toString() {
+        return "PropertiesSnapshot(" + localKey + ", " + values + ")";
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright (C) 2013 Sebastien Diot.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.blockwithme.properties.impl;
+
+/**
+ * An immutable, already applied, property change, as delivered to a
+ * ChangeListener. If the property changed multiple times within one batch,
+ * oldValue is the value before the first change, and newValue the value after
+ * the last change.
+ *
+ * @author monster
+ */
+public final class PropertyChange {
+
+    /** The absolute path of the property. */
+    private final String path;
+
+    /** The old value. */
+    private final Object oldValue;
+
+    /** The new value. */
+    private final Object newValue;
+
+    /** Creates a PropertyChange. */
+    public PropertyChange(final String path, final Object oldValue,
+            final Object newValue) {
+        this.path = path;
+        this.oldValue = oldValue;
+        this.newValue = newValue;
+    }
+
+    /** Returns the absolute path of the property. */
+    public String path() {
+        return path;
+    }
+
+    /** Returns the old value. */
+    public Object oldValue() {
+        return oldValue;
+    }
+
+    /** Returns the new value. */
+    public Object newValue() {
+        return newValue;
+    }
+
+    /** toString */
+    @Override
+    public String toString() {
+        return path + ": " + oldValue + " -> " + newValue;
+    }
+}
@@ -0,0 +1,218 @@
+/*
+ * Copyright (C) 2013 Sebastien Diot.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.blockwithme.properties.impl;
+
+import java.util.Comparator;
+import java.util.Objects;
+
+import com.blockwithme.properties.Filter;
+
+/**
+ * A declarative Filter, combining a key prefix, a key range, a value type
+ * and a value.
+ *
+ * PropertiesImpl recognizes Query, and uses the key ordering and the value
+ * index (if any) to avoid visiting every key. Values, and therefore
+ * Generators, are only computed for the keys accepted by the key predicates,
+ * and not at all if the Query does not test values.
+ *
+ * Queries are immutable; every method returns a new Query, which must match
+ * all the criteria. Key ranges use the NumbersLastStringComparator order.
+ *
+ * @author monster
+ */
+public final class Query implements Filter {
+
+    /** The Query accepting everything. */
+    public static final Query ALL = new Query(null, null, null, null, false,
+            null);
+
+    /** The key prefix, or null. */
+    private final String prefix;
+
+    /** The (inclusive) lowest key, or null. */
+    private final String from;
+
+    /** The (exclusive) highest key, or null. */
+    private final String to;
+
+    /** The value type, or null. */
+    private final Class<?> type;
+
+    /** Is the value tested? */
+    private final boolean hasValue;
+
+    /** The value, if hasValue. */
+    private final Object value;
+
+    /** Creates a Query. */
+    private Query(final String prefix, final String from, final String to,
+            final Class<?> type, final boolean hasValue, final Object value) {
+        this.prefix = prefix;
+        this.from = from;
+        this.to = to;
+        this.type = type;
+        this.hasValue = hasValue;
+        this.value = value;
+    }
+
+    /** Only accepts keys starting with the prefix. */
+    public Query keyPrefix(final String thePrefix) {
+        Objects.requireNonNull(thePrefix, "thePrefix");
+        if ((prefix != null) && !thePrefix.startsWith(prefix)) {
+            if (!prefix.startsWith(thePrefix)) {
+                throw new IllegalArgumentException("Prefixes " + prefix
+                        + " and " + thePrefix + " exclude each other");
+            }
+            return this;
+        }
+        return new Query(thePrefix, from, to, type, hasValue, value);
+    }
+
+    /**
+     * Only accepts keys >= theFrom and < theTo. Either can be null, for an
+     * unbounded range.
+     */
+    public Query keyRange(final String theFrom, final String theTo) {
+        final Comparator<String> cmp = NumbersLastStringComparator.CMP;
+        final String newFrom = ((from == null) || ((theFrom != null) && (cmp
+                .compare(theFrom, from) > 0))) ? theFrom : from;
+        final String newTo = ((to == null) || ((theTo != null) && (cmp
+                .compare(theTo, to) < 0))) ? theTo : to;
+        return new Query(prefix, newFrom, newTo, type, hasValue, value);
+    }
+
+    /**
+     * Only accepts values of the given type. Null is never accepted.
+     * If a type was already given, one type must extend the other.
+     */
+    public Query valueType(final Class<?> theType) {
+        Objects.requireNonNull(theType, "theType");
+        if ((type != null) && !type.isAssignableFrom(theType)) {
+            if (!theType.isAssignableFrom(type)) {
+                throw new IllegalArgumentException("Types " + type + " and "
+                        + theType + " are unrelated");
+            }
+            return this;
+        }
+        return new Query(prefix, from, to, theType, hasValue, value);
+    }
+
+    /** Only accepts values equal to the given value (which can be null). */
+    public Query valueEquals(final Object theValue) {
+        if (hasValue && !Objects.equals(value, theValue)) {
+            throw new IllegalArgumentException("Values " + value + " and "
+                    + theValue + " exclude each other");
+        }
+        return new Query(prefix, from, to, type, true, theValue);
+    }
+
+    /** Returns the key prefix, or null. */
+    public String prefix() {
+        return prefix;
+    }
+
+    /**
+     * Returns the lowest key, including the prefix restriction, or null.
+     * A prefix that cannot start a number is a contiguous range of keys.
+     */
+    String lowestKey() {
+        if (prefix != null) {
+            final char c = prefix.isEmpty() ? '0' : prefix.charAt(0);
+            final boolean number = (c == '-') || ((c >= '0') && (c <= '9'));
+            if (!number
+                    && ((from == null) || (NumbersLastStringComparator.CMP
+                            .compare(prefix, from) > 0))) {
+                return prefix;
+            }
+        }
+        return from;
+    }
+
+    /** Returns the (exclusive) highest key, or null. */
+    String highestKey() {
+        if (prefix != null) {
+            final char c = prefix.isEmpty() ? '0' : prefix.charAt(0);
+            final boolean number = (c == '-') || ((c >= '0') && (c <= '9'));
+            if (!number) {
+                // Keys only use [a-zA-Z0-9], so this is above them all
+                final String high = prefix + '\uFFFF';
+                if ((to == null)
+                        || (NumbersLastStringComparator.CMP.compare(high, to) < 0)) {
+                    return high;
+                }
+            }
+        }
+        return to;
+    }
+
+    /** Returns the value type, or null. */
+    public Class<?> type() {
+        return type;
+    }
+
+    /** Is the value tested? */
+    public boolean hasValue() {
+        return hasValue;
+    }
+
+    /** Returns the value, if hasValue(). */
+    public Object value() {
+        return value;
+    }
+
+    /** Returns true, if only the keys are tested. */
+    public boolean keysOnly() {
+        return !hasValue && (type == null);
+    }
+
+    /** Returns true, if the key is accepted. */
+    public boolean acceptKey(final String key) {
+        if ((prefix != null) && !key.startsWith(prefix)) {
+            return false;
+        }
+        if ((from != null)
+                && (NumbersLastStringComparator.CMP.compare(key, from) < 0)) {
+            return false;
+        }
+        return (to == null)
+                || (NumbersLastStringComparator.CMP.compare(key, to) < 0);
+    }
+
+    /** Returns true, if the (resolved) value is accepted. */
+    public boolean acceptValue(final Object obj) {
+        if ((type != null) && !type.isInstance(obj)) {
+            return false;
+        }
+        return !hasValue || Objects.equals(value, obj);
+    }
+
+    /* (non-Javadoc)
+     * @see com.blockwithme.properties.Filter#accept(java.lang.String, java.lang.Object)
+     */
+    @Override
+    public boolean accept(final String key, final Object obj) {
+        return acceptKey(key) && acceptValue(obj);
+    }
+
+    /** toString */
+    @Override
+    public String toString() {
+        return "Query(prefix=" + prefix + ", from=" + from + ", to=" + to
+                + ", type=" + type + (hasValue ? ", value=" + value : "") + ")";
+    }
+}
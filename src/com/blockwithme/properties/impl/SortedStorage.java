@@ -0,0 +1,82 @@
+/*
+ * Copyright (C) 2013 Sebastien Diot.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.blockwithme.properties.impl;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.TreeMap;
+
+/**
+ * LocalStorage based on a TreeMap.
+ *
+ * @author monster
+ */
+final class SortedStorage<V> extends LocalStorage<V> {
+
+    /** The properties. */
+    private final TreeMap<String, V> map = new TreeMap<>(
+            NumbersLastStringComparator.CMP);
+
+    /* (non-Javadoc)
+     * @see com.blockwithme.properties.impl.LocalStorage#get(java.lang.String)
+     */
+    @Override
+    V get(final String localKey) {
+        return map.get(localKey);
+    }
+
+    /* (non-Javadoc)
+     * @see com.blockwithme.properties.impl.LocalStorage#put(java.lang.String, java.lang.Object)
+     */
+    @Override
+    void put(final String localKey, final V value) {
+        map.put(localKey, value);
+    }
+
+    /* (non-Javadoc)
+     * @see com.blockwithme.properties.impl.LocalStorage#size()
+     */
+    @Override
+    int size() {
+        return map.size();
+    }
+
+    /* (non-Javadoc)
+     * @see com.blockwithme.properties.impl.LocalStorage#keys()
+     */
+    @Override
+    Iterator<String> keys() {
+        return map.keySet().iterator();
+    }
+
+    /* (non-Javadoc)
+     * @see com.blockwithme.properties.impl.LocalStorage#keys(java.lang.String, java.lang.String)
+     */
+    @Override
+    Iterator<String> keys(final String from, final String to) {
+        if (from == null) {
+            return (to == null) ? keys() : map.headMap(to).keySet().iterator();
+        }
+        if (to == null) {
+            return map.tailMap(from).keySet().iterator();
+        }
+        if (NumbersLastStringComparator.CMP.compare(from, to) >= 0) {
+            return Collections.<String> emptyList().iterator();
+        }
+        return map.subMap(from, to).keySet().iterator();
+    }
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright (C) 2013 Sebastien Diot.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.blockwithme.properties.impl;
+
+/**
+ * The kind of storage used by the PropertiesImpl of a graph, for their own
+ * properties.
+ *
+ * @author monster
+ */
+public enum Storage {
+    /**
+     * Sorted storage. Lookups are O(log n), but using a comparator that
+     * parses numbers, and the iteration order is always available.
+     */
+    SORTED {
+        @Override
+        <V> LocalStorage<V> create() {
+            return new SortedStorage<>();
+        }
+    },
+    /**
+     * Hashed storage. Lookups are O(1), and the iteration order is only
+     * computed (lazily) when iterating. Best for lookup-heavy workloads.
+     */
+    HASHED {
+        @Override
+        <V> LocalStorage<V> create() {
+            return new HashedStorage<>();
+        }
+    },
+    /**
+     * Concurrent sorted storage, for graphs used by multiple threads. Reads
+     * are lock-free, and writes lock the modified Properties only.
+     * ListPropertiesImpl and PropertiesImpl.indexValues() are not supported.
+     */
+    CONCURRENT {
+        @Override
+        <V> LocalStorage<V> create() {
+            return new ConcurrentStorage<>();
+        }
+    };
+
+    /** Creates a new, empty, storage. */
+    abstract <V> LocalStorage<V> create();
+}
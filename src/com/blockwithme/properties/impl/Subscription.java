@@ -0,0 +1,167 @@
+/*
+ * Copyright (C) 2013 Sebastien Diot.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.blockwithme.properties.impl;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.blockwithme.properties.Properties;
+
+/**
+ * A ChangeListener subscription, to the changes of all properties under
+ * some path prefix.
+ *
+ * Batches are delivered one at a time, in order, on the executor. If batches
+ * queue up, because the listener is slow, they are merged into one before
+ * delivery.
+ *
+ * @author monster
+ */
+public final class Subscription {
+
+    /** The path prefix, without trailing separator (except for the root). */
+    private final String prefix;
+
+    /** The listener. */
+    private final ChangeListener listener;
+
+    /** The executor. */
+    private final Executor executor;
+
+    /** The notifier, for cancel(). */
+    private final ChangeNotifier notifier;
+
+    /** The batches waiting for delivery. */
+    private final ConcurrentLinkedQueue<List<PropertyChange>> batches = new ConcurrentLinkedQueue<>();
+
+    /** Is a delivery task scheduled on the executor? */
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+
+    /** Was this subscription cancelled? */
+    private volatile boolean cancelled;
+
+    /** Delivers the queued batches. */
+    private final Runnable delivery = new Runnable() {
+        @Override
+        public void run() {
+            deliver();
+        }
+    };
+
+    /** Creates a Subscription. */
+    Subscription(final String prefix, final ChangeListener listener,
+            final Executor executor, final ChangeNotifier notifier) {
+        Objects.requireNonNull(prefix, "prefix");
+        if ((prefix.isEmpty()) || (prefix.charAt(0) != Properties.SEPATATOR)) {
+            throw new IllegalArgumentException("prefix must be absolute: "
+                    + prefix);
+        }
+        // "/a/b/" and "/a/b" are the same prefix
+        this.prefix = ((prefix.length() > 1) && (prefix.charAt(prefix
+                .length() - 1) == Properties.SEPATATOR)) ? prefix.substring(0,
+                prefix.length() - 1) : prefix;
+        this.listener = Objects.requireNonNull(listener, "listener");
+        this.executor = Objects.requireNonNull(executor, "executor");
+        this.notifier = notifier;
+    }
+
+    /** Returns the path prefix. */
+    public String prefix() {
+        return prefix;
+    }
+
+    /** Returns true if the subscription was cancelled. */
+    public boolean cancelled() {
+        return cancelled;
+    }
+
+    /** Cancels the subscription. Queued batches are dropped. */
+    public void cancel() {
+        cancelled = true;
+        batches.clear();
+        notifier.remove(this);
+    }
+
+    /** Returns true if the path is under our prefix. Whole keys only. */
+    boolean matches(final String path) {
+        final int len = prefix.length();
+        if ((len == 1) || !path.startsWith(prefix)) {
+            // len == 1 means root
+            return (len == 1);
+        }
+        return (path.length() == len)
+                || (path.charAt(len) == Properties.SEPATATOR);
+    }
+
+    /** Queues a batch for delivery. */
+    void enqueue(final List<PropertyChange> batch) {
+        if (!cancelled) {
+            batches.add(batch);
+            if (scheduled.compareAndSet(false, true)) {
+                executor.execute(delivery);
+            }
+        }
+    }
+
+    /** Delivers the queued batches, until there are none left. */
+    private void deliver() {
+        while (true) {
+            List<PropertyChange> batch = batches.poll();
+            if (batch == null) {
+                scheduled.set(false);
+                // A batch might have been queued before we reset the flag
+                if (batches.isEmpty() || !scheduled.compareAndSet(false, true)) {
+                    return;
+                }
+                continue;
+            }
+            List<PropertyChange> next = batches.poll();
+            if (next != null) {
+                // Slow listener: coalesce all waiting batches
+                final LinkedHashMap<String, PropertyChange> merged = new LinkedHashMap<>();
+                ChangeNotifier.merge(merged, batch);
+                while (next != null) {
+                    ChangeNotifier.merge(merged, next);
+                    next = batches.poll();
+                }
+                batch = ChangeNotifier.effective(merged);
+            }
+            if (!cancelled && !batch.isEmpty()) {
+                try {
+                    listener.onChanges(Collections.unmodifiableList(batch));
+                } catch (final RuntimeException e) {
+                    Logger.getLogger(Subscription.class.getName()).log(
+                            Level.SEVERE, "Listener " + listener + " failed",
+                            e);
+                }
+            }
+        }
+    }
+
+    /** toString */
+    @Override
+    public String toString() {
+        return "Subscription(" + prefix + ", " + listener + ")";
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright (C) 2013 Sebastien Diot.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.blockwithme.properties.impl;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+import com.blockwithme.properties.Generator;
+
+/**
+ * Reverse index of the local values of a PropertiesImpl, from value to keys.
+ *
+ * Values are compared with equals(), so values that are mutated after being
+ * set (for example, collections) are not found anymore. Generators cannot be
+ * indexed, since their value can change at any time; their keys are kept
+ * separately, so that they can be computed on lookup.
+ *
+ * @author monster
+ */
+final class ValueIndex {
+
+    /** Represents null values internally. */
+    private static final Object NULL = new Object();
+
+    /** The keys, by value. Either a String, or an ArrayList of String. */
+    private final HashMap<Object, Object> keys = new HashMap<>();
+
+    /** The keys of the Generator values. */
+    private final ArrayList<String> generated = new ArrayList<>();
+
+    /** Masks null values. */
+    private static Object mask(final Object value) {
+        return (value == null) ? NULL : value;
+    }
+
+    /** Adds a key, with the given value. */
+    @SuppressWarnings("unchecked")
+    void add(final String localKey, final Object value) {
+        if (value instanceof Generator) {
+            generated.add(localKey);
+            return;
+        }
+        final Object masked = mask(value);
+        final Object old = keys.get(masked);
+        if (old == null) {
+            keys.put(masked, localKey);
+        } else if (old instanceof String) {
+            final ArrayList<String> list = new ArrayList<>(2);
+            list.add((String) old);
+            list.add(localKey);
+            keys.put(masked, list);
+        } else {
+            ((ArrayList<String>) old).add(localKey);
+        }
+    }
+
+    /** Removes a key, which had the given value. */
+    @SuppressWarnings("unchecked")
+    void remove(final String localKey, final Object value) {
+        if (value instanceof Generator) {
+            generated.remove(localKey);
+            return;
+        }
+        final Object masked = mask(value);
+        final Object old = keys.get(masked);
+        if (localKey.equals(old)) {
+            keys.remove(masked);
+        } else if (old instanceof ArrayList) {
+            final ArrayList<String> list = (ArrayList<String>) old;
+            list.remove(localKey);
+            if (list.size() == 1) {
+                keys.put(masked, list.get(0));
+            }
+        }
+    }
+
+    /** Updates the value of a key. */
+    void update(final String localKey, final Object oldValue,
+            final Object newValue) {
+        remove(localKey, oldValue);
+        add(localKey, newValue);
+    }
+
+    /** Returns true, if some non-Generator key has the given value. */
+    boolean contains(final Object value) {
+        return keys.containsKey(mask(value));
+    }
+
+    /** Adds the non-Generator keys with the given value to result. */
+    @SuppressWarnings("unchecked")
+    void keysOf(final Object value, final List<String> result) {
+        final Object found = keys.get(mask(value));
+        if (found instanceof String) {
+            result.add((String) found);
+        } else if (found != null) {
+            result.addAll((ArrayList<String>) found);
+        }
+    }
+
+    /** Returns the keys of the Generator values. Must not be modified. */
+    List<String> generated() {
+        return generated;
+    }
+}
@@ -0,0 +1,226 @@
+/*
+ * Copyright (C) 2013 Sebastien Diot.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.blockwithme.util;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bounded, lock-free, cache of objects that can be represented as a long.
+ *
+ * It is "direct-mapped": every long key maps to exactly one slot, so that a
+ * lookup is a single array read, and a new object simply evicts the object
+ * that was in it's slot. The cached objects must be immutable (all fields
+ * final, or lazily computed idempotently), since they are shared between
+ * threads without synchronization.
+ *
+ * Statistics are optional, since they cost a write on every access. When
+ * enabled, the counters are striped over multiple cache lines, by thread, so
+ * that concurrent threads mostly do not write the same cache line. The
+ * counts are exact, but only consistent with each other when the cache is
+ * not in use.
+ *
+ * @author monster
+ */
+public class DirectMappedLongCache<E extends AsLong> {
+
+    /** Multiplier used for hashing (golden ratio). */
+    private static final long HASH = 0x9E3779B97F4A7C15L;
+
+    /** Number of stripes of the counters; a power of two. */
+    private static final int STRIPES;
+
+    static {
+        final int wanted = Math.min(64,
+                2 * Runtime.getRuntime().availableProcessors());
+        int stripes = 1;
+        while (stripes < wanted) {
+            stripes *= 2;
+        }
+        STRIPES = stripes;
+    }
+
+    /**
+     * A counter striped over multiple cache lines. The stripe is chosen by
+     * thread ID, so that threads mostly increment different cache lines.
+     */
+    private static final class Counter {
+        /** Longs per stripe: 64 bytes, or one cache line. */
+        private static final int PAD = 8;
+
+        /** The cells; only every PAD-th one is used. */
+        private final AtomicLongArray cells = new AtomicLongArray(STRIPES
+                * PAD);
+
+        /** Increments the counter. */
+        void increment() {
+            final int stripe = (int) Thread.currentThread().getId()
+                    & (STRIPES - 1);
+            cells.incrementAndGet(stripe * PAD);
+        }
+
+        /** Returns the sum of all stripes. */
+        long sum() {
+            long result = 0;
+            for (int i = 0; i < STRIPES; i++) {
+                result += cells.get(i * PAD);
+            }
+            return result;
+        }
+
+        /** Resets all stripes. */
+        void reset() {
+            for (int i = 0; i < STRIPES; i++) {
+                cells.set(i * PAD, 0);
+            }
+        }
+    }
+
+    /** The slots. */
+    private final AsLong[] slots;
+
+    /** The hash shift. */
+    private final int shift;
+
+    /** Number of hits, or null without statistics. */
+    private final Counter hits;
+
+    /** Number of misses, or null without statistics. */
+    private final Counter misses;
+
+    /** Number of evictions, or null without statistics. */
+    private final Counter evictions;
+
+    /**
+     * Creates a cache with at least the given capacity, without statistics.
+     * The capacity is rounded up to a power of two.
+     */
+    public DirectMappedLongCache(final int minCapacity) {
+        this(minCapacity, false);
+    }
+
+    /**
+     * Creates a cache with at least the given capacity, optionally keeping
+     * statistics. The capacity is rounded up to a power of two.
+     */
+    public DirectMappedLongCache(final int minCapacity,
+            final boolean statistics) {
+        if (minCapacity <= 0) {
+            throw new IllegalArgumentException("minCapacity must be > 0: "
+                    + minCapacity);
+        }
+        if (minCapacity > (1 << 30)) {
+            throw new IllegalArgumentException("minCapacity too big: "
+                    + minCapacity);
+        }
+        int bits = 0;
+        while ((1 << bits) < minCapacity) {
+            bits++;
+        }
+        slots = new AsLong[1 << bits];
+        shift = 64 - bits;
+        hits = statistics ? new Counter() : null;
+        misses = statistics ? new Counter() : null;
+        evictions = statistics ? new Counter() : null;
+    }
+
+    /** Returns the slot index of the key. */
+    private int index(final long key) {
+        // shift is 64 for a capacity of 1, and a Java shift is modulo 64.
+        return (shift == 64) ? 0 : (int) ((key * HASH) >>> shift);
+    }
+
+    /** Returns the cached object with the given key, or null. */
+    @SuppressWarnings("unchecked")
+    public E get(final long key) {
+        final AsLong result = slots[index(key)];
+        if ((result != null) && (result.asLong() == key)) {
+            if (hits != null) {
+                hits.increment();
+            }
+            return (E) result;
+        }
+        if (misses != null) {
+            misses.increment();
+        }
+        return null;
+    }
+
+    /** Caches the object, possibly evicting another one. */
+    public void put(final E value) {
+        final int index = index(value.asLong());
+        if ((evictions != null) && (slots[index] != null)) {
+            evictions.increment();
+        }
+        slots[index] = value;
+    }
+
+    /** Returns the capacity. */
+    public int capacity() {
+        return slots.length;
+    }
+
+    /** Removes all objects. */
+    public void clear() {
+        for (int i = 0; i < slots.length; i++) {
+            slots[i] = null;
+        }
+    }
+
+    /** Returns true, if statistics are kept. */
+    public boolean statistics() {
+        return (hits != null);
+    }
+
+    /** Returns the number of hits. Always 0 without statistics. */
+    public long hits() {
+        return (hits == null) ? 0 : hits.sum();
+    }
+
+    /** Returns the number of misses. Always 0 without statistics. */
+    public long misses() {
+        return (misses == null) ? 0 : misses.sum();
+    }
+
+    /** Returns the number of evictions. Always 0 without statistics. */
+    public long evictions() {
+        return (evictions == null) ? 0 : evictions.sum();
+    }
+
+    /** Returns the hit rate, between 0 and 1. 0 if never used. */
+    public double hitRate() {
+        final long h = hits();
+        final long total = h + misses();
+        return (total == 0) ? 0 : ((double) h) / total;
+    }
+
+    /** Resets the statistics. */
+    public void resetStatistics() {
+        if (hits != null) {
+            hits.reset();
+            misses.reset();
+            evictions.reset();
+        }
+    }
+
+    /** toString */
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "(capacity=" + capacity()
+                + ", hits=" + hits() + ", misses=" + misses()
+                + ", evictions=" + evictions() + ")";
+    }
+}
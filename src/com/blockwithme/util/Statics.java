@@ -64,4 +64,15 @@ public class Statics {
         }
         return (E) cache.get(key);
     }
+
+    /**
+     * Compares the currently cached value with the given previous value, and
+     * if matching, removes it. Returns true if removed.
+     */
+    public static boolean remove(final String key, final Object oldValue) {
+        if (key == null) {
+            throw new NullPointerException("key");
+        }
+        return (oldValue != null) && cache.remove(key, oldValue);
+    }
 }
@@ -0,0 +1,163 @@
+/*
+ * Copyright (C) 2013 Sebastien Diot.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.blockwithme.base40;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.blockwithme.prim.BulkConverters;
+import com.blockwithme.prim.IntConverter;
+import com.blockwithme.prim.LongConverter;
+import com.blockwithme.prim.LongIntConverter;
+import com.blockwithme.prim.Pipelines;
+import com.blockwithme.util.DirectMappedLongCache;
+
+/**
+ * Tests the Base40Converter instance cache.
+ *
+ * @author monster
+ */
+public class Base40ConverterTest {
+
+    @Test
+    public void testNoCache() {
+        final Base40Converter conv = new Base40Converter();
+        assertNull(conv.cache());
+        final Base40 a = conv.toObject(42L);
+        final Base40 b = conv.toObject(42L);
+        assertEquals(a, b);
+        assertNotSame(a, b);
+    }
+
+    @Test
+    public void testCache() {
+        final Base40Converter conv = new Base40Converter(
+                Base40.getDefaultCharacterSet(), 100, true);
+        final DirectMappedLongCache<Base40> cache = conv.cache();
+        assertEquals(128, cache.capacity());
+        final Base40 a = conv.toObject(42L);
+        assertSame(a, conv.toObject(42L));
+        assertEquals(42L, a.asLong());
+        assertEquals(1, cache.hits());
+        assertEquals(1, cache.misses());
+        assertEquals(0.5, cache.hitRate(), 0.0);
+        cache.clear();
+        cache.resetStatistics();
+        final Base40 b = conv.toObject(42L);
+        assertEquals(a, b);
+        assertNotSame(a, b);
+        assertEquals(0, cache.hits());
+        assertEquals(conv.getConfiguration(),
+                new Base40Converter(conv.getConfiguration())
+                        .getConfiguration());
+    }
+
+    @Test
+    public void testConcurrentStatistics() throws InterruptedException {
+        final Base40Converter conv = new Base40Converter(
+                Base40.getDefaultCharacterSet(), 16, true);
+        final List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            threads.add(new Thread() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < 10000; i++) {
+                        conv.toObject(i % 8);
+                    }
+                }
+            });
+        }
+        for (final Thread t : threads) {
+            t.start();
+        }
+        for (final Thread t : threads) {
+            t.join();
+        }
+        final DirectMappedLongCache<Base40> cache = conv.cache();
+        assertEquals(40000, cache.hits() + cache.misses());
+
+        final Base40Converter plain = new Base40Converter(
+                Base40.getDefaultCharacterSet(), 16);
+        plain.toObject(1L);
+        plain.toObject(1L);
+        assertFalse(plain.cache().statistics());
+        assertEquals(0, plain.cache().hits());
+    }
+
+    @Test
+    public void testEviction() {
+        final Base40Converter conv = new Base40Converter(
+                Base40.getDefaultCharacterSet(), 1, true);
+        final DirectMappedLongCache<Base40> cache = conv.cache();
+        final Base40 a = conv.toObject(1L);
+        final Base40 b = conv.toObject(2L);
+        assertEquals(1, cache.evictions());
+        assertSame(b, conv.toObject(2L));
+        assertNotSame(a, conv.toObject(1L));
+    }
+
+    @Test
+    public void testBulk() {
+        final Base40Converter conv = new Base40Converter(
+                Base40.getDefaultCharacterSet(), 16);
+        final long[] values = { 0L, 1L, 2L, 123456789L, -1L };
+        final Base40[] objects = new Base40[values.length + 2];
+        BulkConverters.toObjects(conv, values, 0, objects, 1, values.length);
+        for (int i = 0; i < values.length; i++) {
+            assertEquals(values[i], objects[i + 1].asLong());
+        }
+        final long[] back = new long[values.length];
+        BulkConverters.fromObjects(conv, objects, 1, back, 0, values.length);
+        assertArrayEquals(values, back);
+        try {
+            BulkConverters.fromObjects(conv, objects, 3, back, 0,
+                    values.length);
+            throw new AssertionError("Expected IndexOutOfBoundsException");
+        } catch (final IndexOutOfBoundsException e) {
+            // Expected
+        }
+    }
+
+    @Test
+    public void testPipeline() {
+        final Base40Converter conv = new Base40Converter();
+        final LongConverter<String> fused = Pipelines.compose(
+                conv.textConverter(), conv);
+        final long hello = fused.fromObject("hello");
+        assertEquals(new Base40(Base40.getDefaultCharacterSet(), "hello").asLong(),
+                hello);
+        assertEquals("hello", fused.toObject(hello));
+        final IntConverter<String> toInt = Pipelines.compose(
+                conv.textConverter(), conv, LongIntConverter.NARROWING);
+        assertEquals("abc", toInt.toObject(toInt.fromObject("abc")));
+        try {
+            toInt.fromObject("helloworld");
+            throw new AssertionError("Expected IllegalArgumentException");
+        } catch (final IllegalArgumentException e) {
+            // Expected: too big for an int
+        }
+    }
+}
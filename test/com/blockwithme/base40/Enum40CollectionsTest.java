@@ -0,0 +1,168 @@
+/*
+ * Copyright (C) 2013 Sebastien Diot.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.blockwithme.base40;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+
+import org.junit.Test;
+
+/**
+ * Tests Enum40Set and Enum40Map.
+ *
+ * @author monster
+ */
+public class Enum40CollectionsTest {
+
+    /** Base Enum40 */
+    public static class Color extends Enum40<Color> {
+        /**  */
+        private static final long serialVersionUID = 1L;
+        public static final Color Red = new Color();
+        public static final Color Green = new Color();
+        public static final Color Blue = new Color();
+
+        private Color() {
+            this(Color.class);
+        }
+
+        protected Color(final Class<? extends Color> type) {
+            super(type);
+        }
+    }
+
+    /** Child Enum40 */
+    public static class ExtColor extends Color {
+        /**  */
+        private static final long serialVersionUID = 1L;
+        public static final ExtColor Cyan = new ExtColor();
+        public static final ExtColor Magenta = new ExtColor();
+
+        private ExtColor() {
+            super(ExtColor.class);
+        }
+    }
+
+    @Test
+    public void testSet() {
+        final Enum40Set<Color> set = Enum40Set.noneOf(Color.class);
+        assertTrue(set.isEmpty());
+        assertTrue(set.add(Color.Blue));
+        assertFalse(set.add(Color.Blue));
+        assertTrue(set.add(ExtColor.Cyan));
+        assertTrue(set.add(Color.Red));
+        assertEquals(3, set.size());
+        assertTrue(set.contains(ExtColor.Cyan));
+        assertFalse(set.contains(ExtColor.Magenta));
+        assertFalse(set.contains("Red"));
+        final Iterator<Color> iter = set.iterator();
+        assertEquals(Color.Red, iter.next());
+        assertEquals(Color.Blue, iter.next());
+        assertEquals(ExtColor.Cyan, iter.next());
+        assertFalse(iter.hasNext());
+        assertEquals(new HashSet<Color>(Arrays.asList(Color.Red, Color.Blue,
+                ExtColor.Cyan)), set);
+        assertTrue(set.remove(Color.Blue));
+        assertFalse(set.remove(Color.Blue));
+        assertEquals(2, set.size());
+    }
+
+    @Test
+    public void testSetBulk() {
+        final Enum40Set<Color> all = Enum40Set.allOf(Color.class);
+        // Make sure the child is initialized
+        assertTrue(ExtColor.Cyan.valid());
+        assertEquals(5, Enum40Set.allOf(ExtColor.Cyan.getDeclaringClass())
+                .size());
+        assertTrue(all.size() >= 3);
+        final Enum40Set<Color> some = Enum40Set.of(Color.Green,
+                ExtColor.Magenta);
+        final Enum40Set<Color> others = Enum40Set.complementOf(some);
+        assertFalse(others.contains(Color.Green));
+        assertTrue(others.contains(Color.Red));
+        assertTrue(others.contains(ExtColor.Cyan));
+        final Enum40Set<Color> copy = Enum40Set.copyOf(others);
+        assertTrue(copy.retainAll(some));
+        assertTrue(copy.isEmpty());
+        assertTrue(copy.addAll(some));
+        assertEquals(some, copy);
+        assertTrue(Enum40Set.allOf(Color.class).containsAll(some));
+        assertFalse(others.containsAll(some));
+        assertTrue(copy.removeAll(some));
+        assertTrue(copy.isEmpty());
+    }
+
+    /** Unrelated Enum40, sharing the ordinals of Color */
+    public static class Size extends Enum40<Size> {
+        /**  */
+        private static final long serialVersionUID = 1L;
+        public static final Size Small = new Size();
+        public static final Size Large = new Size();
+
+        private Size() {
+            super(Size.class);
+        }
+    }
+
+    @Test
+    public void testSetOtherType() {
+        final Enum40Set<Color> colors = Enum40Set.of(Color.Red, Color.Green);
+        final Enum40Set<Size> sizes = Enum40Set.of(Size.Small, Size.Large);
+        assertFalse(colors.containsAll(sizes));
+        assertFalse(colors.removeAll(sizes));
+        assertEquals(2, colors.size());
+        assertFalse(colors.equals(sizes));
+        assertTrue(colors.retainAll(sizes));
+        assertTrue(colors.isEmpty());
+        assertEquals(Enum40Set.noneOf(Color.class),
+                Enum40Set.noneOf(Size.class));
+    }
+
+    @Test
+    public void testMap() {
+        final Enum40Map<Color, String> map = new Enum40Map<>(Color.class);
+        assertNull(map.put(Color.Green, "green"));
+        assertNull(map.put(ExtColor.Magenta, null));
+        assertEquals("green", map.put(Color.Green, "GREEN"));
+        assertEquals(2, map.size());
+        assertTrue(map.containsKey(ExtColor.Magenta));
+        assertNull(map.get(ExtColor.Magenta));
+        assertFalse(map.containsKey(Color.Red));
+        assertTrue(map.containsValue("GREEN"));
+        assertTrue(map.containsValue(null));
+        final Iterator<Map.Entry<Color, String>> iter = map.entrySet()
+                .iterator();
+        final Map.Entry<Color, String> first = iter.next();
+        assertEquals(Color.Green, first.getKey());
+        first.setValue("Vert");
+        assertEquals(ExtColor.Magenta, iter.next().getKey());
+        assertFalse(iter.hasNext());
+        assertEquals("Vert", map.get(Color.Green));
+        final Enum40Map<Color, String> copy = new Enum40Map<>(map);
+        assertEquals(map, copy);
+        assertEquals("Vert", copy.remove(Color.Green));
+        assertEquals(1, copy.size());
+        assertEquals(2, map.size());
+    }
+}
@@ -0,0 +1,270 @@
+/*
+ * Copyright (C) 2013 Sebastien Diot.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.blockwithme.base40;
+
+import java.util.Random;
+
+/**
+ * Simple benchmark, comparing the Enum40 visitor-style dispatch, an
+ * Enum40LongDispatcher, a switch using an Enum40SwitchMap, and a plain switch
+ * on a Java enum.
+ *
+ * TODO: Turn into a JMH benchmark, once we have JMH in the build.
+ *
+ * @author monster
+ */
+public class Enum40DispatchBenchmark {
+
+    /** Handler for Op. */
+    public interface OpHandler extends Enum40LongHandler<Op> {
+        long inc(final long input);
+
+        long dec(final long input);
+
+        long dbl(final long input);
+
+        long neg(final long input);
+    }
+
+    /** Enum40 with visitor-style handle() overrides. */
+    public static class Op extends Enum40<Op> {
+        /**  */
+        private static final long serialVersionUID = 1L;
+        public static final Op Inc = new Op() {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            public long handle(final Enum40LongHandler<Op> handler,
+                    final long input) {
+                return ((OpHandler) handler).inc(input);
+            }
+        };
+        public static final Op Dec = new Op() {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            public long handle(final Enum40LongHandler<Op> handler,
+                    final long input) {
+                return ((OpHandler) handler).dec(input);
+            }
+        };
+        public static final Op Dbl = new Op() {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            public long handle(final Enum40LongHandler<Op> handler,
+                    final long input) {
+                return ((OpHandler) handler).dbl(input);
+            }
+        };
+        public static final Op Neg = new Op() {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            public long handle(final Enum40LongHandler<Op> handler,
+                    final long input) {
+                return ((OpHandler) handler).neg(input);
+            }
+        };
+
+        private Op() {
+            super(Op.class);
+        }
+
+        private Op(final long base40) {
+            super(Op.class, base40);
+        }
+
+        @Override
+        protected Op newInstance(final long base40) {
+            return new Op(base40);
+        }
+    }
+
+    /** Java enum equivalent of Op. */
+    public enum JavaOp {
+        Inc, Dec, Dbl, Neg
+    }
+
+    /** The handler implementation. */
+    private static final OpHandler HANDLER = new OpHandler() {
+        @Override
+        public long unknown(final Op unknow, final long input) {
+            throw new IllegalStateException("unknown: " + unknow);
+        }
+
+        @Override
+        public long inc(final long input) {
+            return input + 1;
+        }
+
+        @Override
+        public long dec(final long input) {
+            return input - 1;
+        }
+
+        @Override
+        public long dbl(final long input) {
+            return input * 2;
+        }
+
+        @Override
+        public long neg(final long input) {
+            return -input;
+        }
+    };
+
+    /** Switch map for Op. */
+    private static final Enum40SwitchMap<Op> CASES = new Enum40SwitchMap<>(
+            Op.Inc, Op.Dec, Op.Dbl, Op.Neg);
+
+    /** Dispatcher equivalent of HANDLER. */
+    private static final Enum40LongDispatcher<Op> DISPATCHER = new Enum40LongDispatcher<Op>(
+            Op.Inc, Op.Dec, Op.Dbl, Op.Neg) {
+        @Override
+        protected long dispatch(final int caseNumber, final Op value,
+                final long input) {
+            switch (caseNumber) {
+            case 1:
+                return input + 1;
+            case 2:
+                return input - 1;
+            case 3:
+                return input * 2;
+            case 4:
+                return -input;
+            default:
+                throw new IllegalStateException("unknown: " + value);
+            }
+        }
+    };
+
+    /** Switch map equivalent of HANDLER. */
+    private static long handle(final Op op, final long input) {
+        switch (CASES.caseOf(op)) {
+        case 1:
+            return input + 1;
+        case 2:
+            return input - 1;
+        case 3:
+            return input * 2;
+        case 4:
+            return -input;
+        default:
+            throw new IllegalStateException("unknown: " + op);
+        }
+    }
+
+    /** Switch equivalent of HANDLER. */
+    private static long handle(final JavaOp op, final long input) {
+        switch (op) {
+        case Inc:
+            return input + 1;
+        case Dec:
+            return input - 1;
+        case Dbl:
+            return input * 2;
+        case Neg:
+            return -input;
+        default:
+            throw new IllegalStateException("unknown: " + op);
+        }
+    }
+
+    private static long visitor(final Op[] ops, final int loops) {
+        long result = 0;
+        for (int l = 0; l < loops; l++) {
+            for (final Op op : ops) {
+                result = op.handle(HANDLER, result);
+            }
+        }
+        return result;
+    }
+
+    private static long dispatcher(final Op[] ops, final int loops) {
+        long result = 0;
+        for (int l = 0; l < loops; l++) {
+            for (final Op op : ops) {
+                result = DISPATCHER.handle(op, result);
+            }
+        }
+        return result;
+    }
+
+    private static long switchMap(final Op[] ops, final int loops) {
+        long result = 0;
+        for (int l = 0; l < loops; l++) {
+            for (final Op op : ops) {
+                result = handle(op, result);
+            }
+        }
+        return result;
+    }
+
+    private static long javaSwitch(final JavaOp[] ops, final int loops) {
+        long result = 0;
+        for (int l = 0; l < loops; l++) {
+            for (final JavaOp op : ops) {
+                result = handle(op, result);
+            }
+        }
+        return result;
+    }
+
+    private static void report(final String name, final long start,
+            final long calls, final long result) {
+        final long nanos = System.nanoTime() - start;
+        System.out.println(name + ": " + (nanos / (double) calls)
+                + " ns/call (" + result + ")");
+    }
+
+    /** Runs the benchmark. */
+    public static void main(final String[] args) {
+        // Enum40.values() does not initialize the class
+        final Op[] values = Op.Inc.valid() ? Enum40.values(Op.class) : null;
+        final JavaOp[] javaValues = JavaOp.values();
+        final Random rnd = new Random(42);
+        final int size = 1024;
+        final Op[] ops = new Op[size];
+        final JavaOp[] javaOps = new JavaOp[size];
+        for (int i = 0; i < size; i++) {
+            final int index = rnd.nextInt(values.length);
+            ops[i] = values[index];
+            javaOps[i] = javaValues[index];
+        }
+        final int loops = 10000;
+        final long calls = (long) loops * size;
+        for (int run = 0; run < 5; run++) {
+            long start = System.nanoTime();
+            final long v = visitor(ops, loops);
+            report("visitor  ", start, calls, v);
+            start = System.nanoTime();
+            final long t = dispatcher(ops, loops);
+            report("dispatch ", start, calls, t);
+            start = System.nanoTime();
+            final long m = switchMap(ops, loops);
+            report("switchMap", start, calls, m);
+            start = System.nanoTime();
+            final long s = javaSwitch(javaOps, loops);
+            report("switch   ", start, calls, s);
+            if ((v != t) || (v != m) || (v != s)) {
+                throw new IllegalStateException("Results differ: " + v + " "
+                        + t + " " + m + " " + s);
+            }
+        }
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright (C) 2013 Sebastien Diot.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.blockwithme.base40;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+
+/**
+ * Tests Enum40SwitchMap, Enum40LongDispatcher and Enum40ObjectDispatcher.
+ *
+ * @author monster
+ */
+public class Enum40DispatchTest {
+
+    /** Base Enum40 */
+    public static class Shape extends Enum40<Shape> {
+        /**  */
+        private static final long serialVersionUID = 1L;
+        public static final Shape Circle = new Shape();
+        public static final Shape Square = new Shape();
+        public static final Shape Line = new Shape();
+
+        private Shape() {
+            this(Shape.class);
+        }
+
+        protected Shape(final Class<? extends Shape> type) {
+            super(type);
+        }
+    }
+
+    /** Child Enum40 */
+    public static class ExtShape extends Shape {
+        /**  */
+        private static final long serialVersionUID = 1L;
+        public static final ExtShape Star = new ExtShape();
+
+        private ExtShape() {
+            super(ExtShape.class);
+        }
+    }
+
+    /** Counts the corners. */
+    private static final Enum40LongDispatcher<Shape> CORNERS = new Enum40LongDispatcher<Shape>(
+            Shape.Circle, Shape.Square) {
+        @Override
+        protected long dispatch(final int caseNumber, final Shape value,
+                final long input) {
+            switch (caseNumber) {
+            case 1:
+                return input;
+            case 2:
+                return input + 4;
+            default:
+                return -1;
+            }
+        }
+    };
+
+    /** Names the shapes. */
+    private static final Enum40ObjectDispatcher<Shape, String, String> NAMES = new Enum40ObjectDispatcher<Shape, String, String>(
+            Shape.Square, ExtShape.Star) {
+        @Override
+        protected String dispatch(final int caseNumber, final Shape value,
+                final String input) {
+            switch (caseNumber) {
+            case 1:
+                return input + "square";
+            case 2:
+                return input + "star";
+            default:
+                return null;
+            }
+        }
+    };
+
+    @Test
+    public void testSwitchMap() {
+        final Enum40SwitchMap<Shape> cases = new Enum40SwitchMap<>(
+                Shape.Line, ExtShape.Star, Shape.Circle);
+        assertEquals(1, cases.caseOf(Shape.Line));
+        assertEquals(2, cases.caseOf(ExtShape.Star));
+        assertEquals(3, cases.caseOf(Shape.Circle));
+        assertEquals(Enum40SwitchMap.UNKNOWN, cases.caseOf(Shape.Square));
+        final Enum40SwitchMap<Shape> empty = new Enum40SwitchMap<>();
+        assertEquals(Enum40SwitchMap.UNKNOWN, empty.caseOf(ExtShape.Star));
+    }
+
+    @Test
+    public void testSwitchMapDuplicate() {
+        try {
+            new Enum40SwitchMap<>(Shape.Line, Shape.Circle, Shape.Line);
+            fail("Duplicate accepted");
+        } catch (final IllegalArgumentException e) {
+            // Expected
+        }
+    }
+
+    @Test
+    public void testLongDispatcher() {
+        assertEquals(10, CORNERS.handle(Shape.Circle, 10));
+        assertEquals(14, CORNERS.handle(Shape.Square, 10));
+        assertEquals(-1, CORNERS.handle(Shape.Line, 10));
+        assertEquals(-1, CORNERS.handle(ExtShape.Star, 10));
+    }
+
+    @Test
+    public void testObjectDispatcher() {
+        assertEquals("a square", NAMES.handle(Shape.Square, "a "));
+        assertEquals("a star", NAMES.handle(ExtShape.Star, "a "));
+        assertEquals(null, NAMES.handle(Shape.Circle, "a "));
+    }
+}
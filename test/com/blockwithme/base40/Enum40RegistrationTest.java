@@ -0,0 +1,144 @@
+/*
+ * Copyright (C) 2013 Sebastien Diot.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.blockwithme.base40;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * Tests the Enum40Names registration, and the Enum40RegistrationListener.
+ *
+ * Every test uses it's own Enum40 types, since they are only registered once.
+ *
+ * @author monster
+ */
+public class Enum40RegistrationTest {
+
+    /** Indexed Enum40 */
+    @Enum40Names({ "North", "South" })
+    public static class Direction extends Enum40<Direction> {
+        /**  */
+        private static final long serialVersionUID = 1L;
+        public static final Direction North = new Direction();
+        public static final Direction South = new Direction();
+
+        private Direction() {
+            super(Direction.class);
+        }
+    }
+
+    /** Indexed Enum40, missing a name. */
+    @Enum40Names({ "Left" })
+    public static class Side extends Enum40<Side> {
+        /**  */
+        private static final long serialVersionUID = 1L;
+        public static final Side Left = new Side();
+        public static final Side Right = new Side();
+
+        private Side() {
+            super(Side.class);
+        }
+    }
+
+    /** Indexed Enum40, with the names in the wrong order. */
+    @Enum40Names({ "Down", "Up" })
+    public static class Vertical extends Enum40<Vertical> {
+        /**  */
+        private static final long serialVersionUID = 1L;
+        public static final Vertical Up = new Vertical();
+        public static final Vertical Down = new Vertical();
+
+        private Vertical() {
+            super(Vertical.class);
+        }
+    }
+
+    /** Scanned Enum40 */
+    public static class Suit extends Enum40<Suit> {
+        /**  */
+        private static final long serialVersionUID = 1L;
+        public static final Suit Hearts = new Suit();
+        public static final Suit Spades = new Suit();
+
+        private Suit() {
+            super(Suit.class);
+        }
+    }
+
+    /** Records the registered types. */
+    private static final class Recorder implements Enum40RegistrationListener {
+        final List<String> registered = new ArrayList<>();
+
+        @Override
+        public void onRegistered(final Class<?> enumClass, final int values,
+                final long nanos, final boolean indexed) {
+            registered.add(enumClass.getSimpleName() + ":" + values + ":"
+                    + indexed);
+        }
+    }
+
+    @Test
+    public void testIndexed() {
+        final Recorder recorder = new Recorder();
+        Enum40.setRegistrationListener(recorder);
+        try {
+            assertEquals("north", Direction.North.name());
+            assertEquals(Direction.North.ordinal() + 1,
+                    Direction.South.ordinal());
+            assertEquals(Direction.South,
+                    Enum40.valueOf(Direction.class, "South"));
+            assertEquals("[Direction:2:true]", recorder.registered.toString());
+        } finally {
+            Enum40.setRegistrationListener(null);
+        }
+    }
+
+    @Test
+    public void testIndexedCountMismatch() {
+        try {
+            assertTrue(Side.Left.valid());
+            fail("Missing name accepted");
+        } catch (final ExceptionInInitializerError e) {
+            assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+    }
+
+    @Test
+    public void testIndexedOrderMismatch() {
+        try {
+            assertTrue(Vertical.Up.valid());
+            fail("Wrong order accepted");
+        } catch (final ExceptionInInitializerError e) {
+            assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+    }
+
+    @Test
+    public void testClearListener() {
+        final Recorder recorder = new Recorder();
+        Enum40.setRegistrationListener(recorder);
+        Enum40.setRegistrationListener(null);
+        assertTrue(Suit.Hearts.valid());
+        assertTrue(recorder.registered.isEmpty());
+    }
+}
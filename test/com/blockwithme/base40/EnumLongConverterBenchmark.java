@@ -0,0 +1,120 @@
+/*
+ * Copyright (C) 2013 Sebastien Diot.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.blockwithme.base40;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import com.blockwithme.prim.LongConverter;
+
+/**
+ * Simple benchmark, comparing EnumLongConverter with the previous,
+ * HashMap-based, implementation.
+ *
+ * TODO: Turn into a JMH benchmark, once we have JMH in the build.
+ *
+ * @author monster
+ */
+public class EnumLongConverterBenchmark {
+
+    /** Test enum. */
+    public enum Planet {
+        Mercury, Venus, Earth, Mars, Jupiter, Saturn, Uranus, Neptune, Pluto, Ceres, Eris, Haumea, Makemake
+    }
+
+    /** The previous implementation, using boxed maps. */
+    private static final class BoxedConverter implements LongConverter<Planet> {
+        private final Map<Long, Planet> mapLongToEnum = new HashMap<>();
+        private final Map<Planet, Long> mapEnumToLong = new HashMap<>();
+
+        @SuppressWarnings("boxing")
+        public BoxedConverter() {
+            final CharacterSet characterSet = Enum40.getDefaultCharacterSet();
+            for (final Planet p : Planet.values()) {
+                final Long l = characterSet.toLong(p.name());
+                mapLongToEnum.put(l, p);
+                mapEnumToLong.put(p, l);
+            }
+        }
+
+        @Override
+        public Class<Planet> type() {
+            return Planet.class;
+        }
+
+        @Override
+        public int bits() {
+            return 64;
+        }
+
+        @SuppressWarnings("boxing")
+        @Override
+        public long fromObject(final Planet obj) {
+            return mapEnumToLong.get(obj);
+        }
+
+        @SuppressWarnings("boxing")
+        @Override
+        public Planet toObject(final long value) {
+            return mapLongToEnum.get(value);
+        }
+    }
+
+    private static long run(final LongConverter<Planet> converter,
+            final Planet[] planets, final int loops) {
+        long result = 0;
+        for (int l = 0; l < loops; l++) {
+            for (final Planet p : planets) {
+                final long value = converter.fromObject(p);
+                result += value + converter.toObject(value).ordinal();
+            }
+        }
+        return result;
+    }
+
+    /** Runs the benchmark. */
+    public static void main(final String[] args) {
+        final Planet[] values = Planet.values();
+        final Random rnd = new Random(42);
+        final Planet[] planets = new Planet[1024];
+        for (int i = 0; i < planets.length; i++) {
+            planets[i] = values[rnd.nextInt(values.length)];
+        }
+        final LongConverter<Planet> boxed = new BoxedConverter();
+        final LongConverter<Planet> primitive = new EnumLongConverter<>(
+                Planet.class);
+        final int loops = 10000;
+        final long calls = (long) loops * planets.length;
+        for (int run = 0; run < 5; run++) {
+            long start = System.nanoTime();
+            final long b = run(boxed, planets, loops);
+            System.out.println("boxed    : "
+                    + ((System.nanoTime() - start) / (double) calls)
+                    + " ns/round-trip");
+            start = System.nanoTime();
+            final long p = run(primitive, planets, loops);
+            System.out.println("primitive: "
+                    + ((System.nanoTime() - start) / (double) calls)
+                    + " ns/round-trip");
+            if (b != p) {
+                throw new IllegalStateException("Results differ: " + b + " "
+                        + p);
+            }
+        }
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright (C) 2013 Sebastien Diot.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.blockwithme.base40;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import org.junit.Test;
+
+/**
+ * Tests EnumLongConverter.
+ *
+ * @author monster
+ */
+public class EnumLongConverterTest {
+
+    /** Test enum */
+    private enum Planet {
+        MERCURY, VENUS, EARTH, MARS, JUPITER, SATURN, URANUS, NEPTUNE
+    }
+
+    /** Test enum, for colliding values */
+    private enum Abc {
+        A, B, C
+    }
+
+    /** The hash multiplier of EnumLongConverter. */
+    private static final long HASH = 0x9E3779B97F4A7C15L;
+
+    /** Returns the inverse of HASH, modulo 2^64. */
+    private static long inverse() {
+        long result = HASH;
+        // Newton iteration; doubles the correct low bits every time
+        for (int i = 0; i < 6; i++) {
+            result *= 2 - HASH * result;
+        }
+        return result;
+    }
+
+    @Test
+    public void testNames() {
+        final EnumLongConverter<Planet> conv = new EnumLongConverter<>(
+                Planet.class);
+        final CharacterSet cs = Enum40.getDefaultCharacterSet();
+        for (final Planet p : Planet.values()) {
+            final long value = conv.fromObject(p);
+            assertEquals(cs.toLong(p.name()), value);
+            assertEquals(p, conv.toObject(value));
+        }
+        assertNull(conv.toObject(cs.toLong("PLUTO")));
+        assertNull(conv.toObject(0L));
+        final long[] longs = new long[Planet.values().length];
+        conv.fromObjects(Planet.values(), 0, longs, 0, longs.length);
+        final Planet[] planets = new Planet[longs.length];
+        conv.toObjects(longs, 0, planets, 0, longs.length);
+        assertArrayEquals(Planet.values(), planets);
+    }
+
+    @Test
+    public void testNoPerfectHash() {
+        // (k * inverse) * HASH == k, so all values share the same high
+        // bits, and collide in every table size
+        final long inv = inverse();
+        assertEquals(1L, inv * HASH);
+        final EnumLongConverter<Abc> conv = new EnumLongConverter<>(Abc.class,
+                new long[] { inv, 2 * inv, 3 * inv });
+        // Fell back to the smallest table
+        assertEquals(8, conv.tableSize());
+        assertEquals(Abc.A, conv.toObject(inv));
+        assertEquals(Abc.B, conv.toObject(2 * inv));
+        assertEquals(Abc.C, conv.toObject(3 * inv));
+        assertEquals(3 * inv, conv.fromObject(Abc.C));
+        // Unknown values, also colliding ones, are not found
+        assertNull(conv.toObject(4 * inv));
+        assertNull(conv.toObject(0L));
+        assertNull(conv.toObject(12345L));
+    }
+}
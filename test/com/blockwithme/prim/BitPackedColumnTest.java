@@ -0,0 +1,134 @@
+/*
+ * Copyright (C) 2013 Sebastien Diot.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.blockwithme.prim;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Tests BitPackedColumn.
+ *
+ * @author monster
+ */
+public class BitPackedColumnTest {
+
+    /** Test enum */
+    private enum Dir {
+        North, East, South, West
+    }
+
+    /** An IntConverter using 5 bits. */
+    private static final IntConverter<Integer> FIVE_BITS = new IntConverter<Integer>() {
+        @Override
+        public Class<Integer> type() {
+            return Integer.class;
+        }
+
+        @Override
+        public int bits() {
+            return 5;
+        }
+
+        @Override
+        public int fromObject(final Integer obj) {
+            return obj;
+        }
+
+        @Override
+        public Integer toObject(final int value) {
+            return value;
+        }
+    };
+
+    @Test
+    public void testBoolean() {
+        final BitPackedColumn<Boolean> col = new BitPackedColumn<>(
+                BooleanConverter.DEFAULT);
+        assertEquals(1, col.bits());
+        for (int i = 0; i < 1000; i++) {
+            col.add((i % 3) == 0);
+        }
+        assertEquals(1000, col.size());
+        for (int i = 0; i < 1000; i++) {
+            assertEquals((i % 3) == 0, col.get(i));
+        }
+        col.set(1, true);
+        assertTrue(col.get(1));
+        col.trimToSize();
+        assertEquals(128, col.memoryBytes());
+    }
+
+    @Test
+    public void testEnum() {
+        final BitPackedColumn<Dir> col = new BitPackedColumn<>(
+                new EnumByteConverter<>(Dir.class));
+        assertEquals(8, col.bits());
+        final Dir[] values = Dir.values();
+        for (int i = 0; i < 100; i++) {
+            col.add(values[i % values.length]);
+        }
+        final Dir[] dest = new Dir[10];
+        col.get(50, dest, 0, 10);
+        for (int i = 0; i < 10; i++) {
+            assertEquals(values[(50 + i) % values.length], dest[i]);
+        }
+    }
+
+    @Test
+    public void testUnaligned() {
+        final BitPackedColumn<Integer> col = new BitPackedColumn<>(FIVE_BITS);
+        final Random rnd = new Random(42);
+        final int[] expected = new int[777];
+        for (int i = 0; i < expected.length; i++) {
+            expected[i] = rnd.nextInt(32);
+            col.add(expected[i]);
+        }
+        for (int i = 0; i < expected.length; i += 7) {
+            expected[i] = 31 - expected[i];
+            col.set(i, expected[i]);
+        }
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals(expected[i], col.get(i).intValue());
+        }
+        try {
+            col.add(32);
+            throw new AssertionError("Expected IllegalArgumentException");
+        } catch (final IllegalArgumentException e) {
+            // Expected
+        }
+    }
+
+    @Test
+    public void testDoubleAndLong() {
+        final BitPackedColumn<Double> dcol = new BitPackedColumn<>(
+                DoubleConverter.DEFAULT);
+        dcol.add(-1.5);
+        dcol.add(Double.NaN);
+        assertEquals(-1.5, dcol.get(0), 0.0);
+        assertTrue(dcol.get(1).isNaN());
+        final BitPackedColumn<Long> lcol = new BitPackedColumn<>(
+                LongConverter.DEFAULT);
+        lcol.add(-1L);
+        lcol.add(Long.MIN_VALUE);
+        assertEquals(-1L, lcol.get(0).longValue());
+        assertEquals(Long.MIN_VALUE, lcol.getRaw(1));
+    }
+}
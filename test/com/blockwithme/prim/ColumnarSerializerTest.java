@@ -0,0 +1,153 @@
+/*
+ * Copyright (C) 2013 Sebastien Diot.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.blockwithme.prim;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.fail;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * Tests ColumnarSerializer.
+ *
+ * @author monster
+ */
+public class ColumnarSerializerTest {
+
+    /** Test enum */
+    private enum Kind {
+        Small, Medium, Large
+    }
+
+    /** Test value class */
+    private static final class Item {
+        int id;
+        boolean active;
+        Kind kind;
+        double price;
+    }
+
+    /** An IntConverter using 12 bits, enough for the test ids. */
+    private static final IntConverter<Integer> ID_CONVERTER = new IntConverter<Integer>() {
+        @Override
+        public Class<Integer> type() {
+            return Integer.class;
+        }
+
+        @Override
+        public int bits() {
+            return 12;
+        }
+
+        @Override
+        public int fromObject(final Integer obj) {
+            return obj;
+        }
+
+        @Override
+        public Integer toObject(final int value) {
+            return value;
+        }
+    };
+
+    /** Creates the test items. */
+    private static List<Item> items() {
+        final List<Item> result = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            final Item item = new Item();
+            item.id = i * 31;
+            item.active = (i % 2) == 0;
+            item.kind = Kind.values()[i % 3];
+            item.price = i / 4.0;
+            result.add(item);
+        }
+        return result;
+    }
+
+    /** Round-trips the items. */
+    private static void roundTrip(final boolean bitPacked, final int expectedSize) {
+        final ConverterRegistry registry = new ConverterRegistry();
+        registry.register(new EnumByteConverter<>(Kind.class), Kind.class);
+        registry.register(ID_CONVERTER, Integer.class);
+        final ColumnarSerializer<Item> ser = new ColumnarSerializer<>(
+                Item.class, registry, bitPacked, "id", "active", "kind",
+                "price");
+        final List<Item> items = items();
+        final int size = ser.byteSize(items);
+        assertEquals(expectedSize, size);
+        final ByteBuffer buffer = ByteBuffer.allocate(size);
+        ser.write(items, buffer);
+        assertFalse(buffer.hasRemaining());
+        buffer.flip();
+        final List<Item> copy = ser.read(buffer);
+        assertEquals(items.size(), copy.size());
+        for (int i = 0; i < items.size(); i++) {
+            final Item a = items.get(i);
+            final Item b = copy.get(i);
+            assertEquals(a.id, b.id);
+            assertEquals(a.active, b.active);
+            assertEquals(a.kind, b.kind);
+            assertEquals(a.price, b.price, 0.0);
+        }
+    }
+
+    @Test
+    public void testUnpacked() {
+        // 8 + (8 + 400) + (8 + 16) + (8 + 104) + (8 + 800)
+        roundTrip(false, 1360);
+    }
+
+    @Test
+    public void testBitPacked() {
+        // 8 + (8 + 152) + (8 + 16) + (8 + 104) + (8 + 800)
+        roundTrip(true, 1112);
+    }
+
+    @Test
+    public void testNonPrimitiveConverter() {
+        final ConverterRegistry registry = new ConverterRegistry() {
+            @Override
+            public Object lookup(final Class<?> type) {
+                if (type != Kind.class) {
+                    return super.lookup(type);
+                }
+                return new Converter<Kind>() {
+                    @Override
+                    public Class<Kind> type() {
+                        return Kind.class;
+                    }
+
+                    @Override
+                    public int bits() {
+                        return 0;
+                    }
+                };
+            }
+        };
+        try {
+            new ColumnarSerializer<>(Item.class, registry, true, "id", "kind");
+            fail("Non-primitive converter accepted");
+        } catch (final IllegalArgumentException e) {
+            // Expected
+        }
+    }
+}
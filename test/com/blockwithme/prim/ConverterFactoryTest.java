@@ -0,0 +1,67 @@
+/*
+ * Copyright (C) 2013 Sebastien Diot.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.blockwithme.prim;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Test;
+
+import com.blockwithme.base40.Base40Converter;
+
+/**
+ * Tests ConverterFactory.
+ *
+ * @author monster
+ */
+public class ConverterFactoryTest {
+
+    /** Test enum */
+    public enum Color {
+        Red, Green
+    }
+
+    @Test
+    public void testFactory() {
+        final ConverterFactory factory = new ConverterFactory();
+        final EnumByteConverter<Color> original = new EnumByteConverter<>(
+                Color.class);
+        final String className = original.getClass().getName();
+        final String config = ConverterFactory.configurationOf(original);
+        assertEquals(Color.class.getName(), config);
+        final Converter<?> rebuilt = factory.get(className, config);
+        assertNotSame(original, rebuilt);
+        assertSame(rebuilt, factory.get(className, config));
+        assertSame(rebuilt, factory.get(original));
+        assertEquals(Color.Green,
+                ((EnumByteConverter<?>) rebuilt).toObject((byte) 1));
+
+        final Converter<?> base40 = factory.get(new Base40Converter());
+        assertEquals(new Base40Converter().getConfiguration(),
+                ConverterFactory.configurationOf(base40));
+
+        assertSame(LongConverter.DEFAULT, factory.get(LongConverter.DEFAULT));
+        assertEquals(3, factory.size());
+        try {
+            factory.get(EnumByteConverter.class.getName(), "no.such.Enum");
+            throw new AssertionError("Expected IllegalArgumentException");
+        } catch (final IllegalArgumentException e) {
+            // Expected
+        }
+    }
+}
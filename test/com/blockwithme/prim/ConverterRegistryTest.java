@@ -0,0 +1,90 @@
+/*
+ * Copyright (C) 2013 Sebastien Diot.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.blockwithme.prim;
+
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.io.Serializable;
+
+import org.junit.Test;
+
+/**
+ * Tests the ConverterRegistry lookups.
+ *
+ * @author monster
+ */
+public class ConverterRegistryTest {
+
+    /** Test base class */
+    private static class Base implements Serializable {
+        private static final long serialVersionUID = 1L;
+    }
+
+    /** Test sub-class */
+    private static class Sub extends Base {
+        private static final long serialVersionUID = 1L;
+    }
+
+    /** Creates a dummy IntConverter. */
+    private static <E> IntConverter<E> converter(final Class<E> type) {
+        return new IntConverter<E>() {
+            @Override
+            public Class<E> type() {
+                return type;
+            }
+
+            @Override
+            public int bits() {
+                return 32;
+            }
+
+            @Override
+            public int fromObject(final E obj) {
+                return 0;
+            }
+
+            @Override
+            public E toObject(final int value) {
+                return null;
+            }
+        };
+    }
+
+    @Test
+    public void testLookup() {
+        final ConverterRegistry parent = new ConverterRegistry();
+        final ConverterRegistry child = new ConverterRegistry(parent);
+        assertNull(child.find(Sub.class));
+        assertNull(child.lookup(Sub.class));
+        final IntConverter<Serializable> ser = converter(Serializable.class);
+        parent.register(ser, Serializable.class);
+        // Negative results must have been invalidated
+        assertNull(child.find(Sub.class));
+        assertSame(ser, child.lookup(Sub.class));
+        final IntConverter<Base> base = converter(Base.class);
+        child.register(base, Base.class);
+        assertSame(base, child.lookup(Sub.class));
+        assertSame(base, child.find(Base.class));
+        assertNull(parent.find(Base.class));
+        assertSame(ser, parent.lookup(Sub.class));
+        assertNull(child.lookup(null));
+        assertSame(base, child.findInt(Base.class));
+        assertNull(child.findLong(Base.class));
+        assertNull(child.findInt(Sub.class));
+    }
+}
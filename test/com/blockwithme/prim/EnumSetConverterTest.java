@@ -0,0 +1,69 @@
+/*
+ * Copyright (C) 2013 Sebastien Diot.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.blockwithme.prim;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.EnumSet;
+
+import org.junit.Test;
+
+/**
+ * Tests EnumSetConverter.
+ *
+ * @author monster
+ */
+public class EnumSetConverterTest {
+
+    /** Test enum, version 1. */
+    private enum Flag {
+        A, B, C, D
+    }
+
+    @Test
+    public void testOrdinal() {
+        final EnumSetConverter<Flag> conv = new EnumSetConverter<>(Flag.class);
+        final EnumSet<Flag> set = EnumSet.of(Flag.B, Flag.D);
+        assertEquals(0xAL, conv.fromObject(set));
+        assertEquals(set, conv.toObject(0xAL));
+        // Unmapped bits are ignored
+        assertEquals(set, conv.toObject(0xFAL));
+        assertEquals(0L, conv.fromObject(EnumSet.noneOf(Flag.class)));
+        assertEquals(Flag.class.getName(), conv.getConfiguration());
+    }
+
+    @Test
+    public void testNames() {
+        // As if "X" was removed, and D added later
+        final EnumSetConverter<Flag> conv = new EnumSetConverter<>(
+                Flag.class, "C", "X", "A", "B", "D");
+        final EnumSet<Flag> set = EnumSet.of(Flag.A, Flag.C);
+        assertEquals(0x5L, conv.fromObject(set));
+        assertEquals(set, conv.toObject(0x7L));
+        final String config = conv.getConfiguration();
+        assertEquals(Flag.class.getName() + ":C,X,A,B,D", config);
+        final EnumSetConverter<Flag> copy = new EnumSetConverter<>(config);
+        assertEquals(0x10L, copy.fromObject(EnumSet.of(Flag.D)));
+        try {
+            new EnumSetConverter<>(Flag.class, "A", "B").fromObject(EnumSet
+                    .of(Flag.C));
+            throw new AssertionError("Expected IllegalArgumentException");
+        } catch (final IllegalArgumentException e) {
+            // Expected
+        }
+    }
+}
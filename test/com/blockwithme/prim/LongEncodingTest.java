@@ -0,0 +1,130 @@
+/*
+ * Copyright (C) 2013 Sebastien Diot.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.blockwithme.prim;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Tests LongEncoding, LongColumnEncoder and LongColumnDecoder.
+ *
+ * @author monster
+ */
+public class LongEncodingTest {
+
+    /** Encodes the values, and returns the buffer, ready to be read. */
+    private static ByteBuffer encode(final LongEncoding encoding,
+            final long[] values, final int blockSize, final ByteOrder order) {
+        final ByteBuffer buffer = ByteBuffer.allocate(values.length * 16 + 1024)
+                .order(order);
+        final LongColumnEncoder encoder = new LongColumnEncoder(encoding,
+                buffer, blockSize);
+        encoder.write(values, 0, values.length);
+        encoder.finish();
+        buffer.flip();
+        return buffer;
+    }
+
+    /** Checks that all encodings round-trip the values. */
+    private static void roundTrip(final long[] values) {
+        for (final LongEncoding encoding : LongEncoding.values()) {
+            for (final int blockSize : new int[] { 1, 7, 1024 }) {
+                for (final ByteOrder order : new ByteOrder[] {
+                        ByteOrder.BIG_ENDIAN, ByteOrder.LITTLE_ENDIAN }) {
+                    final ByteBuffer buffer = encode(encoding, values,
+                            blockSize, order);
+                    final LongColumnDecoder decoder = new LongColumnDecoder(
+                            encoding, buffer);
+                    final long[] copy = new long[values.length];
+                    assertEquals(values.length,
+                            decoder.read(copy, 0, copy.length));
+                    assertArrayEquals(values, copy);
+                    assertFalse(decoder.hasNext());
+                    assertFalse(buffer.hasRemaining());
+                }
+            }
+        }
+    }
+
+    /** Returns the encoded size. */
+    private static int size(final LongEncoding encoding, final long[] values) {
+        return encode(encoding, values, LongColumnEncoder.DEFAULT_BLOCK_SIZE,
+                ByteOrder.BIG_ENDIAN).remaining();
+    }
+
+    @Test
+    public void testZigzagVarint() {
+        final ByteBuffer buffer = ByteBuffer.allocate(100);
+        final long[] values = { 0, 1, -1, 63, -64, Long.MAX_VALUE,
+                Long.MIN_VALUE };
+        for (final long v : values) {
+            LongEncoding.writeVarLong(buffer, LongEncoding.zigzag(v));
+        }
+        buffer.flip();
+        for (final long v : values) {
+            assertEquals(v, LongEncoding.unzigzag(LongEncoding
+                    .readVarLong(buffer)));
+        }
+        // 0, 1, -1, 63 and -64 take one byte each; the extremes ten
+        assertEquals(25, buffer.position());
+    }
+
+    @Test
+    public void testRoundTrip() {
+        final Random rnd = new Random(42);
+        final long[] random = new long[3000];
+        for (int i = 0; i < random.length; i++) {
+            random[i] = rnd.nextLong();
+        }
+        random[0] = Long.MIN_VALUE;
+        random[1] = Long.MAX_VALUE;
+        roundTrip(random);
+        roundTrip(new long[] { 42 });
+        roundTrip(new long[0]);
+    }
+
+    @Test
+    public void testCompression() {
+        final Random rnd = new Random(42);
+        final long[] timestamps = new long[5000];
+        long time = 1380000000000L;
+        for (int i = 0; i < timestamps.length; i++) {
+            time += rnd.nextInt(100);
+            timestamps[i] = time;
+        }
+        final long[] ids = new long[5000];
+        final long[] dictionary = { 123456789012345L, -5L, 987654321L,
+                Long.MIN_VALUE };
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = dictionary[rnd.nextInt(dictionary.length)];
+        }
+        roundTrip(timestamps);
+        roundTrip(ids);
+        final int raw = 5000 * 8;
+        assertTrue(size(LongEncoding.DELTA_VARINT, timestamps) < raw / 5);
+        assertTrue(size(LongEncoding.FRAME_OF_REFERENCE, timestamps) < raw / 3);
+        assertTrue(size(LongEncoding.DICTIONARY, ids) < raw / 25);
+    }
+}
@@ -0,0 +1,162 @@
+/*
+ * Copyright (C) 2013 Sebastien Diot.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.blockwithme.prim;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.util.Random;
+
+import com.blockwithme.prim.PackedLongConverterTest.Point;
+
+/**
+ * Simple benchmark, comparing PackedLongConverter with a hand-written and a
+ * reflective converter, for the same layout.
+ *
+ * TODO: Turn into a JMH benchmark, once we have JMH in the build.
+ *
+ * @author monster
+ */
+public class PackedLongConverterBenchmark {
+
+    /** Hand-written converter. */
+    private static final class HandWritten implements LongConverter<Point> {
+        @Override
+        public Class<Point> type() {
+            return Point.class;
+        }
+
+        @Override
+        public int bits() {
+            return 49;
+        }
+
+        @Override
+        public long fromObject(final Point obj) {
+            return (obj.x & 0xFFFFFFL) | ((obj.y & 0xFFFFL) << 24)
+                    | ((obj.visible ? 1L : 0L) << 40)
+                    | ((obj.tag & 0xFFL) << 41);
+        }
+
+        @Override
+        public Point toObject(final long value) {
+            return new Point((int) ((value << 40) >> 40),
+                    (short) (value >>> 24), ((value >>> 40) & 1) != 0,
+                    (byte) (value >>> 41));
+        }
+    }
+
+    /** Reflective converter. */
+    private static final class Reflective implements LongConverter<Point> {
+        private final Field x;
+        private final Field y;
+        private final Field visible;
+        private final Field tag;
+        private final Constructor<Point> ctor;
+
+        public Reflective() throws Exception {
+            x = Point.class.getDeclaredField("x");
+            y = Point.class.getDeclaredField("y");
+            visible = Point.class.getDeclaredField("visible");
+            tag = Point.class.getDeclaredField("tag");
+            ctor = Point.class.getConstructor(int.class, short.class,
+                    boolean.class, byte.class);
+        }
+
+        @Override
+        public Class<Point> type() {
+            return Point.class;
+        }
+
+        @Override
+        public int bits() {
+            return 49;
+        }
+
+        @Override
+        public long fromObject(final Point obj) {
+            try {
+                return (x.getInt(obj) & 0xFFFFFFL)
+                        | ((y.getShort(obj) & 0xFFFFL) << 24)
+                        | ((visible.getBoolean(obj) ? 1L : 0L) << 40)
+                        | ((tag.getByte(obj) & 0xFFL) << 41);
+            } catch (final IllegalAccessException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        @Override
+        public Point toObject(final long value) {
+            try {
+                return ctor.newInstance((int) ((value << 40) >> 40),
+                        (short) (value >>> 24), ((value >>> 40) & 1) != 0,
+                        (byte) (value >>> 41));
+            } catch (final Exception e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
+    private static long run(final LongConverter<Point> converter,
+            final Point[] points, final int loops) {
+        long result = 0;
+        for (int l = 0; l < loops; l++) {
+            for (final Point p : points) {
+                final long value = converter.fromObject(p);
+                result += value + converter.toObject(value).x;
+            }
+        }
+        return result;
+    }
+
+    /** Runs the benchmark. */
+    public static void main(final String[] args) throws Exception {
+        final Random rnd = new Random(42);
+        final Point[] points = new Point[1024];
+        for (int i = 0; i < points.length; i++) {
+            points[i] = new Point(rnd.nextInt(1 << 24) - (1 << 23),
+                    (short) rnd.nextInt(), rnd.nextBoolean(),
+                    (byte) rnd.nextInt());
+        }
+        final LongConverter<Point> hand = new HandWritten();
+        final LongConverter<Point> reflective = new Reflective();
+        final LongConverter<Point> packed = PackedLongConverter.create(
+                Point.class, PackedLongConverterTest.POINT_LAYOUT);
+        final int loops = 5000;
+        final long calls = (long) loops * points.length;
+        for (int run = 0; run < 5; run++) {
+            long start = System.nanoTime();
+            final long h = run(hand, points, loops);
+            System.out.println("hand-written: "
+                    + ((System.nanoTime() - start) / (double) calls)
+                    + " ns/round-trip");
+            start = System.nanoTime();
+            final long r = run(reflective, points, loops);
+            System.out.println("reflective  : "
+                    + ((System.nanoTime() - start) / (double) calls)
+                    + " ns/round-trip");
+            start = System.nanoTime();
+            final long p = run(packed, points, loops);
+            System.out.println("packed      : "
+                    + ((System.nanoTime() - start) / (double) calls)
+                    + " ns/round-trip");
+            if ((h != r) || (h != p)) {
+                throw new IllegalStateException("Results differ: " + h + " "
+                        + r + " " + p);
+            }
+        }
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright (C) 2013 Sebastien Diot.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.blockwithme.prim;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * Tests PackedLongConverter.
+ *
+ * @author monster
+ */
+public class PackedLongConverterTest {
+
+    /** Immutable value class, with matching constructor. */
+    public static final class Point {
+        final int x;
+        final short y;
+        final boolean visible;
+        final byte tag;
+
+        public Point(final int theX, final short theY,
+                final boolean theVisible, final byte theTag) {
+            x = theX;
+            y = theY;
+            visible = theVisible;
+            tag = theTag;
+        }
+    }
+
+    /** Mutable value class, without matching constructor. */
+    public static final class Mixed {
+        float f;
+        char c;
+        long l;
+    }
+
+    /** The Point layout. */
+    static final PackedField[] POINT_LAYOUT = {
+            new PackedField("x", 0, 24, true),
+            new PackedField("y", 24, 16, true),
+            new PackedField("visible", 40, 1),
+            new PackedField("tag", 41, 8) };
+
+    @Test
+    public void testConstructor() {
+        final PackedLongConverter<Point> conv = PackedLongConverter.create(
+                Point.class, POINT_LAYOUT);
+        assertEquals(49, conv.bits());
+        final Point p = new Point(-1234567, (short) -3, true, (byte) -56);
+        final long packed = conv.fromObject(p);
+        final Point q = conv.toObject(packed);
+        assertEquals(p.x, q.x);
+        assertEquals(p.y, q.y);
+        assertEquals(p.visible, q.visible);
+        assertEquals(p.tag, q.tag);
+        try {
+            conv.fromObject(new Point(1 << 23, (short) 0, false, (byte) 0));
+            throw new AssertionError("Expected IllegalArgumentException");
+        } catch (final IllegalArgumentException e) {
+            // Expected
+        }
+    }
+
+    @Test
+    public void testSetters() {
+        final PackedLongConverter<Mixed> conv = PackedLongConverter.create(
+                Mixed.class, new PackedField("f", 0, 32), new PackedField(
+                        "c", 32, 16), new PackedField("l", 48, 16, true));
+        final Mixed m = new Mixed();
+        m.f = -2.5f;
+        m.c = '\uFFFE';
+        m.l = -32768;
+        final Mixed n = conv.toObject(conv.fromObject(m));
+        assertEquals(m.f, n.f, 0.0f);
+        assertEquals(m.c, n.c);
+        assertEquals(m.l, n.l);
+    }
+
+    @Test
+    public void testInvalidLayout() {
+        try {
+            PackedLongConverter.create(Point.class, new PackedField("x", 0,
+                    24), new PackedField("y", 20, 16));
+            throw new AssertionError("Expected IllegalArgumentException");
+        } catch (final IllegalArgumentException e) {
+            assertTrue(e.getMessage().contains("overlaps"));
+        }
+        try {
+            // No constructor for (int), nor a no-arg constructor
+            PackedLongConverter.create(Point.class, new PackedField("x", 0,
+                    24));
+            throw new AssertionError("Expected IllegalArgumentException");
+        } catch (final IllegalArgumentException e) {
+            assertTrue(e.getMessage().contains("constructor"));
+        }
+    }
+}
@@ -0,0 +1,204 @@
+/*
+ * Copyright (C) 2013 Sebastien Diot.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.blockwithme.properties;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+
+import com.blockwithme.properties.impl.ChangeListener;
+import com.blockwithme.properties.impl.GraphImpl;
+import com.blockwithme.properties.impl.PropertiesImpl;
+import com.blockwithme.properties.impl.PropertyChange;
+import com.blockwithme.properties.impl.Subscription;
+
+/**
+ * Tests the ChangeListener subscriptions of GraphImpl.
+ *
+ * @author monster
+ */
+public class ChangeListenerTest {
+
+    /** Executor that runs the tasks when asked to. */
+    private static final class ManualExecutor implements Executor {
+        final List<Runnable> tasks = new ArrayList<>();
+
+        @Override
+        public void execute(final Runnable command) {
+            tasks.add(command);
+        }
+
+        void runAll() {
+            while (!tasks.isEmpty()) {
+                tasks.remove(0).run();
+            }
+        }
+    }
+
+    /** Records all the batches. */
+    private static final class Recorder implements ChangeListener {
+        final List<List<PropertyChange>> batches = new ArrayList<>();
+
+        @Override
+        public void onChanges(final List<PropertyChange> changes) {
+            batches.add(changes);
+        }
+    }
+
+    @Test
+    public void testListeners() {
+        final GraphImpl<Long> graph = new GraphImpl<>(0L);
+        final PropertiesImpl<Long> root = new PropertiesImpl<>(graph, "root");
+        graph.root(root);
+        final PropertiesImpl<Long> a = new PropertiesImpl<>(graph, "a");
+        final PropertiesImpl<Long> ab = new PropertiesImpl<>(graph, "ab");
+        root.set(root, "a", a);
+        root.set(root, "ab", ab);
+        assertEquals("/", root.path());
+        assertEquals("/a", a.path());
+        assertNull(new PropertiesImpl<>(graph, "detached").path());
+
+        final ManualExecutor executor = new ManualExecutor();
+        final Recorder all = new Recorder();
+        final Recorder underA = new Recorder();
+        graph.subscribe("/", all, executor);
+        final Subscription sub = graph.subscribe("/a/", underA, executor);
+        assertEquals("/a", sub.prefix());
+
+        a.set(root, "x", 1);
+        a.set(root, "x", 2);
+        a.set(root, "y", 3);
+        a.set(root, "y", null);
+        ab.set(root, "z", 4);
+        root.set(root, "w", 5, 10L, false);
+        // Nothing delivered before the time changes
+        assertTrue(executor.tasks.isEmpty());
+        graph.setTime(10L);
+        executor.runAll();
+        // Coalesced: x went from null to 2, and y changed back to null
+        assertEquals(1, underA.batches.size());
+        assertEquals(1, underA.batches.get(0).size());
+        final PropertyChange x = underA.batches.get(0).get(0);
+        assertEquals("/a/x", x.path());
+        assertNull(x.oldValue());
+        assertEquals(2, x.newValue());
+        assertEquals(1, all.batches.size());
+        assertEquals(3, all.batches.get(0).size());
+        assertEquals("/ab/z", all.batches.get(0).get(1).path());
+        assertEquals("/w", all.batches.get(0).get(2).path());
+
+        // Slow listener: the waiting batches are merged
+        a.set(root, "x", 3);
+        graph.flushChanges();
+        a.set(root, "x", 4);
+        graph.flushChanges();
+        executor.runAll();
+        assertEquals(2, underA.batches.size());
+        assertEquals(2, underA.batches.get(1).get(0).oldValue());
+        assertEquals(4, underA.batches.get(1).get(0).newValue());
+
+        sub.cancel();
+        a.set(root, "x", 5);
+        graph.flushChanges();
+        executor.runAll();
+        assertEquals(2, underA.batches.size());
+        assertEquals(3, all.batches.size());
+    }
+
+    @Test
+    public void testDetach() {
+        final GraphImpl<Long> graph = new GraphImpl<>(0L);
+        final PropertiesImpl<Long> root = new PropertiesImpl<>(graph, "root");
+        graph.root(root);
+        final PropertiesImpl<Long> a = new PropertiesImpl<>(graph, "a");
+        final PropertiesImpl<Long> b = new PropertiesImpl<>(graph, "b");
+        root.set(root, "a", a);
+        a.set(root, "b", b);
+        assertEquals("/a/b", b.path());
+        // Detaching only invalidates the cached paths of the same graph
+        final GraphImpl<Long> other = new GraphImpl<>(0L);
+        final long otherPaths = other.pathsVersion();
+        root.set(root, "a", null);
+        assertNull(a.path());
+        assertNull(b.path());
+        assertEquals(otherPaths, other.pathsVersion());
+
+        final ManualExecutor executor = new ManualExecutor();
+        final Recorder all = new Recorder();
+        graph.subscribe("/", all, executor);
+        b.set(root, "x", 1);
+        graph.flushChanges();
+        executor.runAll();
+        assertTrue(all.batches.isEmpty());
+
+        // Attached again, in another place
+        final PropertiesImpl<Long> c = new PropertiesImpl<>(graph, "c");
+        root.set(root, "c", c);
+        c.set(root, "a", a);
+        assertEquals("/c/a/b", b.path());
+    }
+
+    @Test
+    public void testConcurrentWriters() throws InterruptedException {
+        final GraphImpl<Long> graph = new GraphImpl<>(0L);
+        final PropertiesImpl<Long> root = new PropertiesImpl<>(graph, "root");
+        graph.root(root);
+        final ManualExecutor executor = new ManualExecutor();
+        final Recorder all = new Recorder();
+        graph.subscribe("/", all, executor);
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+        final List<Thread> writers = new ArrayList<>();
+        for (int w = 0; w < 4; w++) {
+            final int writer = w;
+            writers.add(new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        for (int i = 0; i < 10000; i++) {
+                            root.set(root, "x", writer * 10000 + i);
+                        }
+                    } catch (final Throwable t) {
+                        failure.compareAndSet(null, t);
+                    }
+                }
+            });
+        }
+        for (final Thread t : writers) {
+            t.start();
+        }
+        for (final Thread t : writers) {
+            t.join();
+        }
+        if (failure.get() != null) {
+            throw new AssertionError(failure.get());
+        }
+        graph.flushChanges();
+        executor.runAll();
+        // The batch ends with the value actually stored
+        assertEquals(1, all.batches.size());
+        final PropertyChange x = all.batches.get(0).get(0);
+        assertNull(x.oldValue());
+        assertEquals(root.get("x", Integer.class), x.newValue());
+    }
+}
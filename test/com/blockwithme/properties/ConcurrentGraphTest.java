@@ -0,0 +1,180 @@
+/*
+ * Copyright (C) 2013 Sebastien Diot.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.blockwithme.properties;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+
+import com.blockwithme.properties.impl.GraphImpl;
+import com.blockwithme.properties.impl.PropertiesImpl;
+import com.blockwithme.properties.impl.Storage;
+
+/**
+ * Tests a graph using Storage.CONCURRENT, with concurrent readers and writers.
+ *
+ * @author monster
+ */
+public class ConcurrentGraphTest {
+
+    /** Number of keys. */
+    private static final int KEYS = 64;
+
+    /** Number of writes per writer. */
+    private static final int WRITES = 20000;
+
+    @Test
+    public void testConcurrentAccess() throws InterruptedException {
+        final GraphImpl<Long> graph = new GraphImpl<>(0L, Storage.CONCURRENT);
+        final PropertiesImpl<Long> root = new PropertiesImpl<>(graph, "root");
+        graph.root(root);
+        final PropertiesImpl<Long> child = new PropertiesImpl<>(graph, "child");
+        root.set(root, "child", child);
+        final PropertyPath[] paths = new PropertyPath[KEYS];
+        for (int i = 0; i < KEYS; i++) {
+            paths[i] = PropertyPath.of("child/k" + i);
+        }
+        final AtomicBoolean done = new AtomicBoolean();
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+        final List<Thread> threads = new ArrayList<>();
+        for (int r = 0; r < 4; r++) {
+            threads.add(new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        while (!done.get()) {
+                            for (final PropertyPath path : paths) {
+                                final Integer value = root.find(path,
+                                        Integer.class);
+                                assertTrue((value == null) || (value >= 0));
+                            }
+                            for (final String key : child) {
+                                assertTrue(key.startsWith("k"));
+                            }
+                        }
+                    } catch (final Throwable t) {
+                        failure.compareAndSet(null, t);
+                    }
+                }
+            });
+        }
+        final List<Thread> writers = new ArrayList<>();
+        for (int w = 0; w < 2; w++) {
+            final int writer = w;
+            writers.add(new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        for (int i = 0; i < WRITES; i++) {
+                            root.set(root, paths[(i + writer) % KEYS], i);
+                            if ((i % 1000) == 0) {
+                                root.set(root, paths[i % KEYS], -1,
+                                        (long) i + 1, false);
+                            }
+                        }
+                    } catch (final Throwable t) {
+                        failure.compareAndSet(null, t);
+                    }
+                }
+            });
+        }
+        threads.addAll(writers);
+        for (final Thread t : threads) {
+            t.start();
+        }
+        for (final Thread t : writers) {
+            t.join();
+        }
+        done.set(true);
+        for (final Thread t : threads) {
+            t.join();
+        }
+        if (failure.get() != null) {
+            throw new AssertionError(failure.get());
+        }
+        @SuppressWarnings("unchecked")
+        final Properties<Long> values = root.get("child", Properties.class);
+        assertEquals(KEYS, values.listValues(Integer.class, false).length);
+        assertTrue(graph.pendingChanges() > 0);
+        graph.setTime(Long.MAX_VALUE);
+        assertEquals(0, graph.pendingChanges());
+        assertEquals(Integer.valueOf(-1), root.get("child/k0", Integer.class));
+        assertNull(root.find("child/missing", Integer.class));
+    }
+
+    @Test
+    public void testPriorityRace() throws InterruptedException {
+        // Setters added later have a higher priority
+        final List<Properties<Long>> setters = new ArrayList<>();
+        final GraphImpl<Long> graph = new GraphImpl<Long>(0L,
+                Storage.CONCURRENT) {
+            @Override
+            public boolean lowerPriority(final Properties<Long> setter1,
+                    final Properties<Long> setter2) {
+                return setters.indexOf(setter1) < setters.indexOf(setter2);
+            }
+        };
+        final PropertiesImpl<Long> root = new PropertiesImpl<>(graph, "root");
+        graph.root(root);
+        setters.add(new PropertiesImpl<>(graph, "low"));
+        setters.add(new PropertiesImpl<>(graph, "high"));
+        final PropertyPath[] paths = new PropertyPath[KEYS];
+        for (int i = 0; i < KEYS; i++) {
+            paths[i] = PropertyPath.of("k" + i);
+        }
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+        final List<Thread> writers = new ArrayList<>();
+        for (int w = 0; w < 2; w++) {
+            final Properties<Long> setter = setters.get(w);
+            final int sign = (w == 0) ? -1 : 1;
+            writers.add(new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        for (int i = 0; i < WRITES; i++) {
+                            root.set(setter, paths[i % KEYS], sign * i);
+                        }
+                    } catch (final Throwable t) {
+                        failure.compareAndSet(null, t);
+                    }
+                }
+            });
+        }
+        for (final Thread t : writers) {
+            t.start();
+        }
+        for (final Thread t : writers) {
+            t.join();
+        }
+        if (failure.get() != null) {
+            throw new AssertionError(failure.get());
+        }
+        // The low priority writer never overwrites the high priority one
+        for (int i = 0; i < KEYS; i++) {
+            final int last = (WRITES - 1) - ((WRITES - 1 - i) % KEYS);
+            assertEquals(Integer.valueOf(last),
+                    root.get(paths[i], Integer.class));
+        }
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright (C) 2013 Sebastien Diot.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.blockwithme.properties;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.blockwithme.properties.impl.GraphImpl;
+import com.blockwithme.properties.impl.PropertiesImpl;
+
+/**
+ * Tests the future changes of GraphImpl.
+ *
+ * @author monster
+ */
+public class GraphImplTest {
+
+    @Test
+    public void testFutureChanges() {
+        final GraphImpl<Long> graph = new GraphImpl<>(0L);
+        final PropertiesImpl<Long> root = new PropertiesImpl<>(graph, "root");
+        graph.root(root);
+        root.set(root, "a", 1, 10L, false);
+        root.set(root, "a", 2, 10L, false);
+        root.set(root, "b", 3, 20L, false);
+        root.set(root, "c", 4, 0L, false);
+        assertEquals(3, graph.pendingChanges());
+        assertEquals(Integer.valueOf(4), root.get("c", Integer.class));
+        assertNull(root.find("a", Integer.class));
+        graph.setTime(15L);
+        // Same time: applied in the order they were set
+        assertEquals(Integer.valueOf(2), root.get("a", Integer.class));
+        assertNull(root.find("b", Integer.class));
+        assertEquals(1, graph.pendingChanges());
+        graph.setTime(20L);
+        assertEquals(Integer.valueOf(3), root.get("b", Integer.class));
+        assertEquals(0, graph.pendingChanges());
+    }
+
+    @Test
+    public void testManyChanges() {
+        final GraphImpl<Long> graph = new GraphImpl<>(0L);
+        final PropertiesImpl<Long> root = new PropertiesImpl<>(graph, "root");
+        graph.root(root);
+        final Random rnd = new Random(42);
+        final int count = 100000;
+        for (int i = 0; i < count; i++) {
+            final long when = 1 + rnd.nextInt(1000);
+            root.set(root, "k" + when, when, when, false);
+        }
+        assertEquals(count, graph.pendingChanges());
+        for (long time = 100; time <= 1000; time += 100) {
+            graph.setTime(time);
+            // With that many changes, every time was used
+            assertEquals(Long.valueOf(time), root.get("k" + time, Long.class));
+        }
+        assertEquals(0, graph.pendingChanges());
+    }
+}
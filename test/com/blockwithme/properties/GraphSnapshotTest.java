@@ -0,0 +1,114 @@
+/*
+ * Copyright (C) 2013 Sebastien Diot.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.blockwithme.properties;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import com.blockwithme.properties.impl.GraphImpl;
+import com.blockwithme.properties.impl.GraphSnapshot;
+import com.blockwithme.properties.impl.PropertiesImpl;
+import com.blockwithme.properties.impl.PropertiesReference;
+import com.blockwithme.properties.impl.PropertiesSnapshot;
+
+/**
+ * Tests GraphSnapshot.
+ *
+ * @author monster
+ */
+public class GraphSnapshotTest {
+
+    @Test
+    public void testSnapshot() {
+        final GraphImpl<Long> graph = new GraphImpl<>(0L);
+        final PropertiesImpl<Long> root = new PropertiesImpl<>(graph, "root");
+        graph.root(root);
+        final PropertiesImpl<Long> a = new PropertiesImpl<>(graph, "a");
+        final PropertiesImpl<Long> b = new PropertiesImpl<>(graph, "b");
+        root.set(root, "a", a);
+        root.set(root, "b", b);
+        root.set(root, "x", 1);
+        a.set(root, "y", 2);
+        b.set(root, "z", 3);
+        root.set(root, "a/w", 4, 10L, false);
+
+        final GraphSnapshot<Long> s1 = graph.snapshot();
+        assertEquals(Long.valueOf(0L), s1.time());
+        assertEquals(2, s1.findRaw(PropertyPath.of("a/y")));
+        assertNull(s1.findRaw(PropertyPath.of("a/w")));
+        assertTrue(s1.findRaw(PropertyPath.of("b")) instanceof PropertiesSnapshot);
+
+        // Nothing changed: everything is shared
+        final GraphSnapshot<Long> s2 = graph.snapshot();
+        assertSame(s1.root(), s2.root());
+        assertTrue(s1.diff(s2).isEmpty());
+
+        // Changes are not visible in older snapshots
+        b.set(root, "z", 30);
+        graph.setTime(10L);
+        final GraphSnapshot<Long> s3 = graph.snapshot();
+        assertNotSame(s2.root(), s3.root());
+        assertSame(s2.root().findRaw("x"), s3.root().findRaw("x"));
+        assertEquals(3, s2.findRaw(PropertyPath.of("b/z")));
+        assertEquals(30, s3.findRaw(PropertyPath.of("b/z")));
+        assertEquals(Arrays.asList("/a/w", "/b/z"), s2.diff(s3));
+
+        // Only the changed sub-tree is copied
+        root.set(root, "x", 5);
+        final GraphSnapshot<Long> s4 = graph.snapshot();
+        assertSame(s3.findRaw(PropertyPath.of("a")),
+                s4.findRaw(PropertyPath.of("a")));
+        assertEquals(Arrays.asList("/x"), s3.diff(s4));
+        assertEquals(Arrays.asList("/x"), s4.diff(s3));
+    }
+
+    @Test
+    public void testBackReference() {
+        final GraphImpl<Long> graph = new GraphImpl<>(0L);
+        final PropertiesImpl<Long> root = new PropertiesImpl<>(graph, "root");
+        graph.root(root);
+        final PropertiesImpl<Long> c = new PropertiesImpl<>(graph, "c");
+        final PropertiesImpl<Long> d = new PropertiesImpl<>(graph, "d");
+        root.set(root, "c", c);
+        root.set(root, "d", d);
+        c.set(root, "up", root);
+        c.set(root, "d", d);
+        d.set(root, "x", 1);
+        assertSame(root, root.find("c/up", Properties.class));
+
+        final GraphSnapshot<Long> s1 = graph.snapshot();
+        assertEquals("/", ((PropertiesReference) s1.findRaw(PropertyPath
+                .of("c/up"))).path());
+        assertEquals(1, s1.findRaw(PropertyPath.of("c/d/x")));
+        assertEquals(1, s1.findRaw(PropertyPath.of("c/up/c/up/d/x")));
+        assertSame(s1.root(), graph.snapshot().root());
+
+        // Detaching the referenced Properties changes the reference
+        root.set(root, "d", null);
+        final GraphSnapshot<Long> s2 = graph.snapshot();
+        assertNull(((PropertiesReference) s2.findRaw(PropertyPath.of("c/d")))
+                .path());
+        assertEquals(Arrays.asList("/c/d", "/d"), s1.diff(s2));
+    }
+}
@@ -0,0 +1,160 @@
+/*
+ * Copyright (C) 2013 Sebastien Diot.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.blockwithme.properties;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.blockwithme.properties.impl.GraphImpl;
+import com.blockwithme.properties.impl.ListPropertiesImpl;
+import com.blockwithme.properties.impl.PropertiesImpl;
+import com.blockwithme.properties.impl.Storage;
+
+/**
+ * Tests ListPropertiesImpl.
+ *
+ * @author monster
+ */
+public class ListPropertiesImplTest {
+
+    /** Checks the list, with the given storage. */
+    private static void check(final Storage storage) {
+        final GraphImpl<Long> graph = new GraphImpl<>(0L, storage);
+        final PropertiesImpl<Long> root = new PropertiesImpl<>(graph, "root");
+        graph.root(root);
+        final ListPropertiesImpl<Long> list = new ListPropertiesImpl<>(graph,
+                "list");
+        root.set(root, "list", list);
+        assertTrue(list.isEmptyList());
+        assertEquals("0", list.nextIndex());
+        assertEquals("0", list.append(root, "a"));
+        assertEquals("1", list.append(root, "b"));
+        list.set(root, "name", "not indexed");
+        list.set(root, "007", "not an index");
+        list.set(root, "3", "d");
+        assertFalse(list.isEmptyList());
+        assertEquals(4, list.size());
+        assertEquals("d", root.get("list/3", String.class));
+        assertEquals("not an index", list.get("007", String.class));
+        assertArrayEquals(new String[] { "a", "b", "d" },
+                list.listValues(String.class, true));
+        // Trailing nulls do not count
+        list.set(root, "3", null);
+        assertEquals("2", list.nextIndex());
+        assertArrayEquals(new String[] { "a", "b" },
+                list.listValues(String.class, true));
+        final List<String> keys = new ArrayList<>();
+        for (final String key : list) {
+            keys.add(key);
+        }
+        // NumbersLastStringComparator order
+        assertEquals(Arrays.asList("name", "0", "1", "3", "007"), keys);
+        assertArrayEquals(new String[] { "a", "b" },
+                root.listChildValues("list", String.class, true));
+    }
+
+    /** Clears the list from the front, and refills it. */
+    private static void refill(final Storage storage) {
+        final GraphImpl<Long> graph = new GraphImpl<>(0L, storage);
+        final PropertiesImpl<Long> root = new PropertiesImpl<>(graph, "root");
+        graph.root(root);
+        final ListPropertiesImpl<Long> list = new ListPropertiesImpl<>(graph,
+                "list");
+        root.set(root, "list", list);
+        for (int i = 0; i < 100; i++) {
+            list.append(root, i);
+        }
+        list.set(root, "50", null);
+        assertEquals(100, list.size());
+        for (int i = 0; i < 99; i++) {
+            list.set(root, String.valueOf(i), null);
+        }
+        assertEquals(100, list.size());
+        list.set(root, "99", null);
+        assertTrue(list.isEmptyList());
+        for (int i = 0; i < 10; i++) {
+            assertEquals(String.valueOf(i), list.append(root, i));
+        }
+        assertEquals(10, list.size());
+        list.set(root, "9", null);
+        assertEquals("9", list.nextIndex());
+    }
+
+    /** Uses indexes far beyond the list size. */
+    private static void sparse(final Storage storage) {
+        final GraphImpl<Long> graph = new GraphImpl<>(0L, storage);
+        final PropertiesImpl<Long> root = new PropertiesImpl<>(graph, "root");
+        graph.root(root);
+        final ListPropertiesImpl<Long> list = new ListPropertiesImpl<>(graph,
+                "list");
+        root.set(root, "list", list);
+        list.set(root, "999999999", "last");
+        list.set(root, "50000000", "middle");
+        list.set(root, "100", "hundred");
+        list.set(root, "name", "not indexed");
+        assertEquals(1000000000, list.size());
+        assertEquals("middle", list.get("50000000", String.class));
+        assertArrayEquals(new String[] { "hundred", "middle", "last" },
+                list.listValues(String.class, true));
+        list.set(root, "999999999", null);
+        assertEquals(50000001, list.size());
+        list.set(root, "50000000", null);
+        assertEquals(101, list.size());
+        // Filling the list moves "100" to the dense arrays
+        for (int i = 0; i < 100; i++) {
+            list.set(root, String.valueOf(i), "v" + i);
+        }
+        assertEquals("101", list.nextIndex());
+        assertEquals("hundred", list.get("100", String.class));
+        list.set(root, "100", null);
+        assertEquals("100", list.nextIndex());
+        final List<String> keys = new ArrayList<>();
+        for (final String key : list) {
+            keys.add(key);
+        }
+        assertEquals(104, keys.size());
+        assertEquals("name", keys.get(0));
+        assertEquals(Arrays.asList("100", "50000000", "999999999"),
+                keys.subList(101, 104));
+    }
+
+    @Test
+    public void testList() {
+        check(Storage.SORTED);
+        check(Storage.HASHED);
+    }
+
+    @Test
+    public void testRefill() {
+        refill(Storage.SORTED);
+        refill(Storage.HASHED);
+    }
+
+    @Test
+    public void testSparse() {
+        sparse(Storage.SORTED);
+        sparse(Storage.HASHED);
+    }
+}
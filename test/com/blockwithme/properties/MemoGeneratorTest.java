@@ -0,0 +1,158 @@
+/*
+ * Copyright (C) 2013 Sebastien Diot.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.blockwithme.properties;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Test;
+
+import com.blockwithme.properties.impl.GraphImpl;
+import com.blockwithme.properties.impl.ListPropertiesImpl;
+import com.blockwithme.properties.impl.MemoGenerator;
+import com.blockwithme.properties.impl.PropertiesImpl;
+import com.blockwithme.properties.impl.Query;
+
+/**
+ * Tests MemoGenerator.
+ *
+ * @author monster
+ */
+public class MemoGeneratorTest {
+
+    /** Adds one to the value of a/x, and counts the calls. */
+    private static final class Increment implements Generator {
+        int calls;
+
+        @Override
+        public <E> E generate(final Properties<?> prop, final String name,
+                final Class<E> expectedType) {
+            calls++;
+            final Integer x = prop.get("a/x", Integer.class);
+            @SuppressWarnings("unchecked")
+            final E result = (E) Integer.valueOf(x + 1);
+            return result;
+        }
+    }
+
+    /** Counts the keys of the parent starting with x, and the list size. */
+    private static final class Count implements Generator {
+        int calls;
+
+        @Override
+        public <E> E generate(final Properties<?> prop, final String name,
+                final Class<E> expectedType) {
+            calls++;
+            final Properties<?> keys = prop.get("keys", Properties.class);
+            final ListPropertiesImpl<?> list = prop.get("list",
+                    ListPropertiesImpl.class);
+            @SuppressWarnings("unchecked")
+            final E result = (E) Integer.valueOf(keys.query(
+                    Query.ALL.keyPrefix("x")).size()
+                    + 100 * list.size());
+            return result;
+        }
+    }
+
+    @Test
+    public void testKeySetDependency() {
+        final GraphImpl<Long> graph = new GraphImpl<>(0L);
+        final PropertiesImpl<Long> root = new PropertiesImpl<>(graph, "root");
+        graph.root(root);
+        final PropertiesImpl<Long> keys = new PropertiesImpl<>(graph, "keys");
+        final ListPropertiesImpl<Long> list = new ListPropertiesImpl<>(graph,
+                "list");
+        root.set(root, "keys", keys);
+        root.set(root, "list", list);
+        final Count count = new Count();
+        root.set(root, "count", new MemoGenerator(count));
+
+        assertEquals(Integer.valueOf(0), root.get("count", Integer.class));
+        assertEquals(Integer.valueOf(0), root.get("count", Integer.class));
+        assertEquals(1, count.calls);
+        // Only the key set was read
+        keys.set(root, "x1", 1);
+        assertEquals(Integer.valueOf(1), root.get("count", Integer.class));
+        assertEquals(2, count.calls);
+        // Only the list size was read
+        list.append(root, "a");
+        assertEquals(Integer.valueOf(101), root.get("count", Integer.class));
+        assertEquals(3, count.calls);
+    }
+
+    @Test
+    public void testMemoize() {
+        final GraphImpl<Long> graph = new GraphImpl<>(0L);
+        final PropertiesImpl<Long> root = new PropertiesImpl<>(graph, "root");
+        graph.root(root);
+        final PropertiesImpl<Long> a = new PropertiesImpl<>(graph, "a");
+        final PropertiesImpl<Long> b = new PropertiesImpl<>(graph, "b");
+        root.set(root, "a", a);
+        root.set(root, "b", b);
+        a.set(root, "x", 1);
+        b.set(root, "y", 1);
+        final Increment inc = new Increment();
+        final MemoGenerator memo = new MemoGenerator(inc);
+        root.set(root, "inc", memo);
+        // Link to inc, itself memoized
+        b.set(root, "link", MemoGenerator.link("/inc"));
+
+        assertEquals(Integer.valueOf(2), root.get("inc", Integer.class));
+        assertEquals(Integer.valueOf(2), root.get("inc", Integer.class));
+        assertEquals(1, inc.calls);
+        assertEquals(Integer.valueOf(2), root.get("b/link", Integer.class));
+        assertEquals(Integer.valueOf(2), root.get("b/link", Integer.class));
+        assertEquals(1, inc.calls);
+
+        // Unrelated change: still cached
+        b.set(root, "y", 2);
+        assertEquals(Integer.valueOf(2), root.get("b/link", Integer.class));
+        assertEquals(1, inc.calls);
+
+        // Dependency change: recomputed, also through the link
+        a.set(root, "x", 10);
+        assertEquals(Integer.valueOf(11), root.get("b/link", Integer.class));
+        assertEquals(2, inc.calls);
+        assertEquals(Integer.valueOf(11), root.get("inc", Integer.class));
+        assertEquals(2, inc.calls);
+
+        // Future changes invalidate too
+        a.set(root, "x", 20, 5L, false);
+        assertEquals(Integer.valueOf(11), root.get("inc", Integer.class));
+        graph.setTime(5L);
+        assertEquals(Integer.valueOf(21), root.get("inc", Integer.class));
+        assertEquals(3, inc.calls);
+
+        assertSame(MemoGenerator.link("/inc"), MemoGenerator.link("/inc"));
+    }
+
+    @Test
+    public void testRootDependency() {
+        final GraphImpl<Long> graph = new GraphImpl<>(0L);
+        final PropertiesImpl<Long> root = new PropertiesImpl<>(graph, "root");
+        graph.root(root);
+        root.set(root, "v", 1);
+        root.set(root, "m", MemoGenerator.link("/v"));
+        assertEquals(Integer.valueOf(1), root.get("m", Integer.class));
+
+        // Replacing the root invalidates absolute paths
+        final PropertiesImpl<Long> other = new PropertiesImpl<>(graph, "root");
+        other.set(other, "v", 2);
+        graph.root(other);
+        assertEquals(Integer.valueOf(2), root.get("m", Integer.class));
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright (C) 2013 Sebastien Diot.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.blockwithme.properties;
+
+import com.blockwithme.properties.impl.GraphImpl;
+import com.blockwithme.properties.impl.PropertiesImpl;
+import com.blockwithme.properties.impl.Storage;
+
+/**
+ * Simple benchmark, comparing the lookup speed of the Storage kinds, for a
+ * lookup-heavy workload.
+ *
+ * TODO: Turn into a JMH benchmark, once we have JMH in the build.
+ *
+ * @author monster
+ */
+public class PropertiesStorageBenchmark {
+
+    /** Creates a node with the given keys, using the key index as value. */
+    private static PropertiesImpl<Long> create(final Storage storage,
+            final String[] keys) {
+        final GraphImpl<Long> graph = new GraphImpl<>(0L, storage);
+        final PropertiesImpl<Long> root = new PropertiesImpl<>(graph, "root");
+        graph.root(root);
+        for (int i = 0; i < keys.length; i++) {
+            root.set(root, keys[i], i);
+        }
+        return root;
+    }
+
+    private static long run(final PropertiesImpl<Long> prop,
+            final PropertyPath[] paths, final int loops) {
+        long result = 0;
+        for (int l = 0; l < loops; l++) {
+            for (final PropertyPath path : paths) {
+                result += prop.get(path, Integer.class);
+            }
+        }
+        return result;
+    }
+
+    /** Runs the benchmark. */
+    public static void main(final String[] args) {
+        final String[] keys = new String[256];
+        final PropertyPath[] paths = new PropertyPath[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            // Half names, half indexes
+            keys[i] = ((i & 1) == 0) ? "property" + i : String.valueOf(i);
+            paths[i] = PropertyPath.of(keys[i]);
+        }
+        final PropertiesImpl<Long> sorted = create(Storage.SORTED, keys);
+        final PropertiesImpl<Long> hashed = create(Storage.HASHED, keys);
+        final int loops = 2000;
+        final long calls = (long) loops * paths.length;
+        for (int run = 0; run < 5; run++) {
+            long start = System.nanoTime();
+            final long s = run(sorted, paths, loops);
+            System.out.println("sorted: "
+                    + ((System.nanoTime() - start) / (double) calls)
+                    + " ns/lookup");
+            start = System.nanoTime();
+            final long h = run(hashed, paths, loops);
+            System.out.println("hashed: "
+                    + ((System.nanoTime() - start) / (double) calls)
+                    + " ns/lookup");
+            if (s != h) {
+                throw new IllegalStateException("Results differ: " + s + " "
+                        + h);
+            }
+        }
+    }
+}
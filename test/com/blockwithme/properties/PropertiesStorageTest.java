@@ -0,0 +1,98 @@
+/*
+ * Copyright (C) 2013 Sebastien Diot.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.blockwithme.properties;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.blockwithme.properties.impl.GraphImpl;
+import com.blockwithme.properties.impl.PropertiesImpl;
+import com.blockwithme.properties.impl.Storage;
+
+/**
+ * Tests that all Storage kinds behave the same.
+ *
+ * @author monster
+ */
+public class PropertiesStorageTest {
+
+    /** Fills a Properties, and returns it's keys. */
+    private static List<String> check(final Storage storage) {
+        final GraphImpl<Long> graph = new GraphImpl<>(0L, storage);
+        assertEquals(storage, graph.storage());
+        final PropertiesImpl<Long> root = new PropertiesImpl<>(graph, "root");
+        graph.root(root);
+        for (int i = 0; i < 100; i++) {
+            root.set(root, String.valueOf((i * 37) % 100), i);
+            root.set(root, "key" + i, -i);
+        }
+        assertNull(root.find("missing", Integer.class));
+        for (int i = 0; i < 100; i++) {
+            assertEquals(Integer.valueOf(i),
+                    root.get(String.valueOf((i * 37) % 100), Integer.class));
+            assertEquals(Integer.valueOf(-i),
+                    root.get("key" + i, Integer.class));
+        }
+        root.set(root, "key5", 5);
+        assertEquals(Integer.valueOf(5), root.get("key5", Integer.class));
+        assertEquals("100", root.nextIndex());
+        final List<String> keys = new ArrayList<>();
+        for (final String key : root) {
+            keys.add(key);
+        }
+        assertEquals(200, keys.size());
+        // Non-numbers first, then numbers, in numeric order
+        assertEquals("key0", keys.get(0));
+        assertEquals("0", keys.get(100));
+        assertEquals("99", keys.get(199));
+        return keys;
+    }
+
+    @Test
+    public void testStorage() {
+        assertEquals(check(Storage.SORTED), check(Storage.HASHED));
+    }
+
+    /** Different strings for the same number are different keys. */
+    @Test
+    public void testSameNumber() {
+        for (final Storage storage : Storage.values()) {
+            final GraphImpl<Long> graph = new GraphImpl<>(0L, storage);
+            final PropertiesImpl<Long> root = new PropertiesImpl<>(graph,
+                    "root");
+            graph.root(root);
+            root.set(root, "01", 1);
+            root.set(root, "1e2", 100);
+            assertNull(storage.name(), root.find("1", Integer.class));
+            assertNull(storage.name(), root.find("100", Integer.class));
+            assertEquals(storage.name(), Integer.valueOf(1),
+                    root.get("01", Integer.class));
+            assertEquals(storage.name(), Integer.valueOf(100),
+                    root.get("1e2", Integer.class));
+            root.set(root, "1", 2);
+            assertEquals(storage.name(), Integer.valueOf(1),
+                    root.get("01", Integer.class));
+            assertEquals(storage.name(), Integer.valueOf(2),
+                    root.get("1", Integer.class));
+        }
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright (C) 2013 Sebastien Diot.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.blockwithme.properties;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+
+import com.blockwithme.properties.impl.GraphImpl;
+import com.blockwithme.properties.impl.PropertiesImpl;
+
+/**
+ * Tests PropertyPath, and the PropertyPath Properties methods.
+ *
+ * @author monster
+ */
+public class PropertyPathTest {
+
+    /** Pre-parsed relative path. */
+    private static final PropertyPath CHILD_X = PropertyPath.of("child/x");
+
+    /** Pre-parsed absolute path. */
+    private static final PropertyPath ABS_CHILD_X = PropertyPath
+            .of("/child/x");
+
+    /** Creates a root, with a child. */
+    private static PropertiesImpl<Long> newRoot() {
+        final GraphImpl<Long> graph = new GraphImpl<>(0L);
+        final PropertiesImpl<Long> root = new PropertiesImpl<>(graph, "root");
+        graph.root(root);
+        root.set(root, "child", new PropertiesImpl<>(graph, "child"));
+        return root;
+    }
+
+    @Test
+    public void testParse() {
+        assertFalse(CHILD_X.absolute());
+        assertEquals(2, CHILD_X.size());
+        assertSame("child", CHILD_X.localKey(0));
+        assertSame("x", CHILD_X.localKey());
+        assertTrue(ABS_CHILD_X.absolute());
+        assertEquals(2, ABS_CHILD_X.size());
+        assertEquals("/child/x", ABS_CHILD_X.toString());
+        assertSame(PropertyPath.ROOT, PropertyPath.of("/"));
+        assertEquals(0, PropertyPath.ROOT.size());
+        assertEquals(CHILD_X, PropertyPath.of("child/x"));
+        assertSame(PropertyPath.cache("a/b"), PropertyPath.cache("a/b"));
+        for (final String bad : new String[] { "", "a//b", "a/", "a/b-c" }) {
+            try {
+                PropertyPath.of(bad);
+                fail(bad);
+            } catch (final IllegalArgumentException e) {
+                // OK
+            }
+        }
+    }
+
+    @Test
+    public void testFindAndSet() {
+        final PropertiesImpl<Long> root = newRoot();
+        assertNull(root.find(CHILD_X, Integer.class));
+        root.set(root, CHILD_X, 42);
+        assertEquals(Integer.valueOf(42), root.get(CHILD_X, Integer.class));
+        assertEquals(Integer.valueOf(42), root.get("child/x", Integer.class));
+        @SuppressWarnings("unchecked")
+        final Properties<Long> child = root.get("child", Properties.class);
+        assertEquals(Integer.valueOf(42), child.get(ABS_CHILD_X,
+                Integer.class));
+        assertEquals(Integer.valueOf(42), child.get("/child/x",
+                Integer.class));
+        assertEquals(Integer.valueOf(42), child.find(PropertyPath.of("x"),
+                Integer.class, 7));
+        assertEquals(Integer.valueOf(7), child.find(PropertyPath.of("y"),
+                Integer.class, 7));
+        assertSame(root, child.findRaw(PropertyPath.ROOT, true));
+        try {
+            root.get(CHILD_X, String.class);
+            fail();
+        } catch (final IllegalStateException e) {
+            // OK
+        }
+        try {
+            root.set(root, PropertyPath.of("missing/x"), 1);
+            fail();
+        } catch (final IllegalStateException e) {
+            // OK
+        }
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright (C) 2013 Sebastien Diot.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.blockwithme.properties;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.blockwithme.properties.impl.GraphImpl;
+import com.blockwithme.properties.impl.PropertiesImpl;
+import com.blockwithme.properties.impl.Query;
+import com.blockwithme.properties.impl.Storage;
+
+/**
+ * Tests Query.
+ *
+ * @author monster
+ */
+public class QueryTest {
+
+    /** Counts how often it is called. */
+    private static final class Counter implements Generator {
+        int calls;
+
+        @Override
+        public <E> E generate(final Properties<?> prop, final String name,
+                final Class<E> expectedType) {
+            calls++;
+            @SuppressWarnings("unchecked")
+            final E result = (E) "generated";
+            return result;
+        }
+    }
+
+    /** Runs the queries, with the given storage. */
+    private static void check(final Storage storage, final boolean indexed) {
+        final GraphImpl<Long> graph = new GraphImpl<>(0L, storage);
+        final PropertiesImpl<Long> root = new PropertiesImpl<>(graph, "root");
+        graph.root(root);
+        for (int i = 0; i < 20; i++) {
+            root.set(root, String.valueOf(i), i % 3);
+            root.set(root, "item" + i, "v" + (i % 2));
+        }
+        root.set(root, "other", 1L);
+        final Counter counter = new Counter();
+        root.set(root, "gen", counter);
+        if (indexed) {
+            root.indexValues();
+        }
+        // Keys only: no generator executed
+        assertEquals(Arrays.asList("item1", "item10"), root
+                .query(Query.ALL.keyPrefix("item1").keyRange(null, "item11")
+                        .keyPrefix("item")));
+        assertEquals(Arrays.asList("5", "6", "7"),
+                root.query(Query.ALL.keyRange("5", "8")));
+        assertEquals(Collections.singletonList("gen"),
+                root.query(Query.ALL.keyPrefix("ge")));
+        assertEquals(0, counter.calls);
+        // Values
+        assertEquals(Arrays.asList("2", "5", "8", "11", "14", "17"),
+                root.query(Query.ALL.valueEquals(2)));
+        assertEquals(Arrays.asList("1", "4"),
+                root.query(Query.ALL.keyRange(null, "7").valueEquals(1)));
+        assertEquals(Collections.singletonList("other"),
+                root.query(Query.ALL.valueType(Long.class)));
+        final List<String> strings = root.query(Query.ALL
+                .valueType(String.class));
+        assertEquals(21, strings.size());
+        assertEquals("gen", strings.get(0));
+        // Same as a plain Filter
+        assertEquals(root.query(new Filter() {
+            @Override
+            public boolean accept(final String key, final Object value) {
+                return key.startsWith("item") && "v1".equals(value);
+            }
+        }), root.query(Query.ALL.keyPrefix("item").valueEquals("v1")));
+        assertEquals(Collections.singletonList("gen"),
+                root.keysOf("generated"));
+    }
+
+    @Test
+    public void testQuery() {
+        check(Storage.SORTED, false);
+        check(Storage.HASHED, false);
+        check(Storage.CONCURRENT, false);
+        check(Storage.HASHED, true);
+    }
+
+    @Test
+    public void testConflicts() {
+        try {
+            Query.ALL.keyPrefix("a").keyPrefix("b");
+            fail();
+        } catch (final IllegalArgumentException e) {
+            // OK
+        }
+        try {
+            Query.ALL.valueEquals(1).valueEquals(2);
+            fail();
+        } catch (final IllegalArgumentException e) {
+            // OK
+        }
+        assertEquals(Integer.class, Query.ALL.valueType(Number.class)
+                .valueType(Integer.class).type());
+    }
+}
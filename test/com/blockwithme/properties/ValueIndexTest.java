@@ -0,0 +1,75 @@
+/*
+ * Copyright (C) 2013 Sebastien Diot.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.blockwithme.properties;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Test;
+
+import com.blockwithme.properties.impl.GraphImpl;
+import com.blockwithme.properties.impl.Link;
+import com.blockwithme.properties.impl.PropertiesImpl;
+
+/**
+ * Tests the value index of PropertiesImpl.
+ *
+ * @author monster
+ */
+public class ValueIndexTest {
+
+    @Test
+    public void testKeysOf() {
+        final GraphImpl<Long> graph = new GraphImpl<>(0L);
+        final PropertiesImpl<Long> root = new PropertiesImpl<>(graph, "root");
+        graph.root(root);
+        final PropertiesImpl<Long> other = new PropertiesImpl<>(graph,
+                "other");
+        root.set(root, "a", 1);
+        root.set(root, "b", 2);
+        root.set(root, "c", 1);
+        root.set(root, "n", null);
+        root.set(root, "link", new Link("b"));
+        root.indexValues();
+        assertTrue(root.valuesIndexed());
+        assertFalse(other.valuesIndexed());
+        assertEquals(Arrays.asList("a", "c"), root.keysOf(1));
+        assertEquals(Arrays.asList("b", "link"), root.keysOf(2));
+        assertEquals(Collections.singletonList("n"), root.keysOf(null));
+        assertTrue(root.contains(2));
+        assertFalse(root.contains(3));
+        // Maintained on change
+        root.set(root, "c", 3);
+        root.set(root, "d", 1);
+        root.set(root, "b", 5);
+        assertEquals(Arrays.asList("a", "d"), root.keysOf(1));
+        assertEquals(Arrays.asList("b", "link"), root.keysOf(5));
+        assertTrue(root.keysOf(2).isEmpty());
+        assertTrue(root.contains(3));
+        // Same results as without index
+        other.set(other, "a", 1);
+        other.set(other, "d", 1);
+        other.set(other, "b", 5);
+        other.set(other, "link", new Link("b"));
+        assertEquals(other.keysOf(1), root.keysOf(1));
+        assertEquals(other.keysOf(5), root.keysOf(5));
+    }
+}